@@ -0,0 +1,30 @@
+package com.pharmacy.config;
+
+import com.pharmacy.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyService idempotencyService,
+            @Value("${pharmacy.idempotency.paths:/api/sales,/api/sales/basket,/api/stock-ins}") String paths) {
+        Set<String> idempotentPaths = Stream.of(paths.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isBlank())
+                .collect(Collectors.toSet());
+        // Default filter order runs after Spring Security, so keys are scoped to the authenticated user
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyService, idempotentPaths));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
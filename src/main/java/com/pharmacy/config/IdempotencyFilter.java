@@ -0,0 +1,206 @@
+package com.pharmacy.config;
+
+import com.pharmacy.service.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyService idempotencyService;
+    private final Set<String> paths;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService, Set<String> paths) {
+        this.idempotencyService = idempotencyService;
+        this.paths = paths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String key = request.getHeader(HEADER);
+        return key == null
+                || key.isBlank()
+                || !"POST".equals(request.getMethod())
+                || !paths.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        String requestHash = sha256(body);
+        String scopeKey = request.getServletPath() + "|" + actor() + "|" + key;
+
+        IdempotencyService.Claim claim = idempotencyService.claim(scopeKey, requestHash);
+        switch (claim.state()) {
+            case REPLAY -> {
+                IdempotencyService.StoredResponse stored = claim.response();
+                response.setStatus(stored.statusCode());
+                if (stored.contentType() != null) {
+                    response.setContentType(stored.contentType());
+                }
+                response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                response.setHeader("Idempotent-Replayed", "true");
+                if (stored.body() != null) {
+                    response.getWriter().write(stored.body());
+                }
+                return;
+            }
+            case IN_PROGRESS -> {
+                writeError(response, HttpServletResponse.SC_CONFLICT,
+                        "A request with this " + HEADER + " is still being processed");
+                return;
+            }
+            case MISMATCH -> {
+                writeError(response, 422, HEADER + " was already used for a different request");
+                return;
+            }
+            case ACQUIRED -> {
+                // fall through to the real handler
+            }
+        }
+
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean returned = false;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), cachingResponse);
+            returned = true;
+        } finally {
+            if (!returned) {
+                // The handler may have committed before failing: keep the pending row until its lease runs out
+                idempotencyService.abandon(scopeKey);
+            }
+        }
+
+        try {
+            int status = cachingResponse.getStatus();
+            if (status >= 200 && status < 300) {
+                // The work is committed, so the key is never released from here on; a retry must replay
+                idempotencyService.complete(
+                        scopeKey,
+                        requestHash,
+                        status,
+                        cachingResponse.getContentType(),
+                        new String(cachingResponse.getContentAsByteArray(), StandardCharsets.UTF_8)
+                );
+            } else if (status < 500) {
+                // Client errors are rejected before any work is done, so the client can fix the request and retry
+                idempotencyService.release(scopeKey);
+            } else {
+                // A server error can come after the sale committed, so retries wait for the pending lease
+                idempotencyService.abandon(scopeKey);
+            }
+        } finally {
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private static String actor() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && auth.getName() != null) {
+            return auth.getName();
+        }
+        return "anonymous";
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // The whole body is already in memory, so it is available, and then read, at once
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,40 +1,90 @@
 package com.pharmacy.controller;
 
 import com.pharmacy.model.AuditLog;
-import com.pharmacy.repository.AuditLogRepository;
-import org.springframework.data.domain.PageRequest;
+import com.pharmacy.service.AuditQueryService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/admin/audit")
 public class AdminAuditController {
 
-    private final AuditLogRepository auditLogRepository;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
-    public AdminAuditController(AuditLogRepository auditLogRepository) {
-        this.auditLogRepository = auditLogRepository;
+    private final AuditQueryService auditQueryService;
+
+    public AdminAuditController(AuditQueryService auditQueryService) {
+        this.auditQueryService = auditQueryService;
     }
 
+    /**
+     * Newest entries first. When more rows may follow, the response carries an {@code X-Next-Cursor}
+     * header to pass back as {@code cursor} for the next page.
+     */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public List<AuditLog> list(
+    public ResponseEntity<List<AuditLog>> list(
             @RequestParam(required = false) String actor,
             @RequestParam(required = false) String entityType,
             @RequestParam(required = false) String action,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "100") int limit
     ) {
-        int safeLimit = Math.min(Math.max(limit, 1), 500);
-        return auditLogRepository.search(
-                actor,
-                entityType,
-                action,
-                PageRequest.of(0, safeLimit)
+        AuditQueryService.AuditPage page = auditQueryService.page(
+                auditQueryService.filter(actor, entityType, action, from, to),
+                cursor,
+                limit
         );
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Full-text search over actor and message, best matches first.
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<AuditLog> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) String action,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        return auditQueryService.search(q, entityType, action, limit);
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void export(
+            @RequestParam(required = false) String actor,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response
+    ) throws IOException {
+        AuditQueryService.AuditFilter filter = auditQueryService.filter(actor, entityType, action, from, to);
+        AuditQueryService.ExportFormat exportFormat = AuditQueryService.ExportFormat.from(format);
+        boolean csv = exportFormat == AuditQueryService.ExportFormat.CSV;
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader("Content-Disposition",
+                "attachment; filename=\"audit-" + LocalDate.now() + (csv ? ".csv" : ".ndjson") + "\"");
+        auditQueryService.export(filter, exportFormat, response.getOutputStream());
     }
 }
@@ -2,59 +2,116 @@ package com.pharmacy.controller;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.pharmacy.dto.*;
 import com.pharmacy.model.*;
 import com.pharmacy.repository.MedicineRepository;
-import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.service.IntradaySalesCounters;
+import com.pharmacy.service.SaleGroupCommitService;
+import com.pharmacy.service.SaleQueryService;
 import com.pharmacy.service.SaleService;
+import com.pharmacy.service.SalesEventBroadcaster;
+import com.pharmacy.service.SalesSummaryCache;
+import com.pharmacy.service.SalesSummaryEngine;
 
 @RestController
 @RequestMapping("/api/sales")
 public class SaleController {
 
-    private final SaleRepository saleRepository;
     private final SaleService saleService;
-    private static final long SUMMARY_CACHE_TTL_MS = 5 * 60 * 1000L;
-    private final Map<String, CacheEntry> monthlySummaryCache = new ConcurrentHashMap<>();
-
-    public SaleController(SaleRepository saleRepository, SaleService saleService) {
-        this.saleRepository = saleRepository;
+    private final SaleGroupCommitService saleGroupCommitService;
+    private final SaleQueryService saleQueryService;
+    private final SalesSummaryEngine salesSummaryEngine;
+    private final SalesSummaryCache salesSummaryCache;
+    private final IntradaySalesCounters intradaySalesCounters;
+    private final SalesEventBroadcaster salesEventBroadcaster;
+
+    public SaleController(SaleService saleService,
+                          SaleGroupCommitService saleGroupCommitService,
+                          SaleQueryService saleQueryService,
+                          SalesSummaryEngine salesSummaryEngine,
+                          SalesSummaryCache salesSummaryCache,
+                          IntradaySalesCounters intradaySalesCounters,
+                          SalesEventBroadcaster salesEventBroadcaster) {
         this.saleService = saleService;
+        this.saleGroupCommitService = saleGroupCommitService;
+        this.saleQueryService = saleQueryService;
+        this.salesSummaryEngine = salesSummaryEngine;
+        this.salesSummaryCache = salesSummaryCache;
+        this.intradaySalesCounters = intradaySalesCounters;
+        this.salesEventBroadcaster = salesEventBroadcaster;
     }
 
     // ================= SELL MEDICINE =================
     @PostMapping
     public Sale sellMedicine(@RequestBody SaleRequest request) {
-        return saleService.createSale(request);
+        return saleGroupCommitService.submit(request);
+    }
+
+    @PostMapping("/basket")
+    public BasketSaleResponse sellBasket(@RequestBody BasketSaleRequest request) {
+        return saleService.createBasketSale(request);
     }
 
     // ================= MANAGEMENT =================
 
+    // Newest sales only; use /history to page further back
     @GetMapping("/status/{status}")
-    public List<Sale> getSalesByStatus(@PathVariable SaleStatus status) {
-        return saleRepository.findByStatus(status);
+    public List<SaleHistoryItem> getSalesByStatus(
+            @PathVariable SaleStatus status,
+            @RequestParam(defaultValue = "100") int limit) {
+        return saleQueryService.page(
+                saleQueryService.filter(status, null, null, null, null, null),
+                null,
+                limit
+        ).items();
+    }
+
+    /**
+     * Newest sales first as lean rows. When more rows may follow, the response carries an
+     * {@code X-Next-Cursor} header to pass back as {@code cursor} for the next page.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<List<SaleHistoryItem>> getSalesHistory(
+            @RequestParam(required = false) SaleStatus status,
+            @RequestParam(required = false) Long medicineId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        SaleQueryService.SalePage page = saleQueryService.page(
+                saleQueryService.filter(status, medicineId, from, to, minAmount, maxAmount),
+                cursor,
+                limit
+        );
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(AdminAuditController.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 
     @GetMapping("/summary")
     public SaleSummary getSalesSummary() {
 
         SaleSummary summary = new SaleSummary();
+        SalesSummaryEngine.Totals totals = salesSummaryEngine.allTime();
 
-        long valid = saleRepository.countByStatus(SaleStatus.VALID);
-        long expired = saleRepository.countByStatus(SaleStatus.REJECTED_EXPIRED);
-        long out = saleRepository.countByStatus(SaleStatus.REJECTED_OUT_OF_STOCK);
+        long valid = totals.count(SaleStatus.VALID);
+        long expired = totals.count(SaleStatus.REJECTED_EXPIRED);
+        long out = totals.count(SaleStatus.REJECTED_OUT_OF_STOCK);
 
         summary.setValidSales(valid);
         summary.setRejectedExpired(expired);
@@ -64,27 +121,23 @@ public class SaleController {
         return summary;
     }
 
+    // Pushes sale, rejection, stock and revenue events instead of polling the summary endpoints
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter live() {
+        return salesEventBroadcaster.subscribe();
+    }
+
     @GetMapping("/summary/today")
     public DailySaleSummary getTodaySummary() {
 
-        LocalDate today = LocalDate.now();
-        LocalDateTime start = today.atStartOfDay();
-        LocalDateTime end = today.atTime(LocalTime.MAX);
+        IntradaySalesCounters.Day today = intradaySalesCounters.today();
 
         DailySaleSummary summary = new DailySaleSummary();
-        summary.setDate(today);
-
-        summary.setValidSales(
-                saleRepository.countByStatusAndSaleDateBetween(
-                        SaleStatus.VALID, start, end));
+        summary.setDate(today.date());
 
-        summary.setRejectedExpired(
-                saleRepository.countByStatusAndSaleDateBetween(
-                        SaleStatus.REJECTED_EXPIRED, start, end));
-
-        summary.setRejectedOutOfStock(
-                saleRepository.countByStatusAndSaleDateBetween(
-                        SaleStatus.REJECTED_OUT_OF_STOCK, start, end));
+        summary.setValidSales(today.count(SaleStatus.VALID));
+        summary.setRejectedExpired(today.count(SaleStatus.REJECTED_EXPIRED));
+        summary.setRejectedOutOfStock(today.count(SaleStatus.REJECTED_OUT_OF_STOCK));
 
         summary.setTotalSales(
                 summary.getValidSales()
@@ -97,23 +150,14 @@ public class SaleController {
     @GetMapping("/summary/revenue/today")
     public DailyRevenueSummary getTodayRevenue() {
 
-        LocalDate today = LocalDate.now();
-        LocalDateTime start = today.atStartOfDay();
-        LocalDateTime end = today.atTime(LocalTime.MAX);
-
-        List<Sale> sales =
-                saleRepository.findByStatusAndSaleDateBetween(
-                        SaleStatus.VALID, start, end);
-
-        double revenue = sales.stream()
-                .map(Sale::getTotalPrice)
-                .mapToDouble(BigDecimal::doubleValue)
-                .sum();
+        IntradaySalesCounters.Day today = intradaySalesCounters.today();
+        long revenueCents = today.revenueCents();
 
         DailyRevenueSummary summary = new DailyRevenueSummary();
-        summary.setDate(today);
-        summary.setTotalRevenue(revenue);
-        summary.setValidSalesCount(sales.size());
+        summary.setDate(today.date());
+        summary.setTotalRevenueCents(revenueCents);
+        summary.setTotalRevenue(revenueCents / 100.0);
+        summary.setValidSalesCount(today.count(SaleStatus.VALID));
 
         return summary;
     }
@@ -123,7 +167,8 @@ public class SaleController {
             @RequestParam int year,
             @RequestParam int month) {
 
-        return buildMonthlySummary(YearMonth.of(year, month));
+        YearMonth ym = YearMonth.of(year, month);
+        return buildMonthlySummary(ym, salesSummaryEngine.forMonths(List.of(ym)).get(0));
     }
 
     // ================= PROFIT =================
@@ -161,6 +206,14 @@ public class SaleController {
         return saleService.getTopProfitMedicines(range.start(), range.end(), limit);
     }
 
+    @GetMapping("/profit/hourly")
+    public List<HourlyProfitDto> getProfitByHour(
+            @RequestParam(required = false) String start,
+            @RequestParam(required = false) String end) {
+        DateRange range = resolveRange(start, end);
+        return saleService.getProfitByHour(range.start(), range.end());
+    }
+
     @GetMapping("/summary/monthly/range")
     public List<MonthlySaleSummary> getMonthlySummaryRange(
             @RequestParam int year,
@@ -174,60 +227,32 @@ public class SaleController {
             );
         }
 
-        String cacheKey = year + "-" + month + "-" + count;
-        CacheEntry cached = monthlySummaryCache.get(cacheKey);
-        if (cached != null && !cached.isExpired()) {
-            return new ArrayList<>(cached.data());
-        }
-
         YearMonth end = YearMonth.of(year, month);
-        List<MonthlySaleSummary> summaries = new ArrayList<>();
+        List<YearMonth> months = new ArrayList<>();
         for (int i = count - 1; i >= 0; i--) {
-            summaries.add(buildMonthlySummary(end.minusMonths(i)));
+            months.add(end.minusMonths(i));
+        }
+        List<SalesSummaryEngine.Totals> totals = salesSummaryCache.months(months);
+        List<MonthlySaleSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < months.size(); i++) {
+            summaries.add(buildMonthlySummary(months.get(i), totals.get(i)));
         }
-        monthlySummaryCache.put(cacheKey, new CacheEntry(summaries));
         return summaries;
     }
 
-    private MonthlySaleSummary buildMonthlySummary(YearMonth ym) {
-        LocalDateTime start = ym.atDay(1).atStartOfDay();
-        LocalDateTime end = ym.atEndOfMonth().atTime(LocalTime.MAX);
-
+    private MonthlySaleSummary buildMonthlySummary(YearMonth ym, SalesSummaryEngine.Totals totals) {
         MonthlySaleSummary summary = new MonthlySaleSummary();
         summary.setMonth(ym);
 
-        summary.setValidSales(
-                saleRepository.countByStatusAndSaleDateBetween(
-                        SaleStatus.VALID, start, end));
-
-        summary.setRejectedExpired(
-                saleRepository.countByStatusAndSaleDateBetween(
-                        SaleStatus.REJECTED_EXPIRED, start, end));
-
-        summary.setRejectedOutOfStock(
-                saleRepository.countByStatusAndSaleDateBetween(
-                        SaleStatus.REJECTED_OUT_OF_STOCK, start, end));
-
-        summary.setTotalSales(
-                saleRepository.countBySaleDateBetween(start, end));
-
-        summary.setTotalRevenue(
-                saleRepository.sumTotalPriceByStatusAndDateBetween(
-                        SaleStatus.VALID, start, end).doubleValue());
+        summary.setValidSales(totals.count(SaleStatus.VALID));
+        summary.setRejectedExpired(totals.count(SaleStatus.REJECTED_EXPIRED));
+        summary.setRejectedOutOfStock(totals.count(SaleStatus.REJECTED_OUT_OF_STOCK));
+        summary.setTotalSales(totals.totalCount());
+        summary.setTotalRevenue(totals.revenue(SaleStatus.VALID).doubleValue());
 
         return summary;
     }
 
-    private record CacheEntry(List<MonthlySaleSummary> data, long cachedAt) {
-        CacheEntry(List<MonthlySaleSummary> data) {
-            this(data, System.currentTimeMillis());
-        }
-
-        boolean isExpired() {
-            return System.currentTimeMillis() - cachedAt > SUMMARY_CACHE_TTL_MS;
-        }
-    }
-
     private record DateRange(LocalDate start, LocalDate end) {}
 
     private DateRange resolveRange(String start, String end) {
@@ -1,6 +1,7 @@
 package com.pharmacy.controller;
 
 import com.pharmacy.dto.StockInRequest;
+import com.pharmacy.dto.StockInView;
 import com.pharmacy.model.StockIn;
 import com.pharmacy.service.StockInService;
 import jakarta.validation.Valid;
@@ -21,8 +22,8 @@ public class StockInController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public List<StockIn> getStockIns() {
-        return stockInService.getAllStockIns();
+    public List<StockInView> getStockIns(@RequestParam(defaultValue = "500") int limit) {
+        return stockInService.getRecentStockIns(limit);
     }
 
     @PostMapping
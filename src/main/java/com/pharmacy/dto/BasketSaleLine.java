@@ -0,0 +1,90 @@
+package com.pharmacy.dto;
+
+import com.pharmacy.model.SaleStatus;
+
+import java.math.BigDecimal;
+
+public class BasketSaleLine {
+
+    private int line;
+    private Long saleId;
+    private Long medicineId;
+    private String medicineName;
+    private int quantity;
+    private BigDecimal totalPrice;
+    private SaleStatus status;
+
+    public BasketSaleLine() {}
+
+    public BasketSaleLine(int line,
+                          Long saleId,
+                          Long medicineId,
+                          String medicineName,
+                          int quantity,
+                          BigDecimal totalPrice,
+                          SaleStatus status) {
+        this.line = line;
+        this.saleId = saleId;
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.quantity = quantity;
+        this.totalPrice = totalPrice;
+        this.status = status;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public Long getSaleId() {
+        return saleId;
+    }
+
+    public void setSaleId(Long saleId) {
+        this.saleId = saleId;
+    }
+
+    public Long getMedicineId() {
+        return medicineId;
+    }
+
+    public void setMedicineId(Long medicineId) {
+        this.medicineId = medicineId;
+    }
+
+    public String getMedicineName() {
+        return medicineName;
+    }
+
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public SaleStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SaleStatus status) {
+        this.status = status;
+    }
+}
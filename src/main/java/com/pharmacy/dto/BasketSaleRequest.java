@@ -0,0 +1,17 @@
+package com.pharmacy.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BasketSaleRequest {
+
+    private List<SaleRequest> items = new ArrayList<>();
+
+    public List<SaleRequest> getItems() {
+        return items;
+    }
+
+    public void setItems(List<SaleRequest> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pharmacy.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class BasketSaleResponse {
+
+    private List<BasketSaleLine> lines;
+    private long validLines;
+    private long rejectedLines;
+    private BigDecimal totalPrice;
+
+    public BasketSaleResponse() {}
+
+    public BasketSaleResponse(List<BasketSaleLine> lines,
+                              long validLines,
+                              long rejectedLines,
+                              BigDecimal totalPrice) {
+        this.lines = lines;
+        this.validLines = validLines;
+        this.rejectedLines = rejectedLines;
+        this.totalPrice = totalPrice;
+    }
+
+    public List<BasketSaleLine> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<BasketSaleLine> lines) {
+        this.lines = lines;
+    }
+
+    public long getValidLines() {
+        return validLines;
+    }
+
+    public void setValidLines(long validLines) {
+        this.validLines = validLines;
+    }
+
+    public long getRejectedLines() {
+        return rejectedLines;
+    }
+
+    public void setRejectedLines(long rejectedLines) {
+        this.rejectedLines = rejectedLines;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+}
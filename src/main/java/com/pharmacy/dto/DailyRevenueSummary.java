@@ -6,6 +6,8 @@ public class DailyRevenueSummary {
 
     private LocalDate date;
     private double totalRevenue;
+    // Exact total; totalRevenue is kept for existing clients
+    private long totalRevenueCents;
     private long validSalesCount;
 
     public LocalDate getDate() {
@@ -24,6 +26,14 @@ public class DailyRevenueSummary {
         this.totalRevenue = totalRevenue;
     }
 
+    public long getTotalRevenueCents() {
+        return totalRevenueCents;
+    }
+
+    public void setTotalRevenueCents(long totalRevenueCents) {
+        this.totalRevenueCents = totalRevenueCents;
+    }
+
     public long getValidSalesCount() {
         return validSalesCount;
     }
@@ -0,0 +1,12 @@
+package com.pharmacy.dto;
+
+import java.math.BigDecimal;
+
+public record HourlyProfitDto(
+    int hour,
+    long saleCount,
+    long quantitySold,
+    BigDecimal revenue,
+    BigDecimal cost,
+    BigDecimal profit
+) {}
@@ -0,0 +1,11 @@
+package com.pharmacy.dto;
+
+import java.time.LocalDate;
+
+public record LiveRevenueUpdate(
+    LocalDate date,
+    long validSales,
+    long rejectedExpired,
+    long rejectedOutOfStock,
+    long revenueCents
+) {}
@@ -0,0 +1,9 @@
+package com.pharmacy.dto;
+
+public record LiveStockAlert(
+    Long medicineId,
+    String medicineName,
+    int quantity,
+    int reorderLevel,
+    boolean outOfStock
+) {}
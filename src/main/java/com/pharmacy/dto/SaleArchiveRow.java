@@ -0,0 +1,22 @@
+package com.pharmacy.dto;
+
+import com.pharmacy.model.SaleStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Every stored column of a sale, read in (sale date, id) order when a closed month is archived.
+ */
+public record SaleArchiveRow(
+        Long id,
+        Long medicineId,
+        String medicineName,
+        LocalDateTime saleDate,
+        Integer quantity,
+        BigDecimal totalPrice,
+        BigDecimal unitPrice,
+        BigDecimal unitCost,
+        SaleStatus status
+) {
+}
@@ -0,0 +1,17 @@
+package com.pharmacy.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One VALID sale as the columnar analytics store loads it.
+ */
+public record SaleFactRow(
+    Long id,
+    Long medicineId,
+    String medicineName,
+    LocalDateTime saleDate,
+    Integer quantity,
+    BigDecimal totalPrice,
+    BigDecimal unitCost
+) {}
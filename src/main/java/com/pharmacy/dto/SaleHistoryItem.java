@@ -0,0 +1,16 @@
+package com.pharmacy.dto;
+
+import com.pharmacy.model.SaleStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record SaleHistoryItem(
+    Long id,
+    Long medicineId,
+    String medicineName,
+    Integer quantity,
+    BigDecimal totalPrice,
+    SaleStatus status,
+    LocalDateTime saleDate
+) {}
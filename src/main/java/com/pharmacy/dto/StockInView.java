@@ -0,0 +1,18 @@
+package com.pharmacy.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record StockInView(
+    Long id,
+    Long medicineId,
+    String medicineName,
+    String batchNumber,
+    Long supplierId,
+    String supplierName,
+    Integer quantity,
+    BigDecimal unitCost,
+    String invoiceNumber,
+    String note,
+    LocalDateTime receivedAt
+) {}
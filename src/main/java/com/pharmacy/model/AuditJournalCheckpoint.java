@@ -0,0 +1,28 @@
+package com.pharmacy.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "audit_journal_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditJournalCheckpoint {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private long segment;
+
+    @Column(nullable = false)
+    private int position;
+}
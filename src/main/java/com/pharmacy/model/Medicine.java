@@ -1,5 +1,6 @@
 package com.pharmacy.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -18,7 +19,15 @@ import java.time.LocalDate;
 public class Medicine {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "medicines_id")
+    @TableGenerator(
+            name = "medicines_id",
+            table = "id_generators",
+            pkColumnName = "name",
+            valueColumnName = "next_val",
+            pkColumnValue = "medicines",
+            allocationSize = 50
+    )
     private Long id;
 
     @NotBlank(message = "Name is required")
@@ -55,4 +64,9 @@ public class Medicine {
     @Column(nullable = false)
     private boolean active = true;
 
+    @Version
+    @JsonIgnore
+    @Column(nullable = false)
+    private Long version;
+
 }
@@ -1,9 +1,12 @@
 package com.pharmacy.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -15,30 +18,64 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Sale {
 
+    // The table's primary key is (id, sale_date) since V13, so ids are unique only because every writer takes
+    // them from id_generators
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "sales_id")
+    @TableGenerator(
+            name = "sales_id",
+            table = "id_generators",
+            pkColumnName = "name",
+            valueColumnName = "next_val",
+            pkColumnValue = "sales",
+            allocationSize = 50
+    )
     private Long id;
 
-    @ManyToOne
+    // Lazy, so loaded sales do not pull their medicine in; keep it out of toString/equals to avoid loading it there
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "medicine_id", nullable = false)
     private Medicine medicine;
 
     @Column(name = "quantity", nullable = false)
     private Integer quantitySold;
+
+    // Partition key of sales (monthly RANGE), so part of the primary key in MySQL and never null
+    @Column(name = "sale_date", nullable = false)
     private LocalDateTime saleDate;
 
     private BigDecimal totalPrice;
 
+    // Medicine price and cost when the sale was made; totals and profit are computed from these, not the
+    // medicine's current prices
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
+
+    @Column(name = "unit_cost")
+    private BigDecimal unitCost;
+
     @Enumerated(EnumType.STRING)
     private SaleStatus status;
 
+    // False while the in-memory inventory still owes this sale's decrement to medicines.quantity
+    @JsonIgnore
+    @Column(name = "stock_applied", nullable = false)
+    private boolean stockApplied = true;
+
     @PrePersist
     @PreUpdate
     public void calculateTotalPrice() {
         if (status == SaleStatus.REJECTED_EXPIRED || status == SaleStatus.REJECTED_OUT_OF_STOCK) {
             this.totalPrice = BigDecimal.ZERO;
-        } else if (medicine != null && medicine.getPrice() != null && quantitySold != null) {
-            this.totalPrice = medicine.getPrice().multiply(BigDecimal.valueOf(quantitySold));
+        } else if (quantitySold != null) {
+            if (unitPrice == null && medicine != null) {
+                this.unitPrice = medicine.getPrice();
+            }
+            if (unitPrice != null) {
+                this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantitySold));
+            }
         }
     }
 }
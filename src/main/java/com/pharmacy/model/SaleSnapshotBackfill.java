@@ -0,0 +1,30 @@
+package com.pharmacy.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "sale_snapshot_backfill")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleSnapshotBackfill {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    // First sale id not yet backfilled
+    @Column(name = "next_id", nullable = false)
+    private long nextId;
+
+    // Highest sale id that existed before unit_price and unit_cost were recorded
+    @Column(name = "end_id", nullable = false)
+    private long endId;
+}
@@ -0,0 +1,41 @@
+package com.pharmacy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "sales_daily_rollup")
+@IdClass(SalesDailyRollupId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesDailyRollup {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Column(name = "medicine_id")
+    private Long medicineId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private SaleStatus status;
+
+    @Column(name = "sale_count", nullable = false)
+    private long saleCount;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(nullable = false)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private BigDecimal cost;
+}
@@ -0,0 +1,18 @@
+package com.pharmacy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesDailyRollupId implements Serializable {
+
+    private LocalDate day;
+    private Long medicineId;
+    private SaleStatus status;
+}
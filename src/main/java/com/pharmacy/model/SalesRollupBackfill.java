@@ -0,0 +1,31 @@
+package com.pharmacy.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "sales_rollup_backfill")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollupBackfill {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    // First day not yet rebuilt; null before the first month is done
+    @Column(name = "next_day")
+    private LocalDate nextDay;
+
+    @Column(name = "done", nullable = false)
+    private boolean done;
+}
@@ -0,0 +1,7 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.model.AuditJournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AuditJournalCheckpointRepository extends JpaRepository<AuditJournalCheckpoint, Long> {
+}
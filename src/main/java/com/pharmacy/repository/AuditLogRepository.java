@@ -1,26 +1,116 @@
 package com.pharmacy.repository;
 
 import com.pharmacy.model.AuditLog;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
 
+    /**
+     * Newest-first keyset page. Pass the (createdAt, id) of the last row of the previous page as the
+     * cursor; InnoDB secondary indexes carry the primary key, so idx_audit_logs_created_at serves both
+     * the range and the (created_at, id) ordering without a filesort. The actor filter is a prefix
+     * match (case-insensitive under the column collation) so it can use idx_audit_logs_actor; use
+     * {@link #fullTextSearch} for matches anywhere in actor or message.
+     */
     @Query("""
         SELECT a FROM AuditLog a
-        WHERE (:actor IS NULL OR :actor = '' OR LOWER(a.actor) LIKE LOWER(CONCAT('%', :actor, '%')))
+        WHERE (:actor IS NULL OR :actor = '' OR a.actor LIKE CONCAT(:actor, '%'))
           AND (:entityType IS NULL OR :entityType = '' OR a.entityType = :entityType)
           AND (:action IS NULL OR :action = '' OR a.action = :action)
-        ORDER BY a.createdAt DESC
+          AND (:from IS NULL OR a.createdAt >= :from)
+          AND (:to IS NULL OR a.createdAt < :to)
+          AND (:cursorAt IS NULL OR a.createdAt < :cursorAt OR (a.createdAt = :cursorAt AND a.id < :cursorId))
+        ORDER BY a.createdAt DESC, a.id DESC
     """)
     List<AuditLog> search(
             @Param("actor") String actor,
             @Param("entityType") String entityType,
             @Param("action") String action,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
             Pageable pageable
     );
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the whole result
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"))
+    @Query("""
+        SELECT a FROM AuditLog a
+        WHERE (:actor IS NULL OR :actor = '' OR a.actor LIKE CONCAT(:actor, '%'))
+          AND (:entityType IS NULL OR :entityType = '' OR a.entityType = :entityType)
+          AND (:action IS NULL OR :action = '' OR a.action = :action)
+          AND (:from IS NULL OR a.createdAt >= :from)
+          AND (:to IS NULL OR a.createdAt < :to)
+        ORDER BY a.createdAt ASC, a.id ASC
+    """)
+    Stream<AuditLog> streamForExport(
+            @Param("actor") String actor,
+            @Param("entityType") String entityType,
+            @Param("action") String action,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
+    /**
+     * Relevance-ranked search over ft_audit_logs_actor_message. {@code phrase} is a double-quoted boolean-mode
+     * phrase, so ngram matches its n-grams in sequence instead of any one of them.
+     */
+    @Query(value = """
+        SELECT * FROM audit_logs a
+        WHERE MATCH(a.actor, a.message) AGAINST (:phrase IN BOOLEAN MODE)
+          AND (:entityType IS NULL OR :entityType = '' OR a.entity_type = :entityType)
+          AND (:action IS NULL OR :action = '' OR a.action = :action)
+        ORDER BY MATCH(a.actor, a.message) AGAINST (:phrase IN BOOLEAN MODE) DESC,
+                 a.created_at DESC, a.id DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<AuditLog> fullTextSearch(
+            @Param("phrase") String phrase,
+            @Param("entityType") String entityType,
+            @Param("action") String action,
+            @Param("limit") int limit
+    );
+
+    @Query("SELECT MIN(a.createdAt) FROM AuditLog a")
+    LocalDateTime findFirstCreatedAt();
+
+    /**
+     * The first audit log at or after {@code from}, so a walk over months can skip those without logs.
+     */
+    @Query("SELECT MIN(a.createdAt) FROM AuditLog a WHERE a.createdAt >= :from")
+    LocalDateTime findFirstCreatedAtFrom(@Param("from") LocalDateTime from);
+
+    /**
+     * Keyset page of entries in {@code [from, to)} in (createdAt, id) order for archival; start with
+     * {@code afterAt = from, afterId = 0}.
+     */
+    @Query("""
+        SELECT a FROM AuditLog a
+        WHERE a.createdAt >= :from AND a.createdAt < :to
+          AND (a.createdAt > :afterAt OR (a.createdAt = :afterAt AND a.id > :afterId))
+        ORDER BY a.createdAt ASC, a.id ASC
+    """)
+    List<AuditLog> findArchivePage(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterAt") LocalDateTime afterAt,
+            @Param("afterId") long afterId,
+            Pageable pageable
+    );
+
+    @Modifying
+    @Query(value = "DELETE FROM audit_logs WHERE created_at >= :from AND created_at < :to LIMIT :limit",
+            nativeQuery = true)
+    int deleteChunkBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("limit") int limit);
 }
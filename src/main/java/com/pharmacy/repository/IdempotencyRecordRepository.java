@@ -0,0 +1,27 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByScopeKey(String scopeKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.scopeKey = :scopeKey")
+    int deleteByScopeKey(@Param("scopeKey") String scopeKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id")
+    int deleteRecord(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
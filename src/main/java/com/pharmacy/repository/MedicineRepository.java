@@ -1,7 +1,10 @@
 package com.pharmacy.repository;
 
 import com.pharmacy.model.Medicine;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,8 +14,9 @@ import java.util.List;
 @Repository
 public interface MedicineRepository extends JpaRepository<Medicine, Long> {
 
-    @Query("SELECT m FROM Medicine m WHERE m.active = true AND m.quantity > 0 AND m.quantity <= COALESCE(m.reorderLevel, :threshold)")
-    List<Medicine> findLowStockMedicines(@Param("threshold") int threshold);
+    // Ids only, so the scan stays inside idx_medicines_active_quantity; load the rows with findAllById
+    @Query("SELECT m.id FROM Medicine m WHERE m.active = true AND m.quantity > 0 AND m.quantity <= COALESCE(m.reorderLevel, :threshold)")
+    List<Long> findLowStockMedicineIds(@Param("threshold") int threshold);
 
     @Query("SELECT COUNT(m) FROM Medicine m WHERE m.active = true AND m.quantity > 0 AND m.quantity <= COALESCE(m.reorderLevel, :threshold)")
     long countLowStockMedicines(@Param("threshold") int threshold);
@@ -26,6 +30,38 @@ public interface MedicineRepository extends JpaRepository<Medicine, Long> {
 
     java.util.Optional<Medicine> findByIdAndActiveTrue(Long id);
 
+    List<Medicine> findByIdInAndActiveTrue(java.util.Collection<Long> ids);
+
+    // Rows are locked in id order so concurrent baskets cannot deadlock each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM Medicine m WHERE m.id IN :ids AND m.active = true ORDER BY m.id")
+    List<Medicine> findByIdInAndActiveTrueForUpdate(@Param("ids") java.util.Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        UPDATE Medicine m
+        SET m.quantity = m.quantity - :quantity, m.version = m.version + 1
+        WHERE m.id = :id AND m.quantity >= :quantity
+    """)
+    int decrementQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Medicine m SET m.quantity = m.quantity - :quantity, m.version = m.version + 1 WHERE m.id = :id")
+    int applyPendingDecrement(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Stock left once sales not yet written behind to medicines.quantity are taken off
+    @Query("""
+        SELECT m.quantity - COALESCE((
+            SELECT SUM(s.quantitySold) FROM Sale s
+            WHERE s.medicine.id = m.id
+              AND s.status = com.pharmacy.model.SaleStatus.VALID
+              AND s.stockApplied = false
+        ), 0)
+        FROM Medicine m
+        WHERE m.id = :id
+    """)
+    Integer findAvailableQuantity(@Param("id") Long id);
+
     java.util.Optional<Medicine> findByBatchNumber(String batchNumber);
 
     boolean existsByBatchNumber(String batchNumber);
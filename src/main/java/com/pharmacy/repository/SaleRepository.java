@@ -2,84 +2,176 @@ package com.pharmacy.repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import com.pharmacy.dto.SaleArchiveRow;
+import com.pharmacy.dto.SaleFactRow;
+import com.pharmacy.dto.SaleHistoryItem;
 import com.pharmacy.model.Sale;
 import com.pharmacy.model.SaleStatus;
 
 public interface SaleRepository extends JpaRepository<Sale, Long> {
 
-    // ================== FIND ==================
-
-    List<Sale> findByStatus(SaleStatus status);
+    interface HourTotals {
+        Number getHour();
 
-    List<Sale> findByStatusAndSaleDateBetween(SaleStatus status, LocalDateTime start, LocalDateTime end);
+        Number getSaleCount();
 
-    // ================== COUNT ==================
+        Number getQuantity();
 
-    long countByStatus(SaleStatus status);
+        BigDecimal getRevenue();
 
-    long countByStatusAndSaleDateBetween(
-            SaleStatus status,
-            LocalDateTime start,
-            LocalDateTime end
-    );
+        BigDecimal getCost();
+    }
 
-    long countBySaleDateBetween(
-            LocalDateTime start,
-            LocalDateTime end
-    );
-
-
-    // ================== SUM ==================
+    // ================== FIND ==================
 
+    /**
+     * Newest-first keyset page of lean rows, no Sale entities are loaded. Pass the (saleDate, id) of the last
+     * row of the previous page as the cursor; idx_sales_status_date, idx_sales_medicine_date or idx_sales_date
+     * serve the ordering depending on which equality filter is set.
+     */
     @Query("""
-        SELECT COALESCE(SUM(s.totalPrice), 0)
-        FROM Sale s
-        WHERE s.status = :status
-        AND s.saleDate BETWEEN :start AND :end
+        SELECT new com.pharmacy.dto.SaleHistoryItem(
+            s.id, m.id, m.name, s.quantitySold, s.totalPrice, s.status, s.saleDate)
+        FROM Sale s JOIN s.medicine m
+        WHERE (:status IS NULL OR s.status = :status)
+          AND (:medicineId IS NULL OR s.medicine.id = :medicineId)
+          AND (:from IS NULL OR s.saleDate >= :from)
+          AND (:to IS NULL OR s.saleDate < :to)
+          AND (:minAmount IS NULL OR s.totalPrice >= :minAmount)
+          AND (:maxAmount IS NULL OR s.totalPrice <= :maxAmount)
+          AND (:cursorAt IS NULL OR s.saleDate < :cursorAt OR (s.saleDate = :cursorAt AND s.id < :cursorId))
+        ORDER BY s.saleDate DESC, s.id DESC
     """)
-    BigDecimal sumTotalPriceByStatusAndDateBetween(
+    List<SaleHistoryItem> history(
             @Param("status") SaleStatus status,
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end
+            @Param("medicineId") Long medicineId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("minAmount") BigDecimal minAmount,
+            @Param("maxAmount") BigDecimal maxAmount,
+            @Param("cursorAt") LocalDateTime cursorAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
     );
 
+    @Query("SELECT MIN(s.saleDate) FROM Sale s")
+    LocalDateTime findFirstSaleDate();
+
+    /**
+     * The first sale at or after {@code from}, so a walk over months can skip those without sales.
+     */
+    @Query("SELECT MIN(s.saleDate) FROM Sale s WHERE s.saleDate >= :from")
+    LocalDateTime findFirstSaleDateFrom(@Param("from") LocalDateTime from);
+
+    /**
+     * Those of {@code ids} that exist, for telling which sales a snapshot already contains.
+     */
+    @Query("SELECT s.id FROM Sale s WHERE s.id IN :ids")
+    List<Long> findIdsIn(@Param("ids") Collection<Long> ids);
+
+    // ================== ANALYTICS ==================
+
+    @Query(value = """
+        SELECT HOUR(s.sale_date) AS hour,
+               COUNT(*) AS saleCount,
+               COALESCE(SUM(s.quantity), 0) AS quantity,
+               COALESCE(SUM(s.total_price), 0) AS revenue,
+               COALESCE(SUM(s.quantity * s.unit_cost), 0) AS cost
+        FROM sales s
+        WHERE s.status = 'VALID'
+          AND s.sale_date >= :from AND s.sale_date < :to
+        GROUP BY HOUR(s.sale_date)
+    """, nativeQuery = true)
+    List<HourTotals> totalsByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * VALID sales after {@code afterId} in id order, for loading the columnar analytics store page by page.
+     */
     @Query("""
-        SELECT COALESCE(SUM(s.quantitySold * m.costPrice), 0)
-        FROM Sale s
-        JOIN s.medicine m
-        WHERE s.status = :status
-        AND s.saleDate BETWEEN :start AND :end
+        SELECT new com.pharmacy.dto.SaleFactRow(
+            s.id, m.id, m.name, s.saleDate, s.quantitySold, s.totalPrice, s.unitCost)
+        FROM Sale s JOIN s.medicine m
+        WHERE s.status = com.pharmacy.model.SaleStatus.VALID
+          AND s.id > :afterId
+        ORDER BY s.id
     """)
-    BigDecimal sumTotalCostByStatusAndDateBetween(
-            @Param("status") SaleStatus status,
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end
+    List<SaleFactRow> findFactsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // ================== PENDING STOCK ==================
+
+    @Query(value = """
+        SELECT id, medicine_id, quantity
+        FROM sales
+        WHERE stock_applied = 0 AND status = 'VALID'
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<Object[]> lockPendingStock(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Sale s SET s.stockApplied = true WHERE s.id IN :ids")
+    int markStockApplied(@Param("ids") List<Long> ids);
+
+    // ================== PRICE SNAPSHOT BACKFILL ==================
+
+    /**
+     * Fills unit_price and unit_cost for sales in {@code [fromId, toId)} written before they were recorded.
+     * A valid sale's unit price comes from its own total; the current medicine cost is the only cost left.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE sales s
+        JOIN medicines m ON m.id = s.medicine_id
+        SET s.unit_price = CASE
+                WHEN s.status = 'VALID' AND s.quantity > 0 AND s.total_price IS NOT NULL
+                THEN s.total_price / s.quantity
+                ELSE m.price
+            END,
+            s.unit_cost = m.cost_price
+        WHERE s.id >= :fromId AND s.id < :toId
+          AND s.unit_cost IS NULL
+    """, nativeQuery = true)
+    int backfillPriceSnapshots(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // ================== ARCHIVAL ==================
+
+    /**
+     * Keyset page of sales in {@code [from, to)} in (saleDate, id) order, after the (afterAt, afterId) of the
+     * previous page; start with {@code afterAt = from, afterId = 0}. Served by idx_sales_date.
+     */
+    @Query("""
+        SELECT new com.pharmacy.dto.SaleArchiveRow(
+            s.id, m.id, m.name, s.saleDate, s.quantitySold, s.totalPrice, s.unitPrice, s.unitCost, s.status)
+        FROM Sale s JOIN s.medicine m
+        WHERE s.saleDate >= :from AND s.saleDate < :to
+          AND (s.saleDate > :afterAt OR (s.saleDate = :afterAt AND s.id > :afterId))
+        ORDER BY s.saleDate, s.id
+    """)
+    List<SaleArchiveRow> findArchivePage(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterAt") LocalDateTime afterAt,
+            @Param("afterId") long afterId,
+            Pageable pageable
     );
 
     @Query("""
-        SELECT new com.pharmacy.dto.ProfitByMedicineDto(
-            m.id,
-            m.name,
-            SUM(s.quantitySold),
-            COALESCE(SUM(s.totalPrice), 0),
-            COALESCE(SUM(s.quantitySold * m.costPrice), 0)
-        )
-        FROM Sale s
-        JOIN s.medicine m
-        WHERE s.status = :status
-        AND s.saleDate BETWEEN :start AND :end
-        GROUP BY m.id, m.name
-        ORDER BY (COALESCE(SUM(s.totalPrice), 0) - COALESCE(SUM(s.quantitySold * m.costPrice), 0)) DESC
+        SELECT COUNT(s) FROM Sale s
+        WHERE s.stockApplied = false AND s.saleDate >= :from AND s.saleDate < :to
     """)
-    List<com.pharmacy.dto.ProfitByMedicineDto> findProfitByMedicine(
-            @Param("status") SaleStatus status,
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end
-    );
+    long countStockPendingBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "DELETE FROM sales WHERE sale_date >= :from AND sale_date < :to LIMIT :limit", nativeQuery = true)
+    int deleteChunkBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("limit") int limit);
 }
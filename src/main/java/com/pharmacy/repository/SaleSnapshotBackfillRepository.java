@@ -0,0 +1,18 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.model.SaleSnapshotBackfill;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SaleSnapshotBackfillRepository extends JpaRepository<SaleSnapshotBackfill, Long> {
+
+    // Locked so two instances starting together never fill the same chunk
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM SaleSnapshotBackfill b WHERE b.id = :id")
+    Optional<SaleSnapshotBackfill> lockById(@Param("id") Long id);
+}
@@ -0,0 +1,178 @@
+package com.pharmacy.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.model.SalesDailyRollup;
+import com.pharmacy.model.SalesDailyRollupId;
+
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, SalesDailyRollupId> {
+
+    interface StatusTotals {
+        SaleStatus getStatus();
+
+        long getSaleCount();
+
+        long getQuantity();
+
+        BigDecimal getRevenue();
+
+        BigDecimal getCost();
+    }
+
+    interface DayTotals {
+        LocalDate getDay();
+
+        long getSaleCount();
+
+        BigDecimal getRevenue();
+
+        BigDecimal getCost();
+    }
+
+    interface DayMedicineTotals {
+        LocalDate getDay();
+
+        Long getMedicineId();
+
+        String getMedicineName();
+
+        long getQuantity();
+
+        BigDecimal getRevenue();
+
+        BigDecimal getCost();
+    }
+
+    // ================== MAINTENANCE ==================
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO sales_daily_rollup (day, medicine_id, status, sale_count, quantity, revenue, cost)
+        VALUES (:day, :medicineId, :status, :saleCount, :quantity, :revenue, :cost)
+        ON DUPLICATE KEY UPDATE
+            sale_count = sale_count + VALUES(sale_count),
+            quantity = quantity + VALUES(quantity),
+            revenue = revenue + VALUES(revenue),
+            cost = cost + VALUES(cost)
+    """, nativeQuery = true)
+    void increment(
+            @Param("day") LocalDate day,
+            @Param("medicineId") Long medicineId,
+            @Param("status") String status,
+            @Param("saleCount") long saleCount,
+            @Param("quantity") long quantity,
+            @Param("revenue") BigDecimal revenue,
+            @Param("cost") BigDecimal cost
+    );
+
+    @Modifying
+    @Query(value = "DELETE FROM sales_daily_rollup WHERE day = :day", nativeQuery = true)
+    int deleteDay(@Param("day") LocalDate day);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO sales_daily_rollup (day, medicine_id, status, sale_count, quantity, revenue, cost)
+        SELECT DATE(s.sale_date), s.medicine_id, s.status, COUNT(*), SUM(s.quantity),
+               COALESCE(SUM(s.total_price), 0),
+               COALESCE(SUM(CASE WHEN s.status = 'VALID' THEN s.quantity * s.unit_cost ELSE 0 END), 0)
+        FROM sales s
+        WHERE s.sale_date >= :start AND s.sale_date < :end
+          AND s.status IS NOT NULL
+        GROUP BY DATE(s.sale_date), s.medicine_id, s.status
+    """, nativeQuery = true)
+    int rebuildRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // ================== REPORTING ==================
+
+    @Query("""
+        SELECT r.status AS status,
+               SUM(r.saleCount) AS saleCount,
+               SUM(r.quantity) AS quantity,
+               SUM(r.revenue) AS revenue,
+               SUM(r.cost) AS cost
+        FROM SalesDailyRollup r
+        GROUP BY r.status
+    """)
+    List<StatusTotals> totalsByStatus();
+
+    @Query("""
+        SELECT r.status AS status,
+               SUM(r.saleCount) AS saleCount,
+               SUM(r.quantity) AS quantity,
+               SUM(r.revenue) AS revenue,
+               SUM(r.cost) AS cost
+        FROM SalesDailyRollup r
+        WHERE r.day BETWEEN :start AND :end
+        GROUP BY r.status
+    """)
+    List<StatusTotals> totalsByStatus(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Query("""
+        SELECT r.day AS day,
+               SUM(r.saleCount) AS saleCount,
+               SUM(r.revenue) AS revenue,
+               SUM(r.cost) AS cost
+        FROM SalesDailyRollup r
+        WHERE r.status = :status
+        AND r.day BETWEEN :start AND :end
+        GROUP BY r.day
+        ORDER BY r.day
+    """)
+    List<DayTotals> totalsByDay(
+            @Param("status") SaleStatus status,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+
+    @Query("""
+        SELECT new com.pharmacy.dto.ProfitByMedicineDto(
+            m.id,
+            m.name,
+            SUM(r.quantity),
+            SUM(r.revenue),
+            SUM(r.cost)
+        )
+        FROM SalesDailyRollup r
+        JOIN Medicine m ON m.id = r.medicineId
+        WHERE r.status = :status
+        AND r.day BETWEEN :start AND :end
+        GROUP BY m.id, m.name
+        ORDER BY (SUM(r.revenue) - SUM(r.cost)) DESC, m.id
+    """)
+    List<ProfitByMedicineDto> findProfitByMedicine(
+            @Param("status") SaleStatus status,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            Pageable pageable
+    );
+
+    @Query("""
+        SELECT r.day AS day,
+               m.id AS medicineId,
+               m.name AS medicineName,
+               SUM(r.quantity) AS quantity,
+               SUM(r.revenue) AS revenue,
+               SUM(r.cost) AS cost
+        FROM SalesDailyRollup r
+        JOIN Medicine m ON m.id = r.medicineId
+        WHERE r.status = :status
+        AND r.day BETWEEN :start AND :end
+        GROUP BY r.day, m.id, m.name
+    """)
+    List<DayMedicineTotals> totalsByDayAndMedicine(
+            @Param("status") SaleStatus status,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+}
@@ -0,0 +1,7 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.model.SalesRollupBackfill;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SalesRollupBackfillRepository extends JpaRepository<SalesRollupBackfill, Long> {
+}
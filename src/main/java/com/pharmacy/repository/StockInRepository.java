@@ -1,10 +1,26 @@
 package com.pharmacy.repository;
 
+import com.pharmacy.dto.StockInView;
 import com.pharmacy.model.StockIn;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface StockInRepository extends JpaRepository<StockIn, Long> {
-    List<StockIn> findAllByOrderByReceivedAtDesc();
+
+    /**
+     * Newest first, as flat rows from one joined select instead of StockIn entities and their graphs. Always
+     * pass a page size: without a limit the ordering is a filesort over the whole table instead of a walk down
+     * idx_stock_ins_received_at.
+     */
+    @Query("""
+        SELECT new com.pharmacy.dto.StockInView(
+            si.id, m.id, m.name, m.batchNumber, s.id, s.name,
+            si.quantity, si.unitCost, si.invoiceNumber, si.note, si.receivedAt)
+        FROM StockIn si JOIN si.medicine m JOIN si.supplier s
+        ORDER BY si.receivedAt DESC, si.id DESC
+    """)
+    List<StockInView> findRecentViews(Pageable pageable);
 }
@@ -1,5 +1,6 @@
 package com.pharmacy.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -60,6 +61,8 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(pharmacyCorsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())    // disable CSRF
                 .authorizeHttpRequests(auth -> auth
+                                // The initial request of an async response (the live SSE stream) is already authorized
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .requestMatchers(
                                         "/api/auth/**",
                                         "/api/admin/bootstrap/**",
@@ -69,6 +72,7 @@ public class SecurityConfig {
                                 ).permitAll()
                                 // Role-based access rules
                                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                                .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                                 .requestMatchers("/api/user/**").hasAnyRole("ADMIN", "CASHIER")
                                 .anyRequest().authenticated()
                 )
@@ -99,8 +103,8 @@ public class SecurityConfig {
             config.setAllowedOrigins(origins);
         }
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "Idempotency-Key"));
+        config.setExposedHeaders(List.of("Authorization", "X-Next-Cursor"));
         config.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
@@ -3,12 +3,8 @@ package com.pharmacy.service;
 import com.pharmacy.dto.AdminDashboardDto;
 import com.pharmacy.model.SaleStatus;
 import com.pharmacy.repository.MedicineRepository;
-import com.pharmacy.repository.SaleRepository;
 import com.pharmacy.repository.UserRepository;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
-
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -17,7 +13,8 @@ public class AdminDashboardService {
 
     private final UserRepository userRepo;
     private final MedicineRepository medicineRepo;
-    private final SaleRepository saleRepo;
+    private final SalesSummaryEngine salesSummaryEngine;
+    private final IntradaySalesCounters intradaySalesCounters;
 
     @Value("${pharmacy.low-stock-threshold:10}")
     private int lowStockThreshold;
@@ -25,31 +22,30 @@ public class AdminDashboardService {
     public AdminDashboardService(
             UserRepository userRepo,
             MedicineRepository medicineRepo,
-            SaleRepository saleRepo) {
+            SalesSummaryEngine salesSummaryEngine,
+            IntradaySalesCounters intradaySalesCounters) {
 
         this.userRepo = userRepo;
         this.medicineRepo = medicineRepo;
-        this.saleRepo = saleRepo;
+        this.salesSummaryEngine = salesSummaryEngine;
+        this.intradaySalesCounters = intradaySalesCounters;
     }
 
     public AdminDashboardDto getDashboardCounts() {
 
-        double todaySalesAmount = saleRepo.sumTotalPriceByStatusAndDateBetween(
-                SaleStatus.VALID,
-                LocalDate.now().atStartOfDay(),
-                LocalDate.now().atTime(LocalTime.MAX)
-        ).doubleValue();
+        SalesSummaryEngine.Totals allTime = salesSummaryEngine.allTime();
+        double todaySalesAmount = intradaySalesCounters.today().revenueCents() / 100.0;
 
-        long completedSales = saleRepo.countByStatus(SaleStatus.VALID);
-        long cancelledSales = saleRepo.countByStatus(SaleStatus.REJECTED_EXPIRED)
-                + saleRepo.countByStatus(SaleStatus.REJECTED_OUT_OF_STOCK);
+        long completedSales = allTime.count(SaleStatus.VALID);
+        long cancelledSales = allTime.count(SaleStatus.REJECTED_EXPIRED)
+                + allTime.count(SaleStatus.REJECTED_OUT_OF_STOCK);
 
         return new AdminDashboardDto(
                 userRepo.count(),
                 medicineRepo.countByActiveTrue(),
                 medicineRepo.countLowStockMedicines(lowStockThreshold),
                 medicineRepo.countOutOfStockMedicines(),
-                saleRepo.count(),
+                allTime.totalCount(),
                 todaySalesAmount,
                 completedSales,
                 cancelledSales
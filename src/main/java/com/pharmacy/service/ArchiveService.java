@@ -0,0 +1,188 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleArchiveRow;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditLogRepository;
+import com.pharmacy.repository.SaleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Moves closed months of {@code sales} and {@code audit_logs} out of MySQL into {@link SalesArchive} files,
+ * oldest month first, then deletes them from the live tables in chunks of {@code delete-chunk-size}, one
+ * transaction per chunk. A month's file is written and moved into place before any of its rows are deleted,
+ * and a month whose file exists is only deleted, so an interrupted run resumes where it stopped. Months
+ * without rows are skipped and get no file; V13 dated undated sales 1970-01-01, so those (the p_history
+ * partition) archive as a month of their own rather than as the first of decades of empty files.
+ * Totals in {@code sales_daily_rollup} are kept, so profit summaries keep covering archived months.
+ */
+@Service
+@ConditionalOnProperty(name = "pharmacy.archive.enabled", havingValue = "true")
+public class ArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+
+    private final SalesArchive salesArchive;
+    private final SaleRepository saleRepository;
+    private final AuditLogRepository auditLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int keepMonths;
+    private final int pageSize;
+    private final int deleteChunkSize;
+    private final Supplier<YearMonth> clock;
+
+    public ArchiveService(SalesArchive salesArchive,
+                          SaleRepository saleRepository,
+                          AuditLogRepository auditLogRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${pharmacy.archive.keep-months:12}") int keepMonths,
+                          @Value("${pharmacy.archive.page-size:10000}") int pageSize,
+                          @Value("${pharmacy.archive.delete-chunk-size:5000}") int deleteChunkSize) {
+        this(salesArchive, saleRepository, auditLogRepository, transactionManager, keepMonths, pageSize,
+                deleteChunkSize, YearMonth::now);
+    }
+
+    ArchiveService(SalesArchive salesArchive,
+                   SaleRepository saleRepository,
+                   AuditLogRepository auditLogRepository,
+                   PlatformTransactionManager transactionManager,
+                   int keepMonths,
+                   int pageSize,
+                   int deleteChunkSize,
+                   Supplier<YearMonth> clock) {
+        this.salesArchive = salesArchive;
+        this.saleRepository = saleRepository;
+        this.auditLogRepository = auditLogRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.keepMonths = Math.max(1, keepMonths);
+        this.pageSize = Math.max(1, pageSize);
+        this.deleteChunkSize = Math.max(1, deleteChunkSize);
+        this.clock = clock;
+    }
+
+    @Scheduled(cron = "${pharmacy.archive.cron:0 0 2 * * *}")
+    public void archiveClosedMonths() {
+        YearMonth before = clock.get().minusMonths(keepMonths);
+        archiveSales(before);
+        archiveAuditLogs(before);
+    }
+
+    /**
+     * Archives every month of sales before {@code before} that has any. Stops at a month still holding sales whose stock
+     * decrement has not reached medicines. Returns the months archived or finished.
+     */
+    public synchronized List<YearMonth> archiveSales(YearMonth before) {
+        List<YearMonth> done = new ArrayList<>();
+        LocalDateTime next = saleRepository.findFirstSaleDate();
+        while (next != null && YearMonth.from(next).isBefore(before)) {
+            YearMonth month = YearMonth.from(next);
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (!salesArchive.isArchived(month)) {
+                long pending = saleRepository.countStockPendingBetween(from, to);
+                if (pending > 0) {
+                    log.warn("Not archiving sales for {}: {} sales still owe their stock decrement", month, pending);
+                    break;
+                }
+                int rows = writeSales(month, from, to);
+                salesArchive.register(month);
+                log.info("Archived {} sales for {} to {}", rows, month, salesArchive.salesFile(month));
+            }
+            long deleted = deleteInChunks(() -> saleRepository.deleteChunkBetween(from, to, deleteChunkSize));
+            if (deleted > 0) {
+                log.info("Deleted {} archived sales for {}", deleted, month);
+            }
+            done.add(month);
+            next = saleRepository.findFirstSaleDateFrom(to);
+        }
+        return done;
+    }
+
+    /**
+     * Archives every month of audit logs before {@code before} that has any. Returns the months archived or finished.
+     */
+    public synchronized List<YearMonth> archiveAuditLogs(YearMonth before) {
+        List<YearMonth> done = new ArrayList<>();
+        LocalDateTime next = auditLogRepository.findFirstCreatedAt();
+        while (next != null && YearMonth.from(next).isBefore(before)) {
+            YearMonth month = YearMonth.from(next);
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (!Files.exists(salesArchive.auditFile(month))) {
+                int rows = writeAuditLogs(month, from, to);
+                log.info("Archived {} audit logs for {} to {}", rows, month, salesArchive.auditFile(month));
+            }
+            long deleted = deleteInChunks(() -> auditLogRepository.deleteChunkBetween(from, to, deleteChunkSize));
+            if (deleted > 0) {
+                log.info("Deleted {} archived audit logs for {}", deleted, month);
+            }
+            done.add(month);
+            next = auditLogRepository.findFirstCreatedAtFrom(to);
+        }
+        return done;
+    }
+
+    private int writeSales(YearMonth month, LocalDateTime from, LocalDateTime to) {
+        SalesArchiveFile.Writer writer = new SalesArchiveFile.Writer(month);
+        LocalDateTime afterAt = from;
+        long afterId = 0;
+        while (true) {
+            List<SaleArchiveRow> page = saleRepository.findArchivePage(from, to, afterAt, afterId,
+                    PageRequest.of(0, pageSize));
+            page.forEach(writer::append);
+            if (page.size() < pageSize) {
+                break;
+            }
+            SaleArchiveRow last = page.get(page.size() - 1);
+            afterAt = last.saleDate();
+            afterId = last.id();
+        }
+        writer.writeTo(salesArchive.salesFile(month));
+        return writer.rows();
+    }
+
+    private int writeAuditLogs(YearMonth month, LocalDateTime from, LocalDateTime to) {
+        AuditArchiveFile.Writer writer = new AuditArchiveFile.Writer(month);
+        LocalDateTime afterAt = from;
+        long afterId = 0;
+        while (true) {
+            List<AuditLog> page = auditLogRepository.findArchivePage(from, to, afterAt, afterId,
+                    PageRequest.of(0, pageSize));
+            page.forEach(writer::append);
+            if (page.size() < pageSize) {
+                break;
+            }
+            AuditLog last = page.get(page.size() - 1);
+            afterAt = last.getCreatedAt();
+            afterId = last.getId();
+        }
+        writer.writeTo(salesArchive.auditFile(month));
+        return writer.rows();
+    }
+
+    // One short transaction per chunk, so row locks and undo stay small on a busy table
+    private long deleteInChunks(Supplier<Integer> chunk) {
+        long deleted = 0;
+        while (true) {
+            Integer rows = transactionTemplate.execute(status -> chunk.get());
+            if (rows == null || rows == 0) {
+                return deleted;
+            }
+            deleted += rows;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Takes audit inserts off the request path. Entries are queued after the caller's transaction commits
+ * and a background thread writes them as batched multi-row inserts every {@code flush-interval-ms} or
+ * {@code max-batch-size} entries. When the buffer is full the {@code overflow-policy} decides whether
+ * callers block, entries are dropped (and counted), or entries are spilled to a local file that is
+ * loaded again once the database keeps up.
+ */
+@Component
+@ConditionalOnProperty(name = "pharmacy.audit.writer", havingValue = "async")
+public class AsyncAuditLogWriter implements AuditLogWriter {
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP,
+        SPILL
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncAuditLogWriter.class);
+
+    private final AuditLogRepository auditLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<AuditLog> buffer;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillFile;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final Object spillLock = new Object();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public AsyncAuditLogWriter(AuditLogRepository auditLogRepository,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${pharmacy.audit.async.capacity:10000}") int capacity,
+                               @Value("${pharmacy.audit.async.max-batch-size:500}") int maxBatchSize,
+                               @Value("${pharmacy.audit.async.flush-interval-ms:200}") long flushIntervalMs,
+                               @Value("${pharmacy.audit.async.overflow-policy:block}") String overflowPolicy,
+                               @Value("${pharmacy.audit.async.spill-file:audit-spill.ndjson}") String spillFile) {
+        this.auditLogRepository = auditLogRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+        this.spillFile = Path.of(spillFile);
+    }
+
+    @PostConstruct
+    public void start() {
+        replaySpill();
+        running = true;
+        flusher = new Thread(this::flushLoop, "audit-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        List<AuditLog> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Audit writer stopped: {} written, {} dropped, {} spilled", written.get(), dropped.get(), spilled.get());
+    }
+
+    @Override
+    public void write(List<AuditLog> entries) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(entries);
+            return;
+        }
+        // Rolled-back work must not leave audit rows behind
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(entries);
+            }
+        });
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    private void enqueue(List<AuditLog> entries) {
+        for (AuditLog entry : entries) {
+            switch (overflowPolicy) {
+                case BLOCK -> {
+                    try {
+                        buffer.put(entry);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        spill(List.of(entry));
+                    }
+                }
+                case DROP -> {
+                    if (!buffer.offer(entry)) {
+                        long total = dropped.incrementAndGet();
+                        if (total % 1000 == 1) {
+                            log.warn("Audit buffer full, {} entries dropped so far", total);
+                        }
+                    }
+                }
+                case SPILL -> {
+                    if (!buffer.offer(entry)) {
+                        spill(List.of(entry));
+                    }
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running || !buffer.isEmpty()) {
+            try {
+                AuditLog first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpill();
+                    continue;
+                }
+                List<AuditLog> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < maxBatchSize) {
+                    buffer.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    AuditLog next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Audit flusher failed", ex);
+            }
+        }
+    }
+
+    private void flush(List<AuditLog> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> auditLogRepository.saveAll(batch));
+            written.addAndGet(batch.size());
+        } catch (RuntimeException ex) {
+            log.error("Failed to write {} audit entries, spilling to {}", batch.size(), spillFile, ex);
+            spill(batch);
+        }
+    }
+
+    private void spill(List<AuditLog> entries) {
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditLog entry : entries) {
+                    entry.setId(null);
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.newLine();
+                }
+                spilled.addAndGet(entries.size());
+            } catch (IOException ex) {
+                dropped.addAndGet(entries.size());
+                log.error("Could not spill {} audit entries, they are lost", entries.size(), ex);
+            }
+        }
+    }
+
+    /**
+     * Loads spilled entries back in batches. The number of lines already committed is kept beside the file
+     * after each batch, so a replay that fails part way resumes after the last committed batch; only a
+     * crash between a batch's commit and that write loads the batch twice.
+     */
+    void replaySpill() {
+        synchronized (spillLock) {
+            // Move the file aside first so entries spilled while we load it are not lost
+            Path replaying = spillFile.resolveSibling(spillFile.getFileName() + ".replaying");
+            Path replayed = spillFile.resolveSibling(spillFile.getFileName() + ".replayed");
+            if (!Files.exists(spillFile) && !Files.exists(replaying)) {
+                return;
+            }
+            try {
+                if (!Files.exists(replaying)) {
+                    // Left over from a replay that finished just before deleting it
+                    Files.deleteIfExists(replayed);
+                    Files.move(spillFile, replaying, StandardCopyOption.ATOMIC_MOVE);
+                }
+                long committed = Files.exists(replayed)
+                        ? Long.parseLong(Files.readString(replayed, StandardCharsets.UTF_8).trim())
+                        : 0;
+                List<String> lines = Files.readAllLines(replaying, StandardCharsets.UTF_8);
+                List<AuditLog> batch = new ArrayList<>(maxBatchSize);
+                for (int line = (int) committed; line < lines.size(); line++) {
+                    if (!lines.get(line).isBlank()) {
+                        batch.add(objectMapper.readValue(lines.get(line), AuditLog.class));
+                    }
+                    if (batch.size() == maxBatchSize || line == lines.size() - 1) {
+                        saveReplayed(batch);
+                        markReplayed(replayed, line + 1);
+                        batch = new ArrayList<>(maxBatchSize);
+                    }
+                }
+                Files.delete(replaying);
+                Files.deleteIfExists(replayed);
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Could not replay spilled audit entries from {}, will retry: {}", replaying, ex.getMessage());
+            }
+        }
+    }
+
+    private static void markReplayed(Path replayed, long lines) throws IOException {
+        Path next = replayed.resolveSibling(replayed.getFileName() + ".tmp");
+        Files.writeString(next, Long.toString(lines), StandardCharsets.UTF_8);
+        Files.move(next, replayed, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveReplayed(List<AuditLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> auditLogRepository.saveAll(batch));
+        written.addAndGet(batch.size());
+    }
+}
@@ -0,0 +1,40 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Medicine;
+import com.pharmacy.repository.MedicineRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "pharmacy.sales.stock-strategy", havingValue = "atomic", matchIfMissing = true)
+public class AtomicStockDecrementStrategy implements StockDecrementStrategy {
+
+    private final MedicineRepository medicineRepository;
+    private final EntityManager entityManager;
+
+    public AtomicStockDecrementStrategy(MedicineRepository medicineRepository,
+                                        EntityManager entityManager) {
+        this.medicineRepository = medicineRepository;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Medicine> loadForSale(Collection<Long> medicineIds) {
+        return medicineRepository.findByIdInAndActiveTrue(medicineIds);
+    }
+
+    @Override
+    public boolean tryDecrement(Medicine medicine, int quantity) {
+        // The conditional UPDATE is the only stock check; the loaded quantity may already be stale
+        if (medicineRepository.decrementQuantity(medicine.getId(), quantity) == 0) {
+            return false;
+        }
+        // We hold the row lock until commit, so this read is the exact remaining stock
+        entityManager.refresh(medicine);
+        return true;
+    }
+}
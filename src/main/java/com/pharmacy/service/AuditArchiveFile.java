@@ -0,0 +1,177 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditLog;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One closed month of audit logs in the same layout as {@link SalesArchiveFile}: rows in (created_at, id)
+ * order, actor, action and entity type dictionary-encoded, timestamps and ids as deltas.
+ *
+ * <pre>
+ * int magic, byte version, int year, byte month, varint rows
+ * dictionaries: actors, actions, entity types
+ * column blocks: id, created_at, actor, action, entity_type, entity_id, message
+ * </pre>
+ */
+final class AuditArchiveFile {
+
+    private static final int MAGIC = 0x50414131;
+    private static final byte VERSION = 1;
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final ColumnCodec.Column column = new ColumnCodec.Column();
+
+        private void add(String value) {
+            column.varLong(codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            }));
+        }
+
+        private void writeValues(ColumnCodec.Column out) {
+            out.varLong(values.size());
+            values.forEach(out::string);
+        }
+    }
+
+    /**
+     * Encodes audit logs appended in (created_at, id) order.
+     */
+    static final class Writer {
+        private final YearMonth month;
+        private final Dictionary actors = new Dictionary();
+        private final Dictionary actions = new Dictionary();
+        private final Dictionary entityTypes = new Dictionary();
+        private final ColumnCodec.Column id = new ColumnCodec.Column();
+        private final ColumnCodec.Column createdAt = new ColumnCodec.Column();
+        private final ColumnCodec.Column entityId = new ColumnCodec.Column();
+        private final ColumnCodec.Column message = new ColumnCodec.Column();
+        private int rows;
+        private long lastId;
+        private long lastSecond;
+
+        Writer(YearMonth month) {
+            this.month = month;
+            this.lastSecond = month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        }
+
+        void append(AuditLog entry) {
+            long second = entry.getCreatedAt().toEpochSecond(ZoneOffset.UTC);
+            if (!YearMonth.from(entry.getCreatedAt()).equals(month) || second < lastSecond) {
+                throw new IllegalArgumentException("Audit log " + entry.getId() + " is out of order for " + month);
+            }
+            id.signed(entry.getId() - lastId);
+            createdAt.varLong(second - lastSecond);
+            actors.add(entry.getActor());
+            actions.add(entry.getAction());
+            entityTypes.add(entry.getEntityType());
+            entityId.nullableSigned(entry.getEntityId());
+            message.string(entry.getMessage());
+            lastId = entry.getId();
+            lastSecond = second;
+            rows++;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        void writeTo(Path file) {
+            ColumnCodec.writeAtomically(file, out -> {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(month.getYear());
+                out.writeByte(month.getMonthValue());
+                ColumnCodec.writeVarLong(out, rows);
+                ColumnCodec.Column dictionaries = new ColumnCodec.Column();
+                actors.writeValues(dictionaries);
+                actions.writeValues(dictionaries);
+                entityTypes.writeValues(dictionaries);
+                dictionaries.writeTo(out);
+                for (ColumnCodec.Column column : List.of(id, createdAt, actors.column, actions.column,
+                        entityTypes.column, entityId, message)) {
+                    column.writeTo(out);
+                }
+            });
+        }
+    }
+
+    private AuditArchiveFile() {
+    }
+
+    static List<AuditLog> read(Path file) {
+        try (DataInputStream in = ColumnCodec.open(file)) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not an audit archive file");
+            }
+            YearMonth month = YearMonth.of(in.readInt(), in.readByte());
+            int rows = (int) ColumnCodec.readVarLong(in);
+            ColumnCodec.readBlockLength(in);
+            String[] actors = readValues(in);
+            String[] actions = readValues(in);
+            String[] entityTypes = readValues(in);
+
+            List<AuditLog> entries = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                entries.add(new AuditLog());
+            }
+            ColumnCodec.readBlockLength(in);
+            long id = 0;
+            for (AuditLog entry : entries) {
+                id += ColumnCodec.readSigned(in);
+                entry.setId(id);
+            }
+            ColumnCodec.readBlockLength(in);
+            long second = month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            for (AuditLog entry : entries) {
+                second += ColumnCodec.readVarLong(in);
+                entry.setCreatedAt(LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC));
+            }
+            ColumnCodec.readBlockLength(in);
+            for (AuditLog entry : entries) {
+                entry.setActor(actors[(int) ColumnCodec.readVarLong(in)]);
+            }
+            ColumnCodec.readBlockLength(in);
+            for (AuditLog entry : entries) {
+                entry.setAction(actions[(int) ColumnCodec.readVarLong(in)]);
+            }
+            ColumnCodec.readBlockLength(in);
+            for (AuditLog entry : entries) {
+                entry.setEntityType(entityTypes[(int) ColumnCodec.readVarLong(in)]);
+            }
+            ColumnCodec.readBlockLength(in);
+            for (AuditLog entry : entries) {
+                long entityId = ColumnCodec.readNullableSigned(in, Long.MIN_VALUE);
+                entry.setEntityId(entityId == Long.MIN_VALUE ? null : entityId);
+            }
+            ColumnCodec.readBlockLength(in);
+            for (AuditLog entry : entries) {
+                entry.setMessage(ColumnCodec.readString(in));
+            }
+            return entries;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read " + file, ex);
+        }
+    }
+
+    private static String[] readValues(DataInputStream in) throws IOException {
+        String[] values = new String[(int) ColumnCodec.readVarLong(in)];
+        for (int code = 0; code < values.length; code++) {
+            values[code] = ColumnCodec.readString(in);
+        }
+        return values;
+    }
+}
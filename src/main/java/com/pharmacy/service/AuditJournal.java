@@ -0,0 +1,296 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only audit journal made of fixed-size memory-mapped segments ({@code segment-<seq>.log}).
+ * Each record is {@code [int length][int crc32][payload]}; a zero length marks the end of a segment.
+ * On open the last segment is scanned and a torn or corrupt tail is cut off at the last valid record.
+ */
+public class AuditJournal implements Closeable {
+
+    public record Position(long segment, int offset) {
+    }
+
+    public record Batch(List<AuditLog> entries, Position next) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AuditJournal.class);
+    private static final int HEADER_BYTES = 8;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long activeSegment;
+    private int writePosition;
+
+    public AuditJournal(Path directory, int segmentSize, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        List<Long> existing = segments();
+        if (existing.isEmpty()) {
+            openSegment(1);
+        } else {
+            openSegment(existing.get(existing.size() - 1));
+            writePosition = scan(buffer, 0, buffer.capacity());
+            if (writePosition + 4 <= buffer.capacity()) {
+                buffer.putInt(writePosition, 0);
+            }
+        }
+    }
+
+    /**
+     * Appends the entries in order. All of them are encoded and checked against the segment size first, so a
+     * list holding an oversized entry is rejected with none of it written.
+     */
+    public synchronized void append(List<AuditLog> entries) {
+        List<byte[]> payloads = new ArrayList<>(entries.size());
+        for (AuditLog entry : entries) {
+            byte[] payload = encode(entry);
+            int recordBytes = HEADER_BYTES + payload.length;
+            if (recordBytes > segmentSize) {
+                throw new IllegalArgumentException("Audit record of " + recordBytes + " bytes exceeds segment size");
+            }
+            payloads.add(payload);
+        }
+        for (byte[] payload : payloads) {
+            int recordBytes = HEADER_BYTES + payload.length;
+            if (writePosition + recordBytes > buffer.capacity()) {
+                roll();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.put(writePosition + HEADER_BYTES, payload);
+            buffer.putInt(writePosition + 4, (int) crc.getValue());
+            // Length goes last so a torn write never looks like a complete record
+            buffer.putInt(writePosition, payload.length);
+            if (fsync) {
+                buffer.force(writePosition, recordBytes);
+            }
+            writePosition += recordBytes;
+        }
+    }
+
+    public synchronized Position head() {
+        return new Position(activeSegment, writePosition);
+    }
+
+    public Position first() {
+        List<Long> existing = segments();
+        return new Position(existing.isEmpty() ? activeSegment : existing.get(0), 0);
+    }
+
+    /**
+     * Reads up to {@code max} records starting at {@code from}, moving on to later segments as each one is
+     * exhausted. The returned position is where the next read should start.
+     */
+    public Batch read(Position from, int max) {
+        Position head = head();
+        List<AuditLog> entries = new ArrayList<>();
+        long segment = from.segment();
+        int offset = from.offset();
+        while (entries.size() < max && segment <= head.segment()) {
+            Path path = segmentPath(segment);
+            if (Files.exists(path)) {
+                try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+                    MappedByteBuffer view = reader.map(FileChannel.MapMode.READ_ONLY, 0, reader.size());
+                    int limit = segment == head.segment() ? head.offset() : view.capacity();
+                    while (entries.size() < max) {
+                        int length = validLength(view, offset, limit);
+                        if (length < 0) {
+                            break;
+                        }
+                        entries.add(decode(view, offset + HEADER_BYTES, length));
+                        offset += HEADER_BYTES + length;
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            if (entries.size() >= max || segment == head.segment()) {
+                break;
+            }
+            segment++;
+            offset = 0;
+        }
+        return new Batch(entries, new Position(segment, offset));
+    }
+
+    /**
+     * Removes segments that lie entirely before {@code position}.
+     */
+    public void deleteBefore(Position position) {
+        for (Long segment : segments()) {
+            if (segment >= position.segment()) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segmentPath(segment));
+            } catch (IOException ex) {
+                log.warn("Could not delete indexed audit segment {}: {}", segment, ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void roll() {
+        if (writePosition + 4 <= buffer.capacity()) {
+            buffer.putInt(writePosition, 0);
+        }
+        buffer.force();
+        try {
+            channel.close();
+            openSegment(activeSegment + 1);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void openSegment(long segment) throws IOException {
+        channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentSize);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        activeSegment = segment;
+        writePosition = 0;
+    }
+
+    private int scan(MappedByteBuffer view, int offset, int limit) {
+        int length;
+        while ((length = validLength(view, offset, limit)) >= 0) {
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Length of the record at {@code offset}, or -1 if there is no complete record with a matching CRC.
+     */
+    private int validLength(MappedByteBuffer view, int offset, int limit) {
+        if (offset + HEADER_BYTES > limit) {
+            return -1;
+        }
+        int length = view.getInt(offset);
+        if (length <= 0 || offset + HEADER_BYTES + length > limit) {
+            return -1;
+        }
+        byte[] payload = new byte[length];
+        view.get(offset + HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != view.getInt(offset + 4)) {
+            log.warn("Audit journal record at {} failed its CRC check, ignoring the rest of the segment", offset);
+            return -1;
+        }
+        return length;
+    }
+
+    private List<Long> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    private static byte[] encode(AuditLog entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            LocalDateTime createdAt = entry.getCreatedAt() == null ? LocalDateTime.now() : entry.getCreatedAt();
+            out.writeLong(createdAt.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(createdAt.getNano());
+            writeString(out, entry.getActor());
+            writeString(out, entry.getAction());
+            writeString(out, entry.getEntityType());
+            out.writeBoolean(entry.getEntityId() != null);
+            out.writeLong(entry.getEntityId() == null ? 0 : entry.getEntityId());
+            writeString(out, entry.getMessage());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static AuditLog decode(MappedByteBuffer view, int offset, int length) {
+        byte[] payload = new byte[length];
+        view.get(offset, payload);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            AuditLog entry = new AuditLog();
+            long seconds = in.readLong();
+            int nanos = in.readInt();
+            entry.setCreatedAt(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+            entry.setActor(readString(in));
+            entry.setAction(readString(in));
+            entry.setEntityType(readString(in));
+            boolean hasEntityId = in.readBoolean();
+            long entityId = in.readLong();
+            entry.setEntityId(hasEntityId ? entityId : null);
+            entry.setMessage(readString(in));
+            return entry;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,18 +1,20 @@
 package com.pharmacy.service;
 
 import com.pharmacy.model.AuditLog;
-import com.pharmacy.repository.AuditLogRepository;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Service
 public class AuditLogService {
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
 
-    public AuditLogService(AuditLogRepository auditLogRepository) {
-        this.auditLogRepository = auditLogRepository;
+    public AuditLogService(AuditLogWriter auditLogWriter) {
+        this.auditLogWriter = auditLogWriter;
     }
 
     public void log(String action, String entityType, Long entityId, String message) {
@@ -25,19 +27,48 @@ public class AuditLogService {
                     String message,
                     String actorOverride) {
         try {
-            AuditLog log = new AuditLog();
-            log.setActor(resolveActor(actorOverride));
-            log.setAction(action);
-            log.setEntityType(entityType);
-            log.setEntityId(entityId);
-            log.setMessage(message);
-            auditLogRepository.save(log);
+            auditLogWriter.write(List.of(entry(action, entityType, entityId, message, actorOverride)));
         } catch (Exception ex) {
             // Avoid breaking core flows if audit logging fails
             System.err.println("Audit log failure: " + ex.getMessage());
         }
     }
 
+    public AuditLog entry(String action, String entityType, Long entityId, String message) {
+        return entry(action, entityType, entityId, message, null);
+    }
+
+    public AuditLog entry(String action,
+                          String entityType,
+                          Long entityId,
+                          String message,
+                          String actorOverride) {
+        AuditLog log = new AuditLog();
+        log.setActor(resolveActor(actorOverride));
+        log.setAction(action);
+        log.setEntityType(entityType);
+        log.setEntityId(entityId);
+        log.setMessage(message);
+        log.setCreatedAt(LocalDateTime.now());
+        return log;
+    }
+
+    public void logAll(List<AuditLog> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            auditLogWriter.write(entries);
+        } catch (Exception ex) {
+            // Avoid breaking core flows if audit logging fails
+            System.err.println("Audit log failure: " + ex.getMessage());
+        }
+    }
+
+    public String currentActor() {
+        return resolveActor(null);
+    }
+
     private String resolveActor(String actorOverride) {
         if (actorOverride != null && !actorOverride.isBlank()) {
             return actorOverride;
@@ -0,0 +1,14 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditLog;
+
+import java.util.List;
+
+/**
+ * Persists audit entries built by {@link AuditLogService}. Selected with {@code pharmacy.audit.writer}.
+ * Entries arrive with actor and timestamp already resolved on the caller thread.
+ */
+public interface AuditLogWriter {
+
+    void write(List<AuditLog> entries);
+}
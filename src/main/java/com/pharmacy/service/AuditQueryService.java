@@ -0,0 +1,173 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditLogRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+@Service
+public class AuditQueryService {
+
+    public static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    public enum ExportFormat {
+        NDJSON,
+        CSV;
+
+        public static ExportFormat from(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+            }
+        }
+    }
+
+    public record AuditFilter(String actor, String entityType, String action, LocalDateTime from, LocalDateTime to) {
+    }
+
+    public record AuditPage(List<AuditLog> items, String nextCursor) {
+    }
+
+    private final AuditLogRepository auditLogRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final int ngramTokenSize;
+
+    public AuditQueryService(AuditLogRepository auditLogRepository,
+                             EntityManager entityManager,
+                             ObjectMapper objectMapper,
+                             @Value("${pharmacy.audit.search.ngram-token-size:2}") int ngramTokenSize) {
+        this.auditLogRepository = auditLogRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.ngramTokenSize = ngramTokenSize;
+    }
+
+    /**
+     * Builds a filter from inclusive {@code yyyy-MM-dd} day bounds.
+     */
+    public AuditFilter filter(String actor, String entityType, String action, String from, String to) {
+        try {
+            LocalDateTime start = from == null || from.isBlank() ? null : LocalDate.parse(from).atStartOfDay();
+            LocalDateTime end = to == null || to.isBlank() ? null : LocalDate.parse(to).plusDays(1).atStartOfDay();
+            if (start != null && end != null && !start.isBefore(end)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be on or before to");
+            }
+            return new AuditFilter(actor, entityType, action, start, end);
+        } catch (DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from and to must be yyyy-MM-dd dates");
+        }
+    }
+
+    public AuditPage page(AuditFilter filter, String cursor, int limit) {
+        int safeLimit = KeysetCursor.pageSize(limit);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<AuditLog> items = auditLogRepository.search(
+                filter.actor(),
+                filter.entityType(),
+                filter.action(),
+                filter.from(),
+                filter.to(),
+                after == null ? null : after.at(),
+                after == null ? null : after.id(),
+                PageRequest.of(0, safeLimit)
+        );
+        String nextCursor = null;
+        if (items.size() == safeLimit) {
+            AuditLog last = items.get(items.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
+        }
+        return new AuditPage(items, nextCursor);
+    }
+
+    public List<AuditLog> search(String query, String entityType, String action, int limit) {
+        // A double quote would end the boolean-mode phrase early
+        String term = query == null ? "" : query.replace('"', ' ').trim();
+        // The index holds only n-grams of ngram_token_size characters, anything shorter cannot match it
+        if (term.length() < ngramTokenSize || term.length() > MAX_QUERY_LENGTH) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "q must be between " + ngramTokenSize + " and " + MAX_QUERY_LENGTH + " characters"
+            );
+        }
+        int safeLimit = Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS);
+        return auditLogRepository.fullTextSearch('"' + term + '"', entityType, action, safeLimit);
+    }
+
+    /**
+     * Writes every matching entry, oldest first, without holding the result in memory: rows are streamed
+     * from the driver and detached from the persistence context once written.
+     */
+    @Transactional(readOnly = true)
+    public long export(AuditFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write("id,created_at,actor,action,entity_type,entity_id,message\n");
+        }
+        long count = 0;
+        try (Stream<AuditLog> rows = auditLogRepository.streamForExport(
+                filter.actor(), filter.entityType(), filter.action(), filter.from(), filter.to())) {
+            for (AuditLog row : (Iterable<AuditLog>) rows::iterator) {
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, row);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                entityManager.detach(row);
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+
+    private static void writeCsvRow(Writer writer, AuditLog row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getCreatedAt()));
+        writer.write(',');
+        writer.write(csv(row.getActor()));
+        writer.write(',');
+        writer.write(csv(row.getAction()));
+        writer.write(',');
+        writer.write(csv(row.getEntityType()));
+        writer.write(',');
+        writer.write(row.getEntityId() == null ? "" : String.valueOf(row.getEntityId()));
+        writer.write(',');
+        writer.write(csv(row.getMessage()));
+        writer.write('\n');
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,186 @@
+package com.pharmacy.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.pharmacy.model.Sale;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Month totals held in a size-bounded Caffeine cache (W-TinyLFU eviction). Months that have ended cannot
+ * change, so they never expire; the current month expires after {@code ttl-seconds} and is refreshed in the
+ * background once it is older than {@code refresh-seconds}, so readers keep getting the old totals while the
+ * new ones load. Concurrent requests for a missing month share one load. Committed sales drop their month.
+ */
+@Component
+@ConditionalOnProperty(name = "pharmacy.summary.cache", havingValue = "caffeine", matchIfMissing = true)
+public class CaffeineSalesSummaryCache implements SalesSummaryCache {
+
+    /**
+     * {@code closed} records whether the month had already ended when it was read, so it is final.
+     */
+    private record MonthTotals(SalesSummaryEngine.Totals totals, boolean closed) {
+    }
+
+    private final SalesSummaryEngine salesSummaryEngine;
+    private final ExecutorService loader;
+    private final AsyncLoadingCache<YearMonth, MonthTotals> cache;
+
+    @Autowired
+    public CaffeineSalesSummaryCache(SalesSummaryEngine salesSummaryEngine,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${pharmacy.summary.cache.max-months:240}") long maxMonths,
+                                     @Value("${pharmacy.summary.cache.ttl-seconds:300}") long ttlSeconds,
+                                     @Value("${pharmacy.summary.cache.refresh-seconds:60}") long refreshSeconds) {
+        this(salesSummaryEngine, maxMonths, Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(refreshSeconds),
+                Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sales.summary");
+    }
+
+    CaffeineSalesSummaryCache(SalesSummaryEngine salesSummaryEngine,
+                              long maxMonths,
+                              Duration ttl,
+                              Duration refresh,
+                              Ticker ticker) {
+        this.salesSummaryEngine = salesSummaryEngine;
+        this.loader = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "sales-summary-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxMonths)
+                .expireAfter(new MonthExpiry(ttl.toNanos()))
+                .refreshAfterWrite(refresh)
+                .executor(loader)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync(new MonthLoader());
+    }
+
+    @Override
+    public List<SalesSummaryEngine.Totals> months(List<YearMonth> months) {
+        Map<YearMonth, MonthTotals> loaded;
+        try {
+            loaded = cache.getAll(months).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        }
+        List<SalesSummaryEngine.Totals> results = new ArrayList<>(months.size());
+        for (YearMonth month : months) {
+            results.add(loaded.get(month).totals());
+        }
+        return results;
+    }
+
+    @Override
+    public void invalidate(List<Sale> sales) {
+        Set<YearMonth> months = new TreeSet<>();
+        for (Sale sale : sales) {
+            if (sale.getSaleDate() != null) {
+                months.add(YearMonth.from(sale.getSaleDate()));
+            }
+        }
+        if (months.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.synchronous().invalidateAll(months);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.synchronous().invalidateAll(months);
+            }
+        });
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    private final class MonthLoader implements CacheLoader<YearMonth, MonthTotals> {
+
+        @Override
+        public MonthTotals load(YearMonth month) {
+            return loadAll(Set.of(month)).get(month);
+        }
+
+        @Override
+        public Map<YearMonth, MonthTotals> loadAll(Set<? extends YearMonth> keys) {
+            // Decide before reading so a month that ends mid-query is read once more later
+            YearMonth current = YearMonth.now();
+            List<YearMonth> months = new ArrayList<>(keys);
+            List<SalesSummaryEngine.Totals> totals = salesSummaryEngine.forMonths(months);
+            Map<YearMonth, MonthTotals> loaded = new HashMap<>();
+            for (int i = 0; i < months.size(); i++) {
+                YearMonth month = months.get(i);
+                loaded.put(month, new MonthTotals(totals.get(i), month.isBefore(current)));
+            }
+            return loaded;
+        }
+
+        @Override
+        public MonthTotals reload(YearMonth month, MonthTotals oldValue) {
+            return oldValue.closed() ? oldValue : load(month);
+        }
+    }
+
+    private static final class MonthExpiry implements Expiry<YearMonth, MonthTotals> {
+
+        private final long openMonthNanos;
+
+        private MonthExpiry(long openMonthNanos) {
+            this.openMonthNanos = openMonthNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(YearMonth month, MonthTotals totals, long currentTime) {
+            return totals.closed() ? Long.MAX_VALUE : openMonthNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(YearMonth month, MonthTotals totals,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(month, totals, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(YearMonth month, MonthTotals totals,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.pharmacy.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodings shared by the archive files: LEB128 varints, zigzag for signed values, nullable values shifted up
+ * by one so zero means null, and length-prefixed UTF-8 strings. Each column is encoded into its own buffer and
+ * written as one length-prefixed block, so equal neighbouring values sit together for the gzip stream.
+ */
+final class ColumnCodec {
+
+    /**
+     * Marks a missing amount in a decoded cents column.
+     */
+    static final long NULL_CENTS = Long.MIN_VALUE;
+
+    interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * One column being encoded.
+     */
+    static final class Column {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        void varLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            bytes.write((int) value);
+        }
+
+        void signed(long value) {
+            varLong((value << 1) ^ (value >> 63));
+        }
+
+        void nullableSigned(Long value) {
+            if (value == null) {
+                varLong(0);
+            } else {
+                varLong(((value << 1) ^ (value >> 63)) + 1);
+            }
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varLong(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varLong(utf8.length + 1L);
+            bytes.write(utf8, 0, utf8.length);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            writeVarLong(out, bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private ColumnCodec() {
+    }
+
+    static long cents(BigDecimal amount) {
+        return IntradaySalesCounters.toCents(amount);
+    }
+
+    static Long nullableCents(BigDecimal amount) {
+        return amount == null ? null : IntradaySalesCounters.toCents(amount);
+    }
+
+    static BigDecimal money(long cents) {
+        return cents == NULL_CENTS ? null : BigDecimal.valueOf(cents, 2);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readSigned(DataInputStream in) throws IOException {
+        long zigzag = readVarLong(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * A nullable signed value; {@code ifNull} when it was written as null.
+     */
+    static long readNullableSigned(DataInputStream in, long ifNull) throws IOException {
+        long shifted = readVarLong(in);
+        if (shifted == 0) {
+            return ifNull;
+        }
+        long zigzag = shifted - 1;
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        return new String(in.readNBytes((int) (length - 1)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Steps into the next column block; its values follow until the block length is consumed.
+     */
+    static void readBlockLength(DataInputStream in) throws IOException {
+        readVarLong(in);
+    }
+
+    /**
+     * Writes a gzip-compressed file through a temporary file that is synced and then moved into place, so a
+     * file under its final name is always complete.
+     */
+    static void writeAtomically(Path target, Body body) {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                GZIPOutputStream gzip = new GZIPOutputStream(file, 1 << 16);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, 1 << 16));
+                body.write(out);
+                out.flush();
+                gzip.finish();
+                file.getFD().sync();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write " + target, ex);
+        }
+    }
+
+    static DataInputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16));
+    }
+}
@@ -0,0 +1,255 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.HourlyProfitDto;
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.dto.ProfitSummaryDto;
+import com.pharmacy.dto.SaleFactRow;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayTotals;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Answers {@link SalesAnalytics} from an in-process {@link ColumnarSalesStore} instead of MySQL. The store is
+ * loaded from the {@link SalesArchive} and {@code sales} once the application is ready and committed sales are
+ * appended after commit, through a {@link CommittedSalesFeed} so a sale committing during the load is appended
+ * once; until the load finishes these endpoints answer 503. Holds about 30 bytes per VALID sale.
+ */
+@Service
+@ConditionalOnProperty(name = "pharmacy.analytics.backend", havingValue = "columnar")
+public class ColumnarSalesAnalytics implements SalesAnalytics {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarSalesAnalytics.class);
+
+    private final SaleRepository saleRepository;
+    private final SalesArchive salesArchive;
+    private final int loadPageSize;
+    private final ForkJoinPool pool;
+    private final ColumnarSalesStore store;
+    private final CommittedSalesFeed feed;
+    private volatile boolean loaded;
+
+    public ColumnarSalesAnalytics(SaleRepository saleRepository,
+                                  SalesArchive salesArchive,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${pharmacy.analytics.columnar.segment-rows:65536}") int segmentRows,
+                                  @Value("${pharmacy.analytics.columnar.parallelism:0}") int parallelism,
+                                  @Value("${pharmacy.analytics.columnar.load-page-size:10000}") int loadPageSize) {
+        this.saleRepository = saleRepository;
+        this.salesArchive = salesArchive;
+        this.loadPageSize = Math.max(1, loadPageSize);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.store = new ColumnarSalesStore(segmentRows, pool);
+        this.feed = new CommittedSalesFeed(saleRepository, transactionManager, this::apply);
+    }
+
+    /**
+     * Reads archived months, then pages through live VALID sales in id order, all in one read-only
+     * transaction. Runs after the price snapshot and rollup backfills.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void load() {
+        feed.load(() -> {
+            for (YearMonth month : salesArchive.months()) {
+                loadArchived(salesArchive.read(month));
+            }
+            // Rows left in archived months by an unfinished delete are already in their files
+            LocalDateTime liveFrom = salesArchive.liveFrom().map(LocalDate::atStartOfDay).orElse(LocalDateTime.MIN);
+            long afterId = 0;
+            while (true) {
+                List<SaleFactRow> page = saleRepository.findFactsAfter(afterId, PageRequest.of(0, loadPageSize));
+                for (SaleFactRow row : page) {
+                    if (!row.saleDate().isBefore(liveFrom)) {
+                        store.append(row.medicineId(), row.medicineName(), row.saleDate(), row.quantity(),
+                                IntradaySalesCounters.toCents(row.totalPrice()),
+                                costCents(row.unitCost(), row.quantity()));
+                    }
+                    afterId = row.id();
+                }
+                if (page.size() < loadPageSize) {
+                    break;
+                }
+            }
+        });
+        loaded = true;
+        log.info("Loaded columnar sales store: {} sales, {} medicines", store.rows(), store.medicineCount());
+    }
+
+    @Override
+    public void record(List<Sale> sales) {
+        feed.record(sales);
+    }
+
+    @Override
+    public ProfitSummaryDto profitSummary(LocalDate start, LocalDate end) {
+        ColumnarSalesStore.Totals totals = scan(start, end, ColumnarSalesStore.GroupBy.NONE);
+        BigDecimal revenue = money(totals.revenueCents[0]);
+        BigDecimal cost = money(totals.costCents[0]);
+        return new ProfitSummaryDto(start, end, revenue, cost, revenue.subtract(cost), totals.count[0]);
+    }
+
+    @Override
+    public Map<LocalDate, DayTotals> profitByDay(LocalDate start, LocalDate end) {
+        ColumnarSalesStore.Totals totals = scan(start, end, ColumnarSalesStore.GroupBy.DAY);
+        Map<LocalDate, DayTotals> days = new HashMap<>();
+        for (int offset = 0; offset < totals.count.length; offset++) {
+            if (totals.count[offset] > 0) {
+                LocalDate day = start.plusDays(offset);
+                days.put(day, new Day(day, totals.count[offset], money(totals.revenueCents[offset]),
+                        money(totals.costCents[offset])));
+            }
+        }
+        return days;
+    }
+
+    @Override
+    public List<ProfitByMedicineDto> topProfitMedicines(LocalDate start, LocalDate end, int limit) {
+        ColumnarSalesStore.Totals totals = scan(start, end, ColumnarSalesStore.GroupBy.MEDICINE);
+        // Min-heap of medicine codes, worst on top: lowest profit, then highest id
+        Comparator<Integer> byProfit = Comparator
+                .comparingLong((Integer code) -> totals.revenueCents[code] - totals.costCents[code])
+                .thenComparing(Comparator.comparingLong(store::medicineId).reversed());
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, byProfit);
+        for (int code = 0; code < totals.count.length; code++) {
+            if (totals.count[code] > 0) {
+                heap.offer(code);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+        List<Integer> best = new ArrayList<>(heap);
+        best.sort(byProfit.reversed());
+        List<ProfitByMedicineDto> result = new ArrayList<>(best.size());
+        for (int code : best) {
+            result.add(new ProfitByMedicineDto(store.medicineId(code), store.medicineName(code),
+                    totals.quantity[code], money(totals.revenueCents[code]), money(totals.costCents[code])));
+        }
+        return result;
+    }
+
+    @Override
+    public List<HourlyProfitDto> profitByHour(LocalDate start, LocalDate end) {
+        ColumnarSalesStore.Totals totals = scan(start, end, ColumnarSalesStore.GroupBy.HOUR);
+        List<HourlyProfitDto> hours = new ArrayList<>(24);
+        for (int hour = 0; hour < 24; hour++) {
+            BigDecimal revenue = money(totals.revenueCents[hour]);
+            BigDecimal cost = money(totals.costCents[hour]);
+            hours.add(new HourlyProfitDto(hour, totals.count[hour], totals.quantity[hour], revenue, cost,
+                    revenue.subtract(cost)));
+        }
+        return hours;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private ColumnarSalesStore.Totals scan(LocalDate start, LocalDate end, ColumnarSalesStore.GroupBy groupBy) {
+        if (!loaded) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Sales analytics are still loading");
+        }
+        return store.scan(start.toEpochDay(), end.toEpochDay(), groupBy);
+    }
+
+    private void apply(List<Sale> sales) {
+        for (Sale sale : sales) {
+            if (sale.getStatus() == SaleStatus.VALID) {
+                append(sale);
+            }
+        }
+    }
+
+    private void loadArchived(SalesArchiveFile.Columns sales) {
+        for (int row = 0; row < sales.rows; row++) {
+            if (sales.status(row) != SaleStatus.VALID) {
+                continue;
+            }
+            int medicine = sales.medicine[row];
+            store.append(sales.medicineIds[medicine], sales.medicineNames[medicine], sales.saleDate(row),
+                    sales.quantity[row], SalesArchive.cents(sales.totalCents[row]),
+                    SalesArchive.cents(sales.unitCostCents[row]) * sales.quantity[row]);
+        }
+    }
+
+    private void append(Sale sale) {
+        Medicine medicine = sale.getMedicine();
+        int quantity = sale.getQuantitySold() == null ? 0 : sale.getQuantitySold();
+        store.append(medicine.getId(), medicine.getName(), sale.getSaleDate(), quantity,
+                IntradaySalesCounters.toCents(sale.getTotalPrice()), costCents(sale.getUnitCost(), quantity));
+    }
+
+    private static long costCents(BigDecimal unitCost, Integer quantity) {
+        if (unitCost == null || quantity == null) {
+            return 0;
+        }
+        return IntradaySalesCounters.toCents(unitCost.multiply(BigDecimal.valueOf(quantity)));
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static final class Day implements DayTotals {
+        private final LocalDate day;
+        private final long saleCount;
+        private final BigDecimal revenue;
+        private final BigDecimal cost;
+
+        private Day(LocalDate day, long saleCount, BigDecimal revenue, BigDecimal cost) {
+            this.day = day;
+            this.saleCount = saleCount;
+            this.revenue = revenue;
+            this.cost = cost;
+        }
+
+        @Override
+        public LocalDate getDay() {
+            return day;
+        }
+
+        @Override
+        public long getSaleCount() {
+            return saleCount;
+        }
+
+        @Override
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        @Override
+        public BigDecimal getCost() {
+            return cost;
+        }
+    }
+}
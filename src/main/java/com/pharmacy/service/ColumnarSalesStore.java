@@ -0,0 +1,300 @@
+package com.pharmacy.service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Append-only column store of VALID sales: day, hour, medicine, quantity, revenue and cost, each in its own
+ * primitive array. Rows live in fixed-size segments, so appends never copy and a scan splits into one fork/join
+ * task per segment. Each segment keeps the smallest and largest day it holds; a range scan skips segments
+ * outside the range, and since rows arrive roughly in date order most of them are. Amounts are in cents.
+ *
+ * <p>Appends are serialised; scans run concurrently with them and see every row appended before they started.
+ */
+final class ColumnarSalesStore {
+
+    enum GroupBy {
+        NONE, DAY, MEDICINE, HOUR
+    }
+
+    /**
+     * Sums per group; the group is the offset from the first day, the medicine code or the hour.
+     */
+    static final class Totals {
+        final long[] count;
+        final long[] quantity;
+        final long[] revenueCents;
+        final long[] costCents;
+
+        private Totals(int groups) {
+            count = new long[groups];
+            quantity = new long[groups];
+            revenueCents = new long[groups];
+            costCents = new long[groups];
+        }
+
+        private Totals merge(Totals other) {
+            for (int g = 0; g < count.length; g++) {
+                count[g] += other.count[g];
+                quantity[g] += other.quantity[g];
+                revenueCents[g] += other.revenueCents[g];
+                costCents[g] += other.costCents[g];
+            }
+            return this;
+        }
+    }
+
+    private static final class Segment {
+        private final int[] day;
+        private final byte[] hour;
+        private final int[] medicine;
+        private final int[] quantity;
+        private final long[] revenueCents;
+        private final long[] costCents;
+        // Written before size, so a reader that has read size sees bounds covering those rows
+        private volatile int minDay = Integer.MAX_VALUE;
+        private volatile int maxDay = Integer.MIN_VALUE;
+        private volatile int size;
+
+        private Segment(int rows) {
+            day = new int[rows];
+            hour = new byte[rows];
+            medicine = new int[rows];
+            quantity = new int[rows];
+            revenueCents = new long[rows];
+            costCents = new long[rows];
+        }
+    }
+
+    private final int segmentRows;
+    private final ForkJoinPool pool;
+
+    private volatile Segment[] segments = new Segment[0];
+
+    // Medicine ids are coded densely so per-medicine sums index plain arrays; guarded by this
+    private final Map<Long, Integer> medicineCodes = new HashMap<>();
+    private long[] medicineIds = new long[64];
+    private String[] medicineNames = new String[64];
+    private volatile int medicineCount;
+    private volatile long rows;
+
+    ColumnarSalesStore(int segmentRows, ForkJoinPool pool) {
+        this.segmentRows = Math.max(1, segmentRows);
+        this.pool = pool;
+    }
+
+    synchronized void append(long medicineId, String medicineName, LocalDateTime saleDate, int quantity,
+                             long revenueCents, long costCents) {
+        int code = medicineCode(medicineId, medicineName);
+        Segment[] current = segments;
+        Segment segment = current.length == 0 ? null : current[current.length - 1];
+        if (segment == null || segment.size == segmentRows) {
+            segment = new Segment(segmentRows);
+            Segment[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = segment;
+            segments = grown;
+        }
+        int row = segment.size;
+        int day = (int) saleDate.toLocalDate().toEpochDay();
+        segment.day[row] = day;
+        segment.hour[row] = (byte) saleDate.getHour();
+        segment.medicine[row] = code;
+        segment.quantity[row] = quantity;
+        segment.revenueCents[row] = revenueCents;
+        segment.costCents[row] = costCents;
+        if (day < segment.minDay) {
+            segment.minDay = day;
+        }
+        if (day > segment.maxDay) {
+            segment.maxDay = day;
+        }
+        segment.size = row + 1;
+        rows++;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    int medicineCount() {
+        return medicineCount;
+    }
+
+    synchronized long medicineId(int code) {
+        return medicineIds[code];
+    }
+
+    synchronized String medicineName(int code) {
+        return medicineNames[code];
+    }
+
+    /**
+     * Sums rows with a day in {@code [fromDay, toDay]} (epoch days) by {@code groupBy}. For MEDICINE the result
+     * is indexed by medicine code and covers every medicine known when the scan started.
+     */
+    Totals scan(long fromDay, long toDay, GroupBy groupBy) {
+        Segment[] current = segments;
+        // Only segments holding days in range are scanned, so each leaf's group arrays are for rows it can add
+        Segment[] snapshot = new Segment[current.length];
+        int[] sizes = new int[current.length];
+        int scanned = 0;
+        for (Segment segment : current) {
+            // Size before the day bounds: they were widened before any row counted in it was added
+            int size = segment.size;
+            if (size > 0 && segment.maxDay >= fromDay && segment.minDay <= toDay) {
+                snapshot[scanned] = segment;
+                sizes[scanned] = size;
+                scanned++;
+            }
+        }
+        // Read after the sizes: every row counted above has a code below this
+        int groups = switch (groupBy) {
+            case NONE -> 1;
+            case DAY -> (int) (toDay - fromDay + 1);
+            case MEDICINE -> medicineCount;
+            case HOUR -> 24;
+        };
+        if (scanned == 0) {
+            return new Totals(groups);
+        }
+        return pool.invoke(new ScanTask(snapshot, sizes, 0, scanned, (int) fromDay, (int) toDay, groupBy, groups));
+    }
+
+    private int medicineCode(long medicineId, String name) {
+        Integer code = medicineCodes.get(medicineId);
+        if (code != null) {
+            if (name != null) {
+                medicineNames[code] = name;
+            }
+            return code;
+        }
+        int next = medicineCount;
+        if (next == medicineIds.length) {
+            medicineIds = Arrays.copyOf(medicineIds, next * 2);
+            medicineNames = Arrays.copyOf(medicineNames, next * 2);
+        }
+        medicineIds[next] = medicineId;
+        medicineNames[next] = name;
+        medicineCodes.put(medicineId, next);
+        medicineCount = next + 1;
+        return next;
+    }
+
+    private static final class ScanTask extends RecursiveTask<Totals> {
+
+        private final Segment[] segments;
+        private final int[] sizes;
+        private final int lo;
+        private final int hi;
+        private final int from;
+        private final int to;
+        private final GroupBy groupBy;
+        private final int groups;
+
+        private ScanTask(Segment[] segments, int[] sizes, int lo, int hi, int from, int to, GroupBy groupBy, int groups) {
+            this.segments = segments;
+            this.sizes = sizes;
+            this.lo = lo;
+            this.hi = hi;
+            this.from = from;
+            this.to = to;
+            this.groupBy = groupBy;
+            this.groups = groups;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (hi - lo == 1) {
+                Totals totals = new Totals(groups);
+                scanSegment(segments[lo], sizes[lo], totals);
+                return totals;
+            }
+            int mid = (lo + hi) >>> 1;
+            ScanTask left = new ScanTask(segments, sizes, lo, mid, from, to, groupBy, groups);
+            ScanTask right = new ScanTask(segments, sizes, mid, hi, from, to, groupBy, groups);
+            left.fork();
+            Totals totals = right.compute();
+            return totals.merge(left.join());
+        }
+
+        // One tight loop per grouping so the JIT sees simple array walks
+        private void scanSegment(Segment segment, int size, Totals totals) {
+            int[] day = segment.day;
+            int[] quantity = segment.quantity;
+            long[] revenue = segment.revenueCents;
+            long[] cost = segment.costCents;
+            switch (groupBy) {
+                case NONE -> {
+                    long count = 0;
+                    long units = 0;
+                    long revenueSum = 0;
+                    long costSum = 0;
+                    if (segment.minDay >= from && segment.maxDay <= to) {
+                        // Whole segment in range: plain reductions, no per-row test
+                        count = size;
+                        for (int i = 0; i < size; i++) {
+                            units += quantity[i];
+                            revenueSum += revenue[i];
+                            costSum += cost[i];
+                        }
+                    } else {
+                        for (int i = 0; i < size; i++) {
+                            int d = day[i];
+                            if (d < from || d > to) {
+                                continue;
+                            }
+                            count++;
+                            units += quantity[i];
+                            revenueSum += revenue[i];
+                            costSum += cost[i];
+                        }
+                    }
+                    totals.count[0] += count;
+                    totals.quantity[0] += units;
+                    totals.revenueCents[0] += revenueSum;
+                    totals.costCents[0] += costSum;
+                }
+                case DAY -> {
+                    for (int i = 0; i < size; i++) {
+                        int d = day[i];
+                        if (d < from || d > to) {
+                            continue;
+                        }
+                        add(totals, d - from, quantity[i], revenue[i], cost[i]);
+                    }
+                }
+                case MEDICINE -> {
+                    int[] medicine = segment.medicine;
+                    for (int i = 0; i < size; i++) {
+                        int d = day[i];
+                        if (d < from || d > to) {
+                            continue;
+                        }
+                        add(totals, medicine[i], quantity[i], revenue[i], cost[i]);
+                    }
+                }
+                case HOUR -> {
+                    byte[] hour = segment.hour;
+                    for (int i = 0; i < size; i++) {
+                        int d = day[i];
+                        if (d < from || d > to) {
+                            continue;
+                        }
+                        add(totals, hour[i], quantity[i], revenue[i], cost[i]);
+                    }
+                }
+            }
+        }
+
+        private static void add(Totals totals, int group, int quantity, long revenueCents, long costCents) {
+            totals.count[group]++;
+            totals.quantity[group] += quantity;
+            totals.revenueCents[group] += revenueCents;
+            totals.costCents[group] += costCents;
+        }
+    }
+}
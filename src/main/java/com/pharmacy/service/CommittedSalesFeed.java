@@ -0,0 +1,187 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Sale;
+import com.pharmacy.repository.SaleRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Passes committed sales to an in-memory view of them, and loads that view from the database without counting
+ * a sale twice. Sales committed before the first load or during any load are held back; the load reads its
+ * snapshot and then asks, in the same repeatable-read transaction, which of the held sales that snapshot
+ * already contains, and passes on only the others. It asks the same about sales recorded but not yet
+ * delivered, whose commit the snapshot may have seen although their commit hook runs after the load, and
+ * drops those when they arrive.
+ */
+final class CommittedSalesFeed {
+
+    // Held sales looked up per IN list
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final SaleRepository saleRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final Consumer<List<Sale>> sink;
+    private final Object loadLock = new Object();
+
+    // Sales waiting for a load, null while none is running; guarded by this
+    private List<Sale> held = new ArrayList<>();
+    // Ids of sales recorded in a transaction that has not completed yet; guarded by this
+    private final Set<Long> pending = new HashSet<>();
+    // Ids of pending sales the last snapshot already holds, dropped when delivered; guarded by this
+    private final Set<Long> covered = new HashSet<>();
+
+    CommittedSalesFeed(SaleRepository saleRepository,
+                       PlatformTransactionManager transactionManager,
+                       Consumer<List<Sale>> sink) {
+        this.saleRepository = saleRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.sink = sink;
+    }
+
+    /**
+     * Passes saved sales on once their transaction commits, or straight away outside a transaction.
+     */
+    void record(List<Sale> sales) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(sales);
+            return;
+        }
+        List<Long> ids = ids(sales);
+        synchronized (this) {
+            pending.addAll(ids);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(sales);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    synchronized (CommittedSalesFeed.this) {
+                        pending.removeAll(ids);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs {@code snapshot}, which reads the database and replaces the view with what it read, then passes on
+     * the held sales it did not see. If the snapshot fails the held sales are passed on as they are.
+     */
+    void load(Runnable snapshot) {
+        synchronized (loadLock) {
+            synchronized (this) {
+                if (held == null) {
+                    held = new ArrayList<>();
+                }
+                covered.clear();
+            }
+            try {
+                snapshotTransaction.executeWithoutResult(status -> {
+                    snapshot.run();
+                    coverPending();
+                    for (List<Sale> batch = takeHeld(); batch != null; batch = takeHeld()) {
+                        passUnseen(batch);
+                    }
+                });
+            } finally {
+                synchronized (this) {
+                    if (held != null) {
+                        sink.accept(held);
+                        held = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void deliver(List<Sale> sales) {
+        // Passed on under the lock, so a load cannot start between the check and the sink
+        synchronized (this) {
+            List<Sale> unseen = sales;
+            if (!pending.isEmpty()) {
+                unseen = new ArrayList<>(sales.size());
+                for (Sale sale : sales) {
+                    pending.remove(sale.getId());
+                    if (sale.getId() == null || !covered.remove(sale.getId())) {
+                        unseen.add(sale);
+                    }
+                }
+            }
+            if (held != null) {
+                held.addAll(unseen);
+            } else if (!unseen.isEmpty()) {
+                sink.accept(unseen);
+            }
+        }
+    }
+
+    // Marks the pending sales the snapshot already holds, so their commit hook does not count them again
+    private void coverPending() {
+        List<Long> ids;
+        synchronized (this) {
+            ids = new ArrayList<>(pending);
+        }
+        Set<Long> seen = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK) {
+            seen.addAll(saleRepository.findIdsIn(ids.subList(from, Math.min(from + LOOKUP_CHUNK, ids.size()))));
+        }
+        synchronized (this) {
+            // Any delivered since are in held, which passUnseen checks against the snapshot itself
+            seen.retainAll(pending);
+            covered.addAll(seen);
+        }
+    }
+
+    // The sales held since the last call, or null once there are none, from which point sales go straight through
+    private synchronized List<Sale> takeHeld() {
+        if (held.isEmpty()) {
+            held = null;
+            return null;
+        }
+        List<Sale> batch = held;
+        held = new ArrayList<>();
+        return batch;
+    }
+
+    private void passUnseen(List<Sale> batch) {
+        for (int from = 0; from < batch.size(); from += LOOKUP_CHUNK) {
+            List<Sale> chunk = batch.subList(from, Math.min(from + LOOKUP_CHUNK, batch.size()));
+            Set<Long> ids = new HashSet<>(ids(chunk));
+            Set<Long> seen = ids.isEmpty() ? Set.of() : new HashSet<>(saleRepository.findIdsIn(ids));
+            List<Sale> unseen = new ArrayList<>(chunk.size());
+            for (Sale sale : chunk) {
+                if (sale.getId() == null || !seen.contains(sale.getId())) {
+                    unseen.add(sale);
+                }
+            }
+            if (!unseen.isEmpty()) {
+                sink.accept(unseen);
+            }
+        }
+    }
+
+    private static List<Long> ids(List<Sale> sales) {
+        List<Long> ids = new ArrayList<>(sales.size());
+        for (Sale sale : sales) {
+            if (sale.getId() != null) {
+                ids.add(sale.getId());
+            }
+        }
+        return ids;
+    }
+}
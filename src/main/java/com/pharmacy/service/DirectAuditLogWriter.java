@@ -0,0 +1,24 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditLogRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "pharmacy.audit.writer", havingValue = "direct", matchIfMissing = true)
+public class DirectAuditLogWriter implements AuditLogWriter {
+
+    private final AuditLogRepository auditLogRepository;
+
+    public DirectAuditLogWriter(AuditLogRepository auditLogRepository) {
+        this.auditLogRepository = auditLogRepository;
+    }
+
+    @Override
+    public void write(List<AuditLog> entries) {
+        auditLogRepository.saveAll(entries);
+    }
+}
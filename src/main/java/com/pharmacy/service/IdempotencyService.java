@@ -0,0 +1,220 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.IdempotencyRecord;
+import com.pharmacy.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the response to each {@code Idempotency-Key} so client retries are replayed instead of
+ * re-executed. Recent responses are served from a bounded in-memory map without touching the database;
+ * the {@code idempotency_keys} table covers restarts and other nodes. A claimed key whose response was never
+ * recorded (the node died, or the handler failed in a way that may have committed) holds off retries for
+ * {@code pending-lease-seconds}, then may be claimed again.
+ */
+@Service
+public class IdempotencyService {
+
+    public enum ClaimState {
+        ACQUIRED,
+        REPLAY,
+        IN_PROGRESS,
+        MISMATCH
+    }
+
+    public record StoredResponse(String requestHash, int statusCode, String contentType, String body, long storedAt) {}
+
+    public record Claim(ClaimState state, StoredResponse response) {}
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int COMPLETE_ATTEMPTS = 3;
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration pendingLease;
+    private final int maxEntries;
+
+    private final Map<String, StoredResponse> recent;
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${pharmacy.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${pharmacy.idempotency.pending-lease-seconds:60}") long pendingLeaseSeconds,
+                              @Value("${pharmacy.idempotency.max-memory-entries:10000}") int maxEntries) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.pendingLease = Duration.ofSeconds(pendingLeaseSeconds);
+        this.maxEntries = maxEntries;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > IdempotencyService.this.maxEntries;
+            }
+        };
+    }
+
+    public Claim claim(String scopeKey, String requestHash) {
+        StoredResponse cached = fromMemory(scopeKey);
+        if (cached != null) {
+            return replayOrMismatch(cached, requestHash);
+        }
+        if (!inProgress.add(scopeKey)) {
+            return new Claim(ClaimState.IN_PROGRESS, null);
+        }
+
+        try {
+            Optional<IdempotencyRecord> existing = repository.findByScopeKey(scopeKey);
+            if (existing.isPresent()) {
+                IdempotencyRecord record = existing.get();
+                boolean pending = record.getStatusCode() == null;
+                if (!isOlderThan(record.getCreatedAt(), pending ? pendingLease : ttl)) {
+                    inProgress.remove(scopeKey);
+                    if (pending) {
+                        return new Claim(ClaimState.IN_PROGRESS, null);
+                    }
+                    StoredResponse stored = toStoredResponse(record);
+                    remember(scopeKey, stored);
+                    return replayOrMismatch(stored, requestHash);
+                }
+                // Delete this row only, so a node that took over the key a moment ago keeps its claim
+                transactionTemplate.executeWithoutResult(status -> repository.deleteRecord(record.getId()));
+            }
+
+            IdempotencyRecord pending = new IdempotencyRecord();
+            pending.setScopeKey(scopeKey);
+            pending.setRequestHash(requestHash);
+            transactionTemplate.executeWithoutResult(status -> repository.save(pending));
+            return new Claim(ClaimState.ACQUIRED, null);
+        } catch (DataIntegrityViolationException ex) {
+            // Another node claimed the same key between our read and insert
+            inProgress.remove(scopeKey);
+            return new Claim(ClaimState.IN_PROGRESS, null);
+        } catch (RuntimeException ex) {
+            inProgress.remove(scopeKey);
+            throw ex;
+        }
+    }
+
+    /**
+     * Records the response of a request whose work is done. Never throws: the key must not be released once
+     * the work has committed, so a failed write is retried, then logged, and the response is still replayed
+     * from memory on this node.
+     */
+    public void complete(String scopeKey, String requestHash, int statusCode, String contentType, String body) {
+        remember(scopeKey, new StoredResponse(requestHash, statusCode, contentType, body, System.currentTimeMillis()));
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            repository.findByScopeKey(scopeKey).ifPresent(record -> {
+                                record.setStatusCode(statusCode);
+                                record.setContentType(contentType);
+                                record.setResponseBody(body);
+                                repository.save(record);
+                            }));
+                    return;
+                } catch (RuntimeException ex) {
+                    if (attempt == COMPLETE_ATTEMPTS) {
+                        log.error("Could not record the response for idempotency key {}; other nodes may run it "
+                                + "again once its pending lease runs out", scopeKey, ex);
+                        return;
+                    }
+                    log.warn("Recording the response for idempotency key {} failed, retrying", scopeKey, ex);
+                }
+            }
+        } finally {
+            inProgress.remove(scopeKey);
+        }
+    }
+
+    /**
+     * Gives up a claim whose request failed before doing any work, so the client can retry straight away.
+     */
+    public void release(String scopeKey) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.deleteByScopeKey(scopeKey));
+        } finally {
+            inProgress.remove(scopeKey);
+        }
+    }
+
+    /**
+     * Drops this node's hold on a claim whose request ended without a response it can record. The pending
+     * row stays, so retries wait for its lease in case the work committed.
+     */
+    public void abandon(String scopeKey) {
+        inProgress.remove(scopeKey);
+    }
+
+    @Scheduled(fixedDelayString = "${pharmacy.idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        transactionTemplate.executeWithoutResult(status ->
+                repository.deleteExpired(LocalDateTime.now().minus(ttl)));
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        synchronized (recent) {
+            recent.values().removeIf(stored -> stored.storedAt() < cutoff);
+        }
+    }
+
+    private StoredResponse fromMemory(String scopeKey) {
+        synchronized (recent) {
+            StoredResponse stored = recent.get(scopeKey);
+            if (stored == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - stored.storedAt() > ttl.toMillis()) {
+                recent.remove(scopeKey);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void remember(String scopeKey, StoredResponse stored) {
+        synchronized (recent) {
+            recent.put(scopeKey, stored);
+        }
+    }
+
+    private static boolean isOlderThan(LocalDateTime createdAt, Duration age) {
+        return createdAt != null && createdAt.isBefore(LocalDateTime.now().minus(age));
+    }
+
+    private static Claim replayOrMismatch(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return new Claim(ClaimState.MISMATCH, stored);
+        }
+        return new Claim(ClaimState.REPLAY, stored);
+    }
+
+    private static StoredResponse toStoredResponse(IdempotencyRecord record) {
+        long storedAt = record.getCreatedAt() == null
+                ? System.currentTimeMillis()
+                : record.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new StoredResponse(
+                record.getRequestHash(),
+                record.getStatusCode(),
+                record.getContentType(),
+                record.getResponseBody(),
+                storedAt
+        );
+    }
+}
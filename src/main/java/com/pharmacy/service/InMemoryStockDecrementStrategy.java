@@ -0,0 +1,126 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Medicine;
+import com.pharmacy.repository.MedicineRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts or rejects sales against per-medicine counters held in memory and leaves the
+ * {@code medicines.quantity} write to {@link InventoryFlushService}. Only safe when a single
+ * application node sells from the database.
+ */
+@Component
+@ConditionalOnProperty(name = "pharmacy.sales.stock-strategy", havingValue = "in-memory")
+public class InMemoryStockDecrementStrategy implements StockDecrementStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryStockDecrementStrategy.class);
+
+    private final MedicineRepository medicineRepository;
+    private final EntityManager entityManager;
+    private final InventoryFlushService inventoryFlushService;
+
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public InMemoryStockDecrementStrategy(MedicineRepository medicineRepository,
+                                          EntityManager entityManager,
+                                          InventoryFlushService inventoryFlushService) {
+        this.medicineRepository = medicineRepository;
+        this.entityManager = entityManager;
+        this.inventoryFlushService = inventoryFlushService;
+    }
+
+    @Override
+    public List<Medicine> loadForSale(Collection<Long> medicineIds) {
+        List<Medicine> medicines = medicineRepository.findByIdInAndActiveTrue(medicineIds);
+        // Detached so the in-memory quantity we report back is never flushed over the real row
+        medicines.forEach(entityManager::detach);
+        return medicines;
+    }
+
+    @Override
+    public boolean tryDecrement(Medicine medicine, int quantity) {
+        Long medicineId = medicine.getId();
+        AtomicInteger counter = available.computeIfAbsent(medicineId, this::seed);
+        int remaining;
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+            remaining = current - quantity;
+            if (counter.compareAndSet(current, remaining)) {
+                break;
+            }
+        }
+
+        inFlight.computeIfAbsent(medicineId, id -> new AtomicInteger()).addAndGet(quantity);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.get(medicineId).addAndGet(-quantity);
+                if (status != STATUS_COMMITTED) {
+                    AtomicInteger current = available.get(medicineId);
+                    if (current != null) {
+                        current.addAndGet(quantity);
+                    }
+                }
+            }
+        });
+
+        medicine.setQuantity(remaining);
+        return true;
+    }
+
+    @Override
+    public boolean appliesStockImmediately() {
+        return false;
+    }
+
+    @Override
+    public void onStockChanged(Long medicineId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            available.remove(medicineId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                available.remove(medicineId);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${pharmacy.inventory.flush-interval-ms:500}")
+    public void flush() {
+        inventoryFlushService.flushAll();
+    }
+
+    @PreDestroy
+    public void drain() {
+        int applied = inventoryFlushService.flushAll();
+        log.info("Flushed {} pending sale stock decrements on shutdown", applied);
+    }
+
+    private AtomicInteger seed(Long medicineId) {
+        // Read in-flight reservations before the database so a concurrent commit can only under-count
+        AtomicInteger reserved = inFlight.get(medicineId);
+        int reservedQuantity = reserved == null ? 0 : reserved.get();
+        Integer dbAvailable = medicineRepository.findAvailableQuantity(medicineId);
+        return new AtomicInteger((dbAvailable == null ? 0 : dbAvailable) - reservedQuantity);
+    }
+}
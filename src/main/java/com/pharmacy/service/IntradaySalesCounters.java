@@ -0,0 +1,179 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory sales totals for the current day, so dashboard polling does not hit MySQL. Committed sales are
+ * added from an after-commit hook; the totals are loaded from {@code sales_daily_rollup} once the application
+ * is ready and again when the date rolls over, through a {@link CommittedSalesFeed} so a sale committing
+ * during the load is counted once.
+ */
+@Service
+public class IntradaySalesCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(IntradaySalesCounters.class);
+
+    public static final class Day {
+
+        private final LocalDate date;
+        private final Map<SaleStatus, LongAdder> counts = new EnumMap<>(SaleStatus.class);
+        private final LongAdder revenueCents = new LongAdder();
+        private final LongAdder costCents = new LongAdder();
+
+        private Day(LocalDate date) {
+            this.date = date;
+            for (SaleStatus status : SaleStatus.values()) {
+                counts.put(status, new LongAdder());
+            }
+        }
+
+        public LocalDate date() {
+            return date;
+        }
+
+        public long count(SaleStatus status) {
+            return counts.get(status).sum();
+        }
+
+        public long totalCount() {
+            long total = 0;
+            for (LongAdder count : counts.values()) {
+                total += count.sum();
+            }
+            return total;
+        }
+
+        /**
+         * Revenue of VALID sales.
+         */
+        public long revenueCents() {
+            return revenueCents.sum();
+        }
+
+        /**
+         * Cost of VALID sales.
+         */
+        public long costCents() {
+            return costCents.sum();
+        }
+    }
+
+    private final SalesSummaryEngine salesSummaryEngine;
+    private final CommittedSalesFeed feed;
+    private final AtomicReference<Day> current = new AtomicReference<>(new Day(LocalDate.now()));
+
+    public IntradaySalesCounters(SalesSummaryEngine salesSummaryEngine,
+                                 SaleRepository saleRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.salesSummaryEngine = salesSummaryEngine;
+        this.feed = new CommittedSalesFeed(saleRepository, transactionManager, this::apply);
+    }
+
+    public Day today() {
+        Day day = dayFor(LocalDate.now());
+        // Null only if the clock went backwards past midnight
+        return day != null ? day : current.get();
+    }
+
+    /**
+     * Counts saved sales once their transaction commits, or straight away outside a transaction.
+     */
+    public void record(List<Sale> sales) {
+        feed.record(sales);
+    }
+
+    /**
+     * Runs after the rollup backfill so the first start after the rollup was introduced sees full totals.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void rebuild() {
+        feed.load(() -> {
+            LocalDate date = LocalDate.now();
+            Day day = new Day(date);
+            SalesSummaryEngine.Totals totals = salesSummaryEngine.forRange(date, date);
+            for (SaleStatus status : SaleStatus.values()) {
+                day.counts.get(status).add(totals.count(status));
+            }
+            day.revenueCents.add(toCents(totals.revenue(SaleStatus.VALID)));
+            day.costCents.add(toCents(totals.cost(SaleStatus.VALID)));
+            current.set(day);
+            log.info("Loaded intraday sales counters for {}: {} sales", date, day.totalCount());
+        });
+    }
+
+    /**
+     * Loads the new day from the rollup rather than starting it from zero, so each day starts from what is
+     * committed and not only from the sales this instance has seen.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rollOver() {
+        rebuild();
+    }
+
+    private void apply(List<Sale> sales) {
+        for (Sale sale : sales) {
+            if (sale.getSaleDate() == null || sale.getStatus() == null) {
+                continue;
+            }
+            Day day = dayFor(sale.getSaleDate().toLocalDate());
+            if (day == null) {
+                continue;
+            }
+            day.counts.get(sale.getStatus()).increment();
+            if (sale.getStatus() == SaleStatus.VALID) {
+                day.revenueCents.add(toCents(sale.getTotalPrice()));
+                if (sale.getUnitCost() != null) {
+                    day.costCents.add(toCents(sale.getUnitCost().multiply(BigDecimal.valueOf(sale.getQuantitySold()))));
+                }
+            }
+        }
+    }
+
+    /**
+     * The counters for {@code date}, starting a new day if it is later than the current one; null for a
+     * day that has already rolled over.
+     */
+    private Day dayFor(LocalDate date) {
+        while (true) {
+            Day day = current.get();
+            if (day.date.equals(date)) {
+                return day;
+            }
+            if (date.isBefore(day.date)) {
+                return null;
+            }
+            Day next = new Day(date);
+            if (current.compareAndSet(day, next)) {
+                return next;
+            }
+        }
+    }
+
+    static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,80 @@
+package com.pharmacy.service;
+
+import com.pharmacy.repository.MedicineRepository;
+import com.pharmacy.repository.SaleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes stock decrements owed by sales with {@code stock_applied = 0} back to {@code medicines.quantity}.
+ * The sale rows are the durable log, so a chunk is applied and marked in the same transaction and a crash
+ * before the flush is repaired on the next startup.
+ */
+@Service
+public class InventoryFlushService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryFlushService.class);
+
+    private final SaleRepository saleRepository;
+    private final MedicineRepository medicineRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public InventoryFlushService(SaleRepository saleRepository,
+                                 MedicineRepository medicineRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pharmacy.inventory.flush-chunk-size:1000}") int chunkSize) {
+        this.saleRepository = saleRepository;
+        this.medicineRepository = medicineRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingStock() {
+        int applied = flushAll();
+        if (applied > 0) {
+            log.info("Recovered {} sales whose stock decrement was not written before shutdown", applied);
+        }
+    }
+
+    public int flushAll() {
+        int total = 0;
+        int applied;
+        do {
+            applied = flushChunk();
+            total += applied;
+        } while (applied == chunkSize);
+        return total;
+    }
+
+    private int flushChunk() {
+        Integer applied = transactionTemplate.execute(status -> {
+            List<Object[]> rows = saleRepository.lockPendingStock(chunkSize);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            List<Long> saleIds = new ArrayList<>(rows.size());
+            Map<Long, Integer> decrements = new LinkedHashMap<>();
+            for (Object[] row : rows) {
+                saleIds.add(((Number) row[0]).longValue());
+                decrements.merge(((Number) row[1]).longValue(), ((Number) row[2]).intValue(), Integer::sum);
+            }
+            decrements.forEach(medicineRepository::applyPendingDecrement);
+            saleRepository.markStockApplied(saleIds);
+            return saleIds.size();
+        });
+        return applied == null ? 0 : applied;
+    }
+}
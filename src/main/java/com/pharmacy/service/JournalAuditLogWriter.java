@@ -0,0 +1,142 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditJournalCheckpoint;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditJournalCheckpointRepository;
+import com.pharmacy.repository.AuditLogRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Appends audit entries to a local {@link AuditJournal} after the caller's transaction commits, and loads
+ * the journal into {@code audit_logs} in the background. The indexed position is stored in
+ * {@code audit_journal_checkpoint} together with the rows, so segments left unindexed at shutdown are
+ * replayed on the next start without duplicates.
+ */
+@Component
+@ConditionalOnProperty(name = "pharmacy.audit.writer", havingValue = "journal")
+public class JournalAuditLogWriter implements AuditLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalAuditLogWriter.class);
+
+    private final AuditJournal journal;
+    private final AuditLogRepository auditLogRepository;
+    private final AuditJournalCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int indexBatchSize;
+
+    public JournalAuditLogWriter(AuditLogRepository auditLogRepository,
+                                 AuditJournalCheckpointRepository checkpointRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pharmacy.audit.journal.dir:audit-journal}") String directory,
+                                 @Value("${pharmacy.audit.journal.segment-size-mb:64}") int segmentSizeMb,
+                                 @Value("${pharmacy.audit.journal.fsync:false}") boolean fsync,
+                                 @Value("${pharmacy.audit.journal.index-batch-size:500}") int indexBatchSize)
+            throws IOException {
+        this.journal = new AuditJournal(Path.of(directory), segmentSizeMb * 1024 * 1024, fsync);
+        this.auditLogRepository = auditLogRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The oversized-entry fallback runs from afterCommit, where the caller's transaction is already committed
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.indexBatchSize = Math.max(1, indexBatchSize);
+    }
+
+    @Override
+    public void write(List<AuditLog> entries) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(entries);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append(entries);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverUnindexed() {
+        int indexed = indexPending();
+        if (indexed > 0) {
+            log.info("Replayed {} audit entries from the journal that were not indexed before shutdown", indexed);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pharmacy.audit.journal.index-interval-ms:500}")
+    public void index() {
+        try {
+            indexPending();
+        } catch (RuntimeException ex) {
+            log.error("Audit journal indexing failed, will retry", ex);
+        }
+    }
+
+    public synchronized int indexPending() {
+        int total = 0;
+        int indexed;
+        do {
+            indexed = indexBatch();
+            total += indexed;
+        } while (indexed == indexBatchSize);
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        try {
+            indexPending();
+        } catch (RuntimeException ex) {
+            log.warn("Audit journal not fully indexed at shutdown, it will be replayed on start: {}", ex.getMessage());
+        }
+        journal.close();
+    }
+
+    private void append(List<AuditLog> entries) {
+        try {
+            journal.append(entries);
+        } catch (IllegalArgumentException ex) {
+            // An entry too large for a segment; the journal wrote none of the list, so all of it goes to the table
+            log.warn("Writing {} audit entries straight to the table: {}", entries.size(), ex.getMessage());
+            transactionTemplate.executeWithoutResult(status -> auditLogRepository.saveAll(entries));
+        }
+    }
+
+    private int indexBatch() {
+        AuditJournalCheckpoint checkpoint = checkpointRepository.findById(AuditJournalCheckpoint.SINGLETON_ID)
+                .orElseGet(() -> {
+                    AuditJournal.Position first = journal.first();
+                    return new AuditJournalCheckpoint(AuditJournalCheckpoint.SINGLETON_ID, first.segment(), first.offset());
+                });
+        AuditJournal.Position from = new AuditJournal.Position(checkpoint.getSegment(), checkpoint.getPosition());
+        AuditJournal.Batch batch = journal.read(from, indexBatchSize);
+        if (batch.next().equals(from)) {
+            return 0;
+        }
+        checkpoint.setSegment(batch.next().segment());
+        checkpoint.setPosition(batch.next().offset());
+        transactionTemplate.executeWithoutResult(status -> {
+            auditLogRepository.saveAll(batch.entries());
+            checkpointRepository.save(checkpoint);
+        });
+        journal.deleteBefore(batch.next());
+        return batch.entries().size();
+    }
+}
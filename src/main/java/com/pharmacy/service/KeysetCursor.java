@@ -0,0 +1,43 @@
+package com.pharmacy.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for pages ordered by a timestamp and then id: the last row's {@code timestamp|id}, URL-safe
+ * Base64 encoded.
+ */
+record KeysetCursor(LocalDateTime at, Long id) {
+
+    static final int MAX_PAGE_SIZE = 500;
+
+    static int pageSize(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+    }
+
+    static String encode(LocalDateTime at, Long id) {
+        String raw = at + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The position after which the next page starts, or null for the first page.
+     */
+    static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
@@ -18,14 +18,17 @@ public class MedicineService {
 
     private final MedicineRepository medicineRepository;
     private final AuditLogService auditLogService;
+    private final StockDecrementStrategy stockDecrementStrategy;
 
     @Value("${pharmacy.low-stock-threshold:10}")
     private int lowStockThreshold;
 
     public MedicineService(MedicineRepository medicineRepository,
-                           AuditLogService auditLogService) {
+                           AuditLogService auditLogService,
+                           StockDecrementStrategy stockDecrementStrategy) {
         this.medicineRepository = medicineRepository;
         this.auditLogService = auditLogService;
+        this.stockDecrementStrategy = stockDecrementStrategy;
     }
 
     public List<Medicine> getAllMedicines() {
@@ -77,6 +80,7 @@ public class MedicineService {
         medicine.setExpiryDate(medicineDetails.getExpiryDate());
 
         Medicine saved = medicineRepository.save(medicine);
+        stockDecrementStrategy.onStockChanged(saved.getId());
         auditLogService.log("UPDATE", "MEDICINE", saved.getId(), changeSummary);
         return saved;
     }
@@ -116,6 +120,7 @@ public class MedicineService {
         medicine.setActive(true);
 
         Medicine saved = medicineRepository.save(medicine);
+        stockDecrementStrategy.onStockChanged(saved.getId());
         auditLogService.log("UPDATE", "MEDICINE", saved.getId(), changeSummary);
         return saved;
     }
@@ -153,6 +158,7 @@ public class MedicineService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Medicine with ID " + id + " not found"));
         medicine.setActive(false);
         medicineRepository.save(medicine);
+        stockDecrementStrategy.onStockChanged(medicine.getId());
         auditLogService.log(
                 "DELETE",
                 "MEDICINE",
@@ -162,7 +168,8 @@ public class MedicineService {
     }
 
     public List<Medicine> getLowStockMedicines() {
-        return medicineRepository.findLowStockMedicines(lowStockThreshold);
+        List<Long> ids = medicineRepository.findLowStockMedicineIds(lowStockThreshold);
+        return ids.isEmpty() ? List.of() : medicineRepository.findAllById(ids);
     }
 
     public int getLowStockThreshold() {
@@ -0,0 +1,45 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Medicine;
+import com.pharmacy.repository.MedicineRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "pharmacy.sales.stock-strategy", havingValue = "optimistic")
+public class OptimisticStockDecrementStrategy implements StockDecrementStrategy {
+
+    private final MedicineRepository medicineRepository;
+    private final int maxAttempts;
+
+    public OptimisticStockDecrementStrategy(MedicineRepository medicineRepository,
+                                            @Value("${pharmacy.sales.optimistic-max-attempts:5}") int maxAttempts) {
+        this.medicineRepository = medicineRepository;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public List<Medicine> loadForSale(Collection<Long> medicineIds) {
+        return medicineRepository.findByIdInAndActiveTrue(medicineIds);
+    }
+
+    @Override
+    public boolean tryDecrement(Medicine medicine, int quantity) {
+        if (medicine.getQuantity() < quantity) {
+            return false;
+        }
+        medicine.setQuantity(medicine.getQuantity() - quantity);
+        // Flush now so a version conflict fails this attempt before the sale row is written
+        medicineRepository.saveAndFlush(medicine);
+        return true;
+    }
+
+    @Override
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,35 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Medicine;
+import com.pharmacy.repository.MedicineRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "pharmacy.sales.stock-strategy", havingValue = "pessimistic")
+public class PessimisticStockDecrementStrategy implements StockDecrementStrategy {
+
+    private final MedicineRepository medicineRepository;
+
+    public PessimisticStockDecrementStrategy(MedicineRepository medicineRepository) {
+        this.medicineRepository = medicineRepository;
+    }
+
+    @Override
+    public List<Medicine> loadForSale(Collection<Long> medicineIds) {
+        return medicineRepository.findByIdInAndActiveTrueForUpdate(medicineIds);
+    }
+
+    @Override
+    public boolean tryDecrement(Medicine medicine, int quantity) {
+        if (medicine.getQuantity() < quantity) {
+            return false;
+        }
+        medicine.setQuantity(medicine.getQuantity() - quantity);
+        medicineRepository.save(medicine);
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.HourlyProfitDto;
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.dto.ProfitSummaryDto;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayTotals;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Day, summary and per-medicine questions from {@code sales_daily_rollup}, the trailing top-profit window from
+ * {@link TopProfitTracker}. Hour of day is finer than the rollup, so those totals are grouped over {@code sales}
+ * and, for archived months, over the {@link SalesArchive}.
+ */
+@Service
+@ConditionalOnProperty(name = "pharmacy.analytics.backend", havingValue = "rollup", matchIfMissing = true)
+public class RollupSalesAnalytics implements SalesAnalytics {
+
+    private final SalesSummaryEngine salesSummaryEngine;
+    private final SalesRollupService salesRollupService;
+    private final TopProfitTracker topProfitTracker;
+    private final SaleRepository saleRepository;
+    private final SalesArchive salesArchive;
+
+    public RollupSalesAnalytics(SalesSummaryEngine salesSummaryEngine,
+                                SalesRollupService salesRollupService,
+                                TopProfitTracker topProfitTracker,
+                                SaleRepository saleRepository,
+                                SalesArchive salesArchive) {
+        this.salesSummaryEngine = salesSummaryEngine;
+        this.salesRollupService = salesRollupService;
+        this.topProfitTracker = topProfitTracker;
+        this.saleRepository = saleRepository;
+        this.salesArchive = salesArchive;
+    }
+
+    @Override
+    public ProfitSummaryDto profitSummary(LocalDate start, LocalDate end) {
+        SalesSummaryEngine.Totals totals = salesSummaryEngine.forRange(start, end);
+        BigDecimal revenue = totals.revenue(SaleStatus.VALID);
+        BigDecimal cost = totals.cost(SaleStatus.VALID);
+        return new ProfitSummaryDto(start, end, revenue, cost, revenue.subtract(cost), totals.count(SaleStatus.VALID));
+    }
+
+    @Override
+    public Map<LocalDate, DayTotals> profitByDay(LocalDate start, LocalDate end) {
+        return salesSummaryEngine.byDay(SaleStatus.VALID, start, end);
+    }
+
+    @Override
+    public List<ProfitByMedicineDto> topProfitMedicines(LocalDate start, LocalDate end, int limit) {
+        return topProfitTracker.top(start, end, limit)
+                .orElseGet(() -> salesRollupService.topProfitByMedicine(start, end, limit));
+    }
+
+    @Override
+    public List<HourlyProfitDto> profitByHour(LocalDate start, LocalDate end) {
+        long[][] hours = salesArchive.hourTotals(start, end);
+        BigDecimal[] revenue = new BigDecimal[24];
+        BigDecimal[] cost = new BigDecimal[24];
+        for (int hour = 0; hour < 24; hour++) {
+            revenue[hour] = BigDecimal.valueOf(hours[hour][2], 2);
+            cost[hour] = BigDecimal.valueOf(hours[hour][3], 2);
+        }
+        // Archived months are read from their files above; only the rest of the range is grouped over sales
+        LocalDate liveStart = salesArchive.liveFrom().filter(start::isBefore).orElse(start);
+        if (!liveStart.isAfter(end)) {
+            for (SaleRepository.HourTotals row : saleRepository.totalsByHour(
+                    liveStart.atStartOfDay(), end.plusDays(1).atStartOfDay())) {
+                int hour = row.getHour().intValue();
+                hours[hour][0] += row.getSaleCount().longValue();
+                hours[hour][1] += row.getQuantity().longValue();
+                revenue[hour] = revenue[hour].add(row.getRevenue());
+                cost[hour] = cost[hour].add(row.getCost());
+            }
+        }
+        List<HourlyProfitDto> result = new ArrayList<>(24);
+        for (int hour = 0; hour < 24; hour++) {
+            result.add(new HourlyProfitDto(hour, hours[hour][0], hours[hour][1], revenue[hour], cost[hour],
+                    revenue[hour].subtract(cost[hour])));
+        }
+        return result;
+    }
+
+    @Override
+    public void record(List<Sale> sales) {
+        topProfitTracker.record(sales);
+    }
+}
@@ -0,0 +1,197 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleRequest;
+import com.pharmacy.model.Sale;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects concurrent single-item sales for up to {@code max-wait-ms} or {@code max-batch-size} requests
+ * and commits them together, so peak throughput is bounded by batches per second rather than commits per
+ * second. When disabled, sales go straight to {@link SaleService#createSale}. A caller waits at most
+ * {@code result-timeout-ms} for its batch, and if the worker stops for any reason every sale still waiting
+ * on it is failed.
+ */
+@Service
+public class SaleGroupCommitService {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleGroupCommitService.class);
+
+    private final SaleService saleService;
+    private final AuditLogService auditLogService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long resultTimeoutMs;
+    private final BlockingQueue<PendingSale> queue;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public SaleGroupCommitService(SaleService saleService,
+                                  AuditLogService auditLogService,
+                                  @Value("${pharmacy.sales.group-commit.enabled:false}") boolean enabled,
+                                  @Value("${pharmacy.sales.group-commit.max-batch-size:50}") int maxBatchSize,
+                                  @Value("${pharmacy.sales.group-commit.max-wait-ms:5}") long maxWaitMs,
+                                  @Value("${pharmacy.sales.group-commit.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${pharmacy.sales.group-commit.result-timeout-ms:30000}") long resultTimeoutMs) {
+        this.saleService = saleService;
+        this.auditLogService = auditLogService;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.resultTimeoutMs = Math.max(1, resultTimeoutMs);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::drainLoop, "sale-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        failQueued("Server is shutting down");
+    }
+
+    public Sale submit(SaleRequest request) {
+        if (!enabled) {
+            return saleService.createSale(request);
+        }
+
+        // The worker thread has no security context, so the audit actor is captured here
+        PendingSale pending = new PendingSale(request, auditLogService.currentActor(), new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many sales in progress, please retry");
+        }
+        // The worker may have stopped and failed the queue just before the offer
+        if (!running && queue.remove(pending)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Sales are not being accepted, please retry");
+        }
+        try {
+            return pending.result().get(resultTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            if (queue.remove(pending)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many sales in progress, please retry");
+            }
+            // Already taken into a batch, which may still commit
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Sale is taking too long; check the sales history before retrying");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Sale was interrupted");
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingSale> batch = List.of();
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingSale first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingSale next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    commit(batch);
+                } catch (RuntimeException ex) {
+                    log.error("Sale group commit worker failed", ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // However the loop ended, nobody may be left waiting on a worker that is gone
+            running = false;
+            for (PendingSale pending : batch) {
+                pending.result().completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Sale processing stopped; check the sales history before retrying"));
+            }
+            failQueued("Sales are not being accepted, please retry");
+        }
+    }
+
+    private void failQueued(String reason) {
+        PendingSale pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason));
+        }
+    }
+
+    private void commit(List<PendingSale> batch) {
+        List<SaleRequest> requests = new ArrayList<>(batch.size());
+        List<String> actors = new ArrayList<>(batch.size());
+        for (PendingSale pending : batch) {
+            requests.add(pending.request());
+            actors.add(pending.actor());
+        }
+
+        List<SaleService.BatchOutcome> outcomes;
+        try {
+            outcomes = saleService.createSales(requests, actors);
+        } catch (RuntimeException ex) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(ex);
+                return;
+            }
+            // One bad request must not fail its neighbours, so replay the batch one sale at a time
+            log.warn("Sale group commit of {} requests failed, retrying individually: {}", batch.size(), ex.getMessage());
+            for (PendingSale pending : batch) {
+                commit(List.of(pending));
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            SaleService.BatchOutcome outcome = outcomes.get(i);
+            if (outcome.error() != null) {
+                batch.get(i).result().completeExceptionally(outcome.error());
+            } else {
+                batch.get(i).result().complete(outcome.sale());
+            }
+        }
+    }
+
+    private record PendingSale(SaleRequest request, String actor, CompletableFuture<Sale> result) {}
+}
@@ -0,0 +1,75 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleHistoryItem;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+@Service
+public class SaleQueryService {
+
+
+    public record SaleFilter(SaleStatus status, Long medicineId, LocalDateTime from, LocalDateTime to,
+                             BigDecimal minAmount, BigDecimal maxAmount) {
+    }
+
+    public record SalePage(List<SaleHistoryItem> items, String nextCursor) {
+    }
+
+    private final SaleRepository saleRepository;
+
+    public SaleQueryService(SaleRepository saleRepository) {
+        this.saleRepository = saleRepository;
+    }
+
+    /**
+     * Builds a filter from inclusive {@code yyyy-MM-dd} day bounds and an inclusive amount range.
+     */
+    public SaleFilter filter(SaleStatus status, Long medicineId, String from, String to,
+                             BigDecimal minAmount, BigDecimal maxAmount) {
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minAmount must not exceed maxAmount");
+        }
+        try {
+            LocalDateTime start = from == null || from.isBlank() ? null : LocalDate.parse(from).atStartOfDay();
+            LocalDateTime end = to == null || to.isBlank() ? null : LocalDate.parse(to).plusDays(1).atStartOfDay();
+            if (start != null && end != null && !start.isBefore(end)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be on or before to");
+            }
+            return new SaleFilter(status, medicineId, start, end, minAmount, maxAmount);
+        } catch (DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from and to must be yyyy-MM-dd dates");
+        }
+    }
+
+    public SalePage page(SaleFilter filter, String cursor, int limit) {
+        int safeLimit = KeysetCursor.pageSize(limit);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<SaleHistoryItem> items = saleRepository.history(
+                filter.status(),
+                filter.medicineId(),
+                filter.from(),
+                filter.to(),
+                filter.minAmount(),
+                filter.maxAmount(),
+                after == null ? null : after.at(),
+                after == null ? null : after.id(),
+                PageRequest.of(0, safeLimit)
+        );
+        String nextCursor = null;
+        if (items.size() == safeLimit) {
+            SaleHistoryItem last = items.get(items.size() - 1);
+            nextCursor = KeysetCursor.encode(last.saleDate(), last.id());
+        }
+        return new SalePage(items, nextCursor);
+    }
+}
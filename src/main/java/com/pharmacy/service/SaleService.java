@@ -1,112 +1,364 @@
 package com.pharmacy.service;
 
+import com.pharmacy.dto.BasketSaleLine;
+import com.pharmacy.dto.BasketSaleRequest;
+import com.pharmacy.dto.BasketSaleResponse;
+import com.pharmacy.dto.HourlyProfitDto;
 import com.pharmacy.dto.SaleRequest;
 import com.pharmacy.dto.ProfitByMedicineDto;
 import com.pharmacy.dto.ProfitPeriod;
 import com.pharmacy.dto.ProfitPointDto;
 import com.pharmacy.dto.ProfitSummaryDto;
+import com.pharmacy.model.AuditLog;
 import com.pharmacy.model.Medicine;
 import com.pharmacy.model.Sale;
 import com.pharmacy.model.SaleStatus;
-import com.pharmacy.repository.MedicineRepository;
 import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayTotals;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
 @Service
 public class SaleService {
 
-    private final MedicineRepository medicineRepository;
+    private static final int MAX_BASKET_LINES = 100;
+    private static final int MAX_LOCK_ATTEMPTS = 3;
+
     private final SaleRepository saleRepository;
     private final AuditLogService auditLogService;
+    private final StockDecrementStrategy stockDecrementStrategy;
+    private final SalesRollupService salesRollupService;
+    private final IntradaySalesCounters intradaySalesCounters;
+    private final SalesSummaryCache salesSummaryCache;
+    private final SalesEventBroadcaster salesEventBroadcaster;
+    private final SalesAnalytics salesAnalytics;
+    private final TransactionTemplate transactionTemplate;
 
-    public SaleService(MedicineRepository medicineRepository,
-                       SaleRepository saleRepository,
-                       AuditLogService auditLogService) {
-        this.medicineRepository = medicineRepository;
+    public SaleService(SaleRepository saleRepository,
+                       AuditLogService auditLogService,
+                       StockDecrementStrategy stockDecrementStrategy,
+                       SalesRollupService salesRollupService,
+                       IntradaySalesCounters intradaySalesCounters,
+                       SalesSummaryCache salesSummaryCache,
+                       SalesEventBroadcaster salesEventBroadcaster,
+                       SalesAnalytics salesAnalytics,
+                       PlatformTransactionManager transactionManager) {
         this.saleRepository = saleRepository;
         this.auditLogService = auditLogService;
+        this.stockDecrementStrategy = stockDecrementStrategy;
+        this.salesRollupService = salesRollupService;
+        this.intradaySalesCounters = intradaySalesCounters;
+        this.salesSummaryCache = salesSummaryCache;
+        this.salesEventBroadcaster = salesEventBroadcaster;
+        this.salesAnalytics = salesAnalytics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
     public Sale createSale(SaleRequest request) {
-        Medicine medicine = medicineRepository.findByIdAndActiveTrue(request.getMedicineId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Medicine not found"));
+        return inSaleTransaction(() -> {
+            Medicine medicine = stockDecrementStrategy.loadForSale(List.of(request.getMedicineId())).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Medicine not found"));
+
+            PreparedSale prepared = prepareSales(List.of(medicine), List.of(request.getQuantity()), LocalDateTime.now())
+                    .get(0);
+            String message = prepared.auditMessage();
+
+            Sale saved = saleRepository.save(prepared.sale());
+            salesRollupService.record(List.of(saved));
+            intradaySalesCounters.record(List.of(saved));
+            salesAnalytics.record(List.of(saved));
+            salesSummaryCache.invalidate(List.of(saved));
+            salesEventBroadcaster.publish(List.of(saved));
+            auditLogService.log(auditAction(saved), "SALE", saved.getId(), message);
+            return saved;
+        });
+    }
+
+    public BasketSaleResponse createBasketSale(BasketSaleRequest request) {
+        if (request == null || request.getItems() == null || request.getItems().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Basket must contain at least one item");
+        }
+        List<SaleRequest> items = request.getItems();
+        if (items.size() > MAX_BASKET_LINES) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Basket cannot contain more than " + MAX_BASKET_LINES + " items"
+            );
+        }
+
+        Set<Long> medicineIds = new LinkedHashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            SaleRequest item = items.get(i);
+            if (item == null || item.getMedicineId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Medicine is required on line " + (i + 1));
+            }
+            if (item.getQuantity() < 1) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be at least 1 on line " + (i + 1));
+            }
+            medicineIds.add(item.getMedicineId());
+        }
+
+        return inSaleTransaction(() -> sellBasket(items, medicineIds));
+    }
+
+    private BasketSaleResponse sellBasket(List<SaleRequest> items, Set<Long> medicineIds) {
+        // One IN query for the whole basket instead of a lookup per line
+        Map<Long, Medicine> medicines = new HashMap<>();
+        for (Medicine medicine : stockDecrementStrategy.loadForSale(medicineIds)) {
+            medicines.put(medicine.getId(), medicine);
+        }
+        for (Long medicineId : medicineIds) {
+            if (!medicines.containsKey(medicineId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Medicine not found: " + medicineId);
+            }
+        }
+
+        List<Medicine> lineMedicines = new ArrayList<>(items.size());
+        List<Integer> quantities = new ArrayList<>(items.size());
+        for (SaleRequest item : items) {
+            lineMedicines.add(medicines.get(item.getMedicineId()));
+            quantities.add(item.getQuantity());
+        }
+        List<Sale> sales = new ArrayList<>(items.size());
+        List<String> messages = new ArrayList<>(items.size());
+        for (PreparedSale prepared : prepareSales(lineMedicines, quantities, LocalDateTime.now())) {
+            sales.add(prepared.sale());
+            messages.add(prepared.auditMessage());
+        }
 
+        List<Sale> saved = saleRepository.saveAll(sales);
+        salesRollupService.record(saved);
+        intradaySalesCounters.record(saved);
+        salesAnalytics.record(saved);
+        salesSummaryCache.invalidate(saved);
+        salesEventBroadcaster.publish(saved);
+
+        List<AuditLog> entries = new ArrayList<>(saved.size());
+        List<BasketSaleLine> lines = new ArrayList<>(saved.size());
+        long validLines = 0;
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (int i = 0; i < saved.size(); i++) {
+            Sale sale = saved.get(i);
+            entries.add(auditLogService.entry(auditAction(sale), "SALE", sale.getId(), messages.get(i)));
+            lines.add(new BasketSaleLine(
+                    i + 1,
+                    sale.getId(),
+                    sale.getMedicine().getId(),
+                    sale.getMedicine().getName(),
+                    sale.getQuantitySold(),
+                    sale.getTotalPrice(),
+                    sale.getStatus()
+            ));
+            if (sale.getStatus() == SaleStatus.VALID) {
+                validLines++;
+                if (sale.getTotalPrice() != null) {
+                    totalPrice = totalPrice.add(sale.getTotalPrice());
+                }
+            }
+        }
+        auditLogService.logAll(entries);
+
+        return new BasketSaleResponse(lines, validLines, saved.size() - validLines, totalPrice);
+    }
+
+    /**
+     * Sells independent requests from different callers in one transaction. A missing medicine only fails
+     * its own request; anything that aborts the transaction fails the whole batch.
+     */
+    public List<BatchOutcome> createSales(List<SaleRequest> requests, List<String> actors) {
+        return inSaleTransaction(() -> {
+            Set<Long> medicineIds = new LinkedHashSet<>();
+            for (SaleRequest request : requests) {
+                if (request.getMedicineId() != null) {
+                    medicineIds.add(request.getMedicineId());
+                }
+            }
+            Map<Long, Medicine> medicines = new HashMap<>();
+            for (Medicine medicine : stockDecrementStrategy.loadForSale(medicineIds)) {
+                medicines.put(medicine.getId(), medicine);
+            }
+
+            BatchOutcome[] outcomes = new BatchOutcome[requests.size()];
+            List<Integer> positions = new ArrayList<>(requests.size());
+            List<Medicine> lineMedicines = new ArrayList<>(requests.size());
+            List<Integer> quantities = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                SaleRequest request = requests.get(i);
+                Medicine medicine = medicines.get(request.getMedicineId());
+                if (medicine == null) {
+                    outcomes[i] = new BatchOutcome(null,
+                            new ResponseStatusException(HttpStatus.NOT_FOUND, "Medicine not found"));
+                    continue;
+                }
+                positions.add(i);
+                lineMedicines.add(medicine);
+                quantities.add(request.getQuantity());
+            }
+            List<Sale> sales = new ArrayList<>(positions.size());
+            List<String> messages = new ArrayList<>(positions.size());
+            for (PreparedSale prepared : prepareSales(lineMedicines, quantities, LocalDateTime.now())) {
+                sales.add(prepared.sale());
+                messages.add(prepared.auditMessage());
+            }
+
+            List<Sale> saved = saleRepository.saveAll(sales);
+            salesRollupService.record(saved);
+            intradaySalesCounters.record(saved);
+            salesAnalytics.record(saved);
+            salesSummaryCache.invalidate(saved);
+            salesEventBroadcaster.publish(saved);
+            List<AuditLog> entries = new ArrayList<>(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                Sale sale = saved.get(i);
+                int position = positions.get(i);
+                entries.add(auditLogService.entry(
+                        auditAction(sale), "SALE", sale.getId(), messages.get(i), actors.get(position)));
+                outcomes[position] = new BatchOutcome(sale, null);
+            }
+            auditLogService.logAll(entries);
+            return List.of(outcomes);
+        });
+    }
+
+    public record BatchOutcome(Sale sale, RuntimeException error) {}
+
+    private record PreparedSale(Sale sale, String auditMessage) {}
+
+    /**
+     * Prepares one sale per line. Stock is taken medicine by medicine in ascending id order, so transactions
+     * selling overlapping medicines lock their rows in the same order and cannot deadlock each other. The lines
+     * of one medicine are first taken as a single decrement; if that fails they are retried one by one, so they
+     * still draw down the stock in line order.
+     */
+    private List<PreparedSale> prepareSales(List<Medicine> medicines, List<Integer> quantities, LocalDateTime saleDate) {
+        Map<Long, List<Integer>> linesByMedicine = new TreeMap<>();
+        for (int i = 0; i < medicines.size(); i++) {
+            linesByMedicine.computeIfAbsent(medicines.get(i).getId(), id -> new ArrayList<>()).add(i);
+        }
+
+        PreparedSale[] prepared = new PreparedSale[medicines.size()];
+        for (List<Integer> lines : linesByMedicine.values()) {
+            Medicine medicine = medicines.get(lines.get(0));
+            if (medicine.getExpiryDate().isBefore(LocalDate.now())) {
+                for (int line : lines) {
+                    prepared[line] = prepared(medicine, quantities.get(line), saleDate, SaleStatus.REJECTED_EXPIRED);
+                }
+                continue;
+            }
+
+            long total = 0;
+            for (int line : lines) {
+                total += quantities.get(line);
+            }
+            if (lines.size() > 1 && total <= Integer.MAX_VALUE
+                    && stockDecrementStrategy.tryDecrement(medicine, (int) total)) {
+                // Each line reports the stock left after it, as if the lines had been taken one by one
+                int remaining = medicine.getQuantity() + (int) total;
+                for (int line : lines) {
+                    remaining -= quantities.get(line);
+                    Sale sale = sale(medicine, quantities.get(line), saleDate, SaleStatus.VALID);
+                    prepared[line] = new PreparedSale(sale, auditMessage(sale, remaining));
+                }
+                continue;
+            }
+
+            for (int line : lines) {
+                SaleStatus status = stockDecrementStrategy.tryDecrement(medicine, quantities.get(line))
+                        ? SaleStatus.VALID
+                        : SaleStatus.REJECTED_OUT_OF_STOCK;
+                prepared[line] = prepared(medicine, quantities.get(line), saleDate, status);
+            }
+        }
+        return List.of(prepared);
+    }
+
+    private PreparedSale prepared(Medicine medicine, int quantity, LocalDateTime saleDate, SaleStatus status) {
+        Sale sale = sale(medicine, quantity, saleDate, status);
+        return new PreparedSale(sale, auditMessage(sale, medicine.getQuantity()));
+    }
+
+    private Sale sale(Medicine medicine, int quantity, LocalDateTime saleDate, SaleStatus status) {
         Sale sale = new Sale();
         sale.setMedicine(medicine);
-        sale.setQuantitySold(request.getQuantity());
-        sale.setSaleDate(LocalDateTime.now());
-
-        // Check Expiry
-        if (medicine.getExpiryDate().isBefore(LocalDate.now())) {
-            sale.setStatus(SaleStatus.REJECTED_EXPIRED);
-            Sale saved = saleRepository.save(sale);
-            auditLogService.log(
-                    "SALE_REJECTED",
-                    "SALE",
-                    saved.getId(),
-                    "Rejected expired sale for " + medicine.getName() + " (batch " + medicine.getBatchNumber() + ") qty " + request.getQuantity()
-            );
-            return saved;
+        sale.setQuantitySold(quantity);
+        sale.setSaleDate(saleDate);
+        sale.setUnitPrice(medicine.getPrice());
+        sale.setUnitCost(medicine.getCostPrice());
+        sale.setStatus(status);
+        if (status == SaleStatus.VALID) {
+            sale.setStockApplied(stockDecrementStrategy.appliesStockImmediately());
         }
+        return sale;
+    }
 
-        // Check Stock
-        if (medicine.getQuantity() < request.getQuantity()) {
-            sale.setStatus(SaleStatus.REJECTED_OUT_OF_STOCK);
-            Sale saved = saleRepository.save(sale);
-            auditLogService.log(
-                    "SALE_REJECTED",
-                    "SALE",
-                    saved.getId(),
-                    "Rejected out-of-stock sale for " + medicine.getName() + " (batch " + medicine.getBatchNumber() + ") qty " + request.getQuantity()
-            );
-            return saved;
+    private <T> T inSaleTransaction(Supplier<T> work) {
+        int maxAttempts = Math.max(1, stockDecrementStrategy.maxAttempts());
+        int lockAttempts = 0;
+        for (int attempt = 1; ; ) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt++ >= maxAttempts) {
+                    throw new ResponseStatusException(
+                            HttpStatus.CONFLICT,
+                            "Stock was changed by another sale, please retry"
+                    );
+                }
+            } catch (PessimisticLockingFailureException ex) {
+                // A deadlock or lock wait timeout rolled the whole transaction back, so it can run again
+                if (++lockAttempts >= MAX_LOCK_ATTEMPTS) {
+                    throw new ResponseStatusException(
+                            HttpStatus.CONFLICT,
+                            "Stock is locked by another sale, please retry"
+                    );
+                }
+            }
         }
+    }
+
+    private String auditAction(Sale sale) {
+        return sale.getStatus() == SaleStatus.VALID ? "SALE" : "SALE_REJECTED";
+    }
 
-        // Reduce Stock
-        medicine.setQuantity(medicine.getQuantity() - request.getQuantity());
-        medicineRepository.save(medicine);
-
-        // Finalize Sale
-        sale.setStatus(SaleStatus.VALID);
-        Sale saved = saleRepository.save(sale);
-        auditLogService.log(
-                "SALE",
-                "SALE",
-                saved.getId(),
-                "Sale for " + medicine.getName() + " (batch " + medicine.getBatchNumber() + ") qty "
-                        + request.getQuantity() + " remaining " + medicine.getQuantity()
-        );
-        return saved;
+    private String auditMessage(Sale sale, int remaining) {
+        Medicine medicine = sale.getMedicine();
+        String item = medicine.getName() + " (batch " + medicine.getBatchNumber() + ") qty " + sale.getQuantitySold();
+        return switch (sale.getStatus()) {
+            case REJECTED_EXPIRED -> "Rejected expired sale for " + item;
+            case REJECTED_OUT_OF_STOCK -> "Rejected out-of-stock sale for " + item;
+            case VALID -> "Sale for " + item + " remaining " + remaining;
+        };
     }
 
     public ProfitSummaryDto getProfitSummary(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-
-        var revenue = saleRepository.sumTotalPriceByStatusAndDateBetween(
-                SaleStatus.VALID, start, end);
-        var cost = saleRepository.sumTotalCostByStatusAndDateBetween(
-                SaleStatus.VALID, start, end);
-        var count = saleRepository.countByStatusAndSaleDateBetween(
-                SaleStatus.VALID, start, end);
-
-        var profit = revenue.subtract(cost);
-        return new ProfitSummaryDto(startDate, endDate, revenue, cost, profit, count);
+        return salesAnalytics.profitSummary(startDate, endDate);
     }
 
     public List<ProfitPointDto> getProfitSeries(LocalDate startDate,
                                                 LocalDate endDate,
                                                 ProfitPeriod period) {
+        // One per-day read from the analytics backend, bucketed and gap-filled here. Monthly buckets start on the 1st.
+        LocalDate firstDay = period == ProfitPeriod.MONTHLY ? YearMonth.from(startDate).atDay(1) : startDate;
+        Map<LocalDate, DayTotals> days = salesAnalytics.profitByDay(firstDay, endDate);
         List<ProfitPointDto> points = new ArrayList<>();
         LocalDate cursor = startDate;
 
@@ -135,15 +387,17 @@ public class SaleService {
                 segmentEnd = endDate;
             }
 
-            LocalDateTime start = segmentStart.atStartOfDay();
-            LocalDateTime end = segmentEnd.atTime(23, 59, 59);
-
-            var revenue = saleRepository.sumTotalPriceByStatusAndDateBetween(
-                    SaleStatus.VALID, start, end);
-            var cost = saleRepository.sumTotalCostByStatusAndDateBetween(
-                    SaleStatus.VALID, start, end);
-            var count = saleRepository.countByStatusAndSaleDateBetween(
-                    SaleStatus.VALID, start, end);
+            var revenue = BigDecimal.ZERO;
+            var cost = BigDecimal.ZERO;
+            long count = 0;
+            for (LocalDate day = segmentStart; !day.isAfter(segmentEnd); day = day.plusDays(1)) {
+                DayTotals totals = days.get(day);
+                if (totals != null) {
+                    revenue = revenue.add(totals.getRevenue());
+                    cost = cost.add(totals.getCost());
+                    count += totals.getSaleCount();
+                }
+            }
 
             points.add(new ProfitPointDto(
                     label,
@@ -162,13 +416,10 @@ public class SaleService {
     public List<ProfitByMedicineDto> getTopProfitMedicines(LocalDate startDate,
                                                            LocalDate endDate,
                                                            int limit) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(23, 59, 59);
-        List<ProfitByMedicineDto> results = saleRepository.findProfitByMedicine(
-                SaleStatus.VALID, start, end);
-        if (results.size() <= limit) {
-            return results;
-        }
-        return results.subList(0, limit);
+        return salesAnalytics.topProfitMedicines(startDate, endDate, limit);
+    }
+
+    public List<HourlyProfitDto> getProfitByHour(LocalDate startDate, LocalDate endDate) {
+        return salesAnalytics.profitByHour(startDate, endDate);
     }
 }
@@ -0,0 +1,80 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.SaleSnapshotBackfill;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SaleSnapshotBackfillRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills {@code unit_price} and {@code unit_cost} on sales written before they were recorded, one id chunk
+ * per transaction. The checkpoint in {@code sale_snapshot_backfill} moves in the same transaction as the
+ * chunk, so a restart resumes after the last committed chunk and finished runs are a single read.
+ */
+@Service
+public class SaleSnapshotBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleSnapshotBackfillService.class);
+
+    private final SaleSnapshotBackfillRepository backfillRepository;
+    private final SaleRepository saleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final boolean backfillOnStartup;
+
+    public SaleSnapshotBackfillService(SaleSnapshotBackfillRepository backfillRepository,
+                                       SaleRepository saleRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${pharmacy.sales.snapshot-backfill.chunk-size:5000}") int chunkSize,
+                                       @Value("${pharmacy.sales.snapshot-backfill.on-startup:true}") boolean backfillOnStartup) {
+        this.backfillRepository = backfillRepository;
+        this.saleRepository = saleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    // Before the rollup backfill, which reads unit_cost
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        int chunks = backfill();
+        if (chunks > 0) {
+            log.info("Backfilled sale price snapshots in {} chunks", chunks);
+        }
+    }
+
+    /**
+     * Runs chunks until the checkpoint passes the last pre-snapshot sale. Returns the number of chunks run.
+     */
+    public int backfill() {
+        int chunks = 0;
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> nextChunk()))) {
+            chunks++;
+        }
+        return chunks;
+    }
+
+    private boolean nextChunk() {
+        SaleSnapshotBackfill progress = backfillRepository.lockById(SaleSnapshotBackfill.SINGLETON_ID).orElse(null);
+        if (progress == null || progress.getNextId() > progress.getEndId()) {
+            return false;
+        }
+        long to = Math.min(progress.getNextId() + chunkSize, progress.getEndId() + 1);
+        saleRepository.backfillPriceSnapshots(progress.getNextId(), to);
+        progress.setNextId(to);
+        backfillRepository.save(progress);
+        return true;
+    }
+}
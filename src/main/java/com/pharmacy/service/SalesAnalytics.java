@@ -0,0 +1,37 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.HourlyProfitDto;
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.dto.ProfitSummaryDto;
+import com.pharmacy.model.Sale;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayTotals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers the profit and volume questions over VALID sales behind {@link SaleService}. Selected with
+ * {@code pharmacy.analytics.backend} (rollup or columnar). All ranges are inclusive days.
+ */
+public interface SalesAnalytics {
+
+    ProfitSummaryDto profitSummary(LocalDate start, LocalDate end);
+
+    /**
+     * Per-day totals; days without sales are absent.
+     */
+    Map<LocalDate, DayTotals> profitByDay(LocalDate start, LocalDate end);
+
+    List<ProfitByMedicineDto> topProfitMedicines(LocalDate start, LocalDate end, int limit);
+
+    /**
+     * Totals by hour of day across the range, one entry for each of the 24 hours.
+     */
+    List<HourlyProfitDto> profitByHour(LocalDate start, LocalDate end);
+
+    /**
+     * Called in the sale transaction with the saved sales.
+     */
+    void record(List<Sale> sales);
+}
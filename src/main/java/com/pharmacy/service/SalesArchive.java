@@ -0,0 +1,156 @@
+package com.pharmacy.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pharmacy.model.SaleStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Reads the month files written by {@link ArchiveService} from {@code pharmacy.archive.directory}. Months are
+ * archived oldest first, so the archive covers everything before {@link #liveFrom()}; for those months the
+ * file is authoritative and any rows still in {@code sales} are leftovers of an unfinished delete.
+ * Decoded months are kept in a small Caffeine cache, hour-of-day totals per month for good.
+ */
+@Component
+public class SalesArchive {
+
+    private static final String SALES_PREFIX = "sales-";
+    private static final String AUDIT_PREFIX = "audit_logs-";
+    private static final String SUFFIX = ".col.gz";
+
+    private final Path directory;
+    private final NavigableSet<YearMonth> months = new ConcurrentSkipListSet<>();
+    private final LoadingCache<YearMonth, SalesArchiveFile.Columns> columns;
+    // Per archived month: [day of month - 1][hour] -> {count, quantity, revenue cents, cost cents} of VALID sales
+    private final Map<YearMonth, long[][][]> hourTotals = new ConcurrentHashMap<>();
+
+    public SalesArchive(@Value("${pharmacy.archive.directory:archive}") String directory,
+                        @Value("${pharmacy.archive.cached-months:2}") long cachedMonths) {
+        this.directory = Paths.get(directory);
+        this.columns = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, cachedMonths))
+                .build(month -> SalesArchiveFile.read(salesFile(month)));
+        if (Files.isDirectory(this.directory)) {
+            try (Stream<Path> files = Files.list(this.directory)) {
+                files.map(this::monthOf).flatMap(Optional::stream).forEach(months::add);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not list " + this.directory, ex);
+            }
+        }
+    }
+
+    public Path salesFile(YearMonth month) {
+        return directory.resolve(SALES_PREFIX + month + SUFFIX);
+    }
+
+    public Path auditFile(YearMonth month) {
+        return directory.resolve(AUDIT_PREFIX + month + SUFFIX);
+    }
+
+    public List<YearMonth> months() {
+        return List.copyOf(months);
+    }
+
+    public boolean isArchived(YearMonth month) {
+        return months.contains(month);
+    }
+
+    public boolean isArchived(LocalDate day) {
+        return months.contains(YearMonth.from(day));
+    }
+
+    /**
+     * The first day not covered by the archive, or empty when nothing is archived.
+     */
+    public Optional<LocalDate> liveFrom() {
+        return months.isEmpty() ? Optional.empty() : Optional.of(months.last().plusMonths(1).atDay(1));
+    }
+
+    /**
+     * Makes a month written by the archive job visible to readers.
+     */
+    void register(YearMonth month) {
+        columns.invalidate(month);
+        hourTotals.remove(month);
+        months.add(month);
+    }
+
+    SalesArchiveFile.Columns read(YearMonth month) {
+        return columns.get(month);
+    }
+
+    /**
+     * Count, quantity, revenue and cost in cents of archived VALID sales in {@code [start, end]}, by hour.
+     */
+    long[][] hourTotals(LocalDate start, LocalDate end) {
+        long[][] totals = new long[24][4];
+        for (YearMonth month : months.subSet(YearMonth.from(start), true, YearMonth.from(end), true)) {
+            long[][][] days = hourTotals.computeIfAbsent(month, this::hourTotalsOf);
+            for (LocalDate day = max(start, month.atDay(1)); !day.isAfter(end) && YearMonth.from(day).equals(month);
+                 day = day.plusDays(1)) {
+                long[][] hours = days[day.getDayOfMonth() - 1];
+                for (int hour = 0; hour < 24; hour++) {
+                    for (int i = 0; i < 4; i++) {
+                        totals[hour][i] += hours[hour][i];
+                    }
+                }
+            }
+        }
+        return totals;
+    }
+
+    private long[][][] hourTotalsOf(YearMonth month) {
+        SalesArchiveFile.Columns sales = read(month);
+        long[][][] days = new long[month.lengthOfMonth()][24][4];
+        for (int row = 0; row < sales.rows; row++) {
+            if (sales.status(row) != SaleStatus.VALID) {
+                continue;
+            }
+            long secondOfMonth = sales.saleSecond[row] - month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            long[] cell = days[(int) (secondOfMonth / 86_400)][(int) (secondOfMonth % 86_400 / 3_600)];
+            cell[0]++;
+            cell[1] += sales.quantity[row];
+            cell[2] += cents(sales.totalCents[row]);
+            cell[3] += cents(sales.unitCostCents[row]) * sales.quantity[row];
+        }
+        return days;
+    }
+
+    private Optional<YearMonth> monthOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SALES_PREFIX) || !name.endsWith(SUFFIX)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(name.substring(SALES_PREFIX.length(), name.length() - SUFFIX.length())));
+        } catch (DateTimeParseException ex) {
+            return Optional.empty();
+        }
+    }
+
+    static long cents(long value) {
+        return value == ColumnCodec.NULL_CENTS ? 0 : value;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,243 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleArchiveRow;
+import com.pharmacy.model.SaleStatus;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One closed month of sales as a gzip-compressed column file. Rows are in (sale date, id) order; medicines
+ * and statuses are dictionary-encoded, sale dates are second deltas from the previous row, ids are deltas too
+ * and amounts are whole cents, so most values take a byte or two before compression.
+ *
+ * <pre>
+ * int magic, byte version, int year, byte month, varint rows
+ * dictionaries: medicines (id, name), statuses (name)
+ * column blocks: id, sale_date, medicine, status, quantity, total_price, unit_price, unit_cost
+ * </pre>
+ */
+final class SalesArchiveFile {
+
+    private static final int MAGIC = 0x50534131;
+    private static final byte VERSION = 1;
+
+    /**
+     * A decoded month. Amounts are cents, {@link ColumnCodec#NULL_CENTS} where the column was null.
+     */
+    static final class Columns {
+        final YearMonth month;
+        final int rows;
+        final long[] id;
+        final long[] saleSecond;
+        final int[] medicine;
+        final byte[] status;
+        final int[] quantity;
+        final long[] totalCents;
+        final long[] unitPriceCents;
+        final long[] unitCostCents;
+        final long[] medicineIds;
+        final String[] medicineNames;
+        final SaleStatus[] statuses;
+
+        private Columns(YearMonth month, int rows, long[] medicineIds, String[] medicineNames, SaleStatus[] statuses) {
+            this.month = month;
+            this.rows = rows;
+            this.id = new long[rows];
+            this.saleSecond = new long[rows];
+            this.medicine = new int[rows];
+            this.status = new byte[rows];
+            this.quantity = new int[rows];
+            this.totalCents = new long[rows];
+            this.unitPriceCents = new long[rows];
+            this.unitCostCents = new long[rows];
+            this.medicineIds = medicineIds;
+            this.medicineNames = medicineNames;
+            this.statuses = statuses;
+        }
+
+        LocalDateTime saleDate(int row) {
+            return LocalDateTime.ofEpochSecond(saleSecond[row], 0, ZoneOffset.UTC);
+        }
+
+        SaleStatus status(int row) {
+            return statuses[status[row]];
+        }
+
+        /**
+         * The first row on or after {@code day}; rows are in sale date order.
+         */
+        int firstRowOn(LocalDate day) {
+            long second = day.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            int lo = 0;
+            int hi = rows;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (saleSecond[mid] < second) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Encodes rows appended in (sale date, id) order.
+     */
+    static final class Writer {
+        private final YearMonth month;
+        private final Map<Long, Integer> medicineCodes = new HashMap<>();
+        private final List<Long> medicineIds = new ArrayList<>();
+        private final List<String> medicineNames = new ArrayList<>();
+        private final Map<SaleStatus, Integer> statusCodes = new HashMap<>();
+        private final List<SaleStatus> statuses = new ArrayList<>();
+        private final ColumnCodec.Column id = new ColumnCodec.Column();
+        private final ColumnCodec.Column saleDate = new ColumnCodec.Column();
+        private final ColumnCodec.Column medicine = new ColumnCodec.Column();
+        private final ColumnCodec.Column status = new ColumnCodec.Column();
+        private final ColumnCodec.Column quantity = new ColumnCodec.Column();
+        private final ColumnCodec.Column totalPrice = new ColumnCodec.Column();
+        private final ColumnCodec.Column unitPrice = new ColumnCodec.Column();
+        private final ColumnCodec.Column unitCost = new ColumnCodec.Column();
+        private int rows;
+        private long lastId;
+        private long lastSecond;
+
+        Writer(YearMonth month) {
+            this.month = month;
+            this.lastSecond = month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        }
+
+        void append(SaleArchiveRow row) {
+            long second = row.saleDate().toEpochSecond(ZoneOffset.UTC);
+            if (!YearMonth.from(row.saleDate()).equals(month) || second < lastSecond) {
+                throw new IllegalArgumentException("Sale " + row.id() + " is out of order for " + month);
+            }
+            id.signed(row.id() - lastId);
+            saleDate.varLong(second - lastSecond);
+            medicine.varLong(medicineCodes.computeIfAbsent(row.medicineId(), medicineId -> {
+                medicineIds.add(medicineId);
+                medicineNames.add(row.medicineName());
+                return medicineIds.size() - 1;
+            }));
+            status.varLong(statusCodes.computeIfAbsent(row.status(), s -> {
+                statuses.add(s);
+                return statuses.size() - 1;
+            }));
+            quantity.signed(row.quantity() == null ? 0 : row.quantity());
+            totalPrice.nullableSigned(ColumnCodec.nullableCents(row.totalPrice()));
+            unitPrice.nullableSigned(ColumnCodec.nullableCents(row.unitPrice()));
+            unitCost.nullableSigned(ColumnCodec.nullableCents(row.unitCost()));
+            lastId = row.id();
+            lastSecond = second;
+            rows++;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        void writeTo(Path file) {
+            ColumnCodec.writeAtomically(file, out -> {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(month.getYear());
+                out.writeByte(month.getMonthValue());
+                ColumnCodec.writeVarLong(out, rows);
+                ColumnCodec.writeVarLong(out, medicineIds.size());
+                ColumnCodec.Column dictionary = new ColumnCodec.Column();
+                long previous = 0;
+                for (int code = 0; code < medicineIds.size(); code++) {
+                    dictionary.signed(medicineIds.get(code) - previous);
+                    dictionary.string(medicineNames.get(code));
+                    previous = medicineIds.get(code);
+                }
+                dictionary.writeTo(out);
+                ColumnCodec.writeVarLong(out, statuses.size());
+                for (SaleStatus saleStatus : statuses) {
+                    out.writeUTF(saleStatus == null ? "" : saleStatus.name());
+                }
+                for (ColumnCodec.Column column : List.of(id, saleDate, medicine, status, quantity, totalPrice,
+                        unitPrice, unitCost)) {
+                    column.writeTo(out);
+                }
+            });
+        }
+    }
+
+    private SalesArchiveFile() {
+    }
+
+    static Columns read(Path file) {
+        try (DataInputStream in = ColumnCodec.open(file)) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not a sales archive file");
+            }
+            YearMonth month = YearMonth.of(in.readInt(), in.readByte());
+            int rows = (int) ColumnCodec.readVarLong(in);
+
+            int medicineCount = (int) ColumnCodec.readVarLong(in);
+            long[] medicineIds = new long[medicineCount];
+            String[] medicineNames = new String[medicineCount];
+            ColumnCodec.readBlockLength(in);
+            long previous = 0;
+            for (int code = 0; code < medicineCount; code++) {
+                medicineIds[code] = previous + ColumnCodec.readSigned(in);
+                medicineNames[code] = ColumnCodec.readString(in);
+                previous = medicineIds[code];
+            }
+            SaleStatus[] statuses = new SaleStatus[(int) ColumnCodec.readVarLong(in)];
+            for (int code = 0; code < statuses.length; code++) {
+                String name = in.readUTF();
+                statuses[code] = name.isEmpty() ? null : SaleStatus.valueOf(name);
+            }
+
+            Columns columns = new Columns(month, rows, medicineIds, medicineNames, statuses);
+            ColumnCodec.readBlockLength(in);
+            long id = 0;
+            for (int row = 0; row < rows; row++) {
+                id += ColumnCodec.readSigned(in);
+                columns.id[row] = id;
+            }
+            ColumnCodec.readBlockLength(in);
+            long second = month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            for (int row = 0; row < rows; row++) {
+                second += ColumnCodec.readVarLong(in);
+                columns.saleSecond[row] = second;
+            }
+            ColumnCodec.readBlockLength(in);
+            for (int row = 0; row < rows; row++) {
+                columns.medicine[row] = (int) ColumnCodec.readVarLong(in);
+            }
+            ColumnCodec.readBlockLength(in);
+            for (int row = 0; row < rows; row++) {
+                columns.status[row] = (byte) ColumnCodec.readVarLong(in);
+            }
+            ColumnCodec.readBlockLength(in);
+            for (int row = 0; row < rows; row++) {
+                columns.quantity[row] = (int) ColumnCodec.readSigned(in);
+            }
+            for (long[] cents : List.of(columns.totalCents, columns.unitPriceCents, columns.unitCostCents)) {
+                ColumnCodec.readBlockLength(in);
+                for (int row = 0; row < rows; row++) {
+                    cents[row] = ColumnCodec.readNullableSigned(in, ColumnCodec.NULL_CENTS);
+                }
+            }
+            return columns;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read " + file, ex);
+        }
+    }
+}
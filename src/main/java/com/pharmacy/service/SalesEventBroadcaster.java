@@ -0,0 +1,284 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.LiveRevenueUpdate;
+import com.pharmacy.dto.LiveSaleEvent;
+import com.pharmacy.dto.LiveStockAlert;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans committed sales out to Server-Sent Events subscribers, so live screens stop polling the summary
+ * endpoints. Every subscriber has its own bounded buffer drained by a small sender pool, so a slow client
+ * never holds up a sale or the other clients. Snapshot events ({@code revenue}) are coalesced to the latest
+ * value; when {@code sale} or {@code stock} events overflow the buffer the oldest are dropped and the client
+ * gets an {@code overflow} event telling it to refetch.
+ */
+@Service
+public class SalesEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesEventBroadcaster.class);
+
+    private record Event(String name, Object data) {
+    }
+
+    private final IntradaySalesCounters intradaySalesCounters;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final int lowStockThreshold;
+    private final ExecutorService sender;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    public SalesEventBroadcaster(IntradaySalesCounters intradaySalesCounters,
+                                 @Value("${pharmacy.live.max-subscribers:200}") int maxSubscribers,
+                                 @Value("${pharmacy.live.buffer-size:256}") int bufferSize,
+                                 @Value("${pharmacy.live.timeout-ms:1800000}") long timeoutMs,
+                                 @Value("${pharmacy.live.send-threads:4}") int sendThreads,
+                                 @Value("${pharmacy.low-stock-threshold:10}") int lowStockThreshold) {
+        this.intradaySalesCounters = intradaySalesCounters;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.timeoutMs = timeoutMs;
+        this.lowStockThreshold = lowStockThreshold;
+        this.sender = Executors.newFixedThreadPool(Math.max(1, sendThreads), runnable -> {
+            Thread thread = new Thread(runnable, "sales-live");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live subscribers");
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // Start from current totals so the client never needs the polling endpoints
+        subscriber.offer(new Event("revenue", revenueUpdate()), true);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Broadcasts the saved sales once their transaction commits, or straight away outside a transaction.
+     * Stock levels are read now, while the sale's medicine rows still hold the quantities this sale left.
+     */
+    public void publish(List<Sale> sales) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        List<Event> events = new ArrayList<>(sales.size() + 1);
+        for (Sale sale : sales) {
+            Medicine medicine = sale.getMedicine();
+            events.add(new Event(
+                    sale.getStatus() == SaleStatus.VALID ? "sale" : "rejection",
+                    new LiveSaleEvent(
+                            sale.getId(),
+                            medicine == null ? null : medicine.getId(),
+                            medicine == null ? null : medicine.getName(),
+                            sale.getQuantitySold() == null ? 0 : sale.getQuantitySold(),
+                            sale.getTotalPrice(),
+                            sale.getStatus(),
+                            sale.getSaleDate()
+                    )
+            ));
+        }
+        events.addAll(stockAlerts(sales));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast(events);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                broadcast(events);
+            }
+        });
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Keeps idle connections open through proxies and finds clients that went away without closing.
+     */
+    @Scheduled(fixedDelayString = "${pharmacy.live.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(new Event(null, "keep-alive"), true);
+            schedule(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private void broadcast(List<Event> events) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Event revenue = new Event("revenue", revenueUpdate());
+        for (Subscriber subscriber : subscribers) {
+            for (Event event : events) {
+                subscriber.offer(event, false);
+            }
+            subscriber.offer(revenue, true);
+            schedule(subscriber);
+        }
+    }
+
+    private List<Event> stockAlerts(List<Sale> sales) {
+        // Several lines can draw on one medicine, so compare its final stock with the stock before all of them
+        Map<Long, Integer> soldByMedicine = new LinkedHashMap<>();
+        Map<Long, Medicine> medicines = new LinkedHashMap<>();
+        for (Sale sale : sales) {
+            Medicine medicine = sale.getMedicine();
+            if (sale.getStatus() != SaleStatus.VALID || medicine == null || medicine.getQuantity() == null) {
+                continue;
+            }
+            medicines.put(medicine.getId(), medicine);
+            soldByMedicine.merge(medicine.getId(), sale.getQuantitySold(), Integer::sum);
+        }
+        List<Event> alerts = new ArrayList<>();
+        for (Map.Entry<Long, Integer> sold : soldByMedicine.entrySet()) {
+            Medicine medicine = medicines.get(sold.getKey());
+            int remaining = medicine.getQuantity();
+            int before = remaining + sold.getValue();
+            int reorderLevel = medicine.getReorderLevel() == null ? lowStockThreshold : medicine.getReorderLevel();
+            boolean outOfStock = remaining == 0;
+            if (outOfStock || (remaining <= reorderLevel && before > reorderLevel)) {
+                alerts.add(new Event("stock", new LiveStockAlert(
+                        medicine.getId(), medicine.getName(), remaining, reorderLevel, outOfStock)));
+            }
+        }
+        return alerts;
+    }
+
+    private LiveRevenueUpdate revenueUpdate() {
+        IntradaySalesCounters.Day today = intradaySalesCounters.today();
+        return new LiveRevenueUpdate(
+                today.date(),
+                today.count(SaleStatus.VALID),
+                today.count(SaleStatus.REJECTED_EXPIRED),
+                today.count(SaleStatus.REJECTED_OUT_OF_STOCK),
+                today.revenueCents()
+        );
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RuntimeException ex) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                List<Event> batch = subscriber.takeAll();
+                if (batch.isEmpty()) {
+                    subscriber.draining.set(false);
+                    // An offer may have slipped in after takeAll but before the flag was cleared
+                    if (!subscriber.hasPending() || !subscriber.draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                for (Event event : batch) {
+                    if (event.name() == null) {
+                        subscriber.emitter.send(SseEmitter.event().comment((String) event.data()));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event().name(event.name()).data(event.data()));
+                    }
+                }
+            }
+        } catch (IOException | IllegalStateException ex) {
+            log.debug("Dropping live sales subscriber: {}", ex.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.draining.set(false);
+            subscriber.emitter.completeWithError(ex);
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final ArrayDeque<Event> queue = new ArrayDeque<>();
+        private final Map<String, Event> latest = new LinkedHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private long dropped;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(Event event, boolean coalesce) {
+            if (coalesce) {
+                latest.put(event.name() == null ? "" : event.name(), event);
+                return;
+            }
+            if (queue.size() >= bufferSize) {
+                queue.pollFirst();
+                dropped++;
+            }
+            queue.addLast(event);
+        }
+
+        synchronized List<Event> takeAll() {
+            List<Event> batch = new ArrayList<>(queue.size() + latest.size() + 1);
+            if (dropped > 0) {
+                batch.add(new Event("overflow", Map.of("dropped", dropped)));
+                dropped = 0;
+            }
+            batch.addAll(queue);
+            batch.addAll(latest.values());
+            queue.clear();
+            latest.clear();
+            return batch;
+        }
+
+        synchronized boolean hasPending() {
+            return dropped > 0 || !queue.isEmpty() || !latest.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.pharmacy.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the monthly RANGE partitions of {@code sales} (V13) ahead of the calendar and drops months that have
+ * passed the retention period. New months are split out of the empty {@code p_future} catch-all, so adding
+ * them moves no rows. Only months already written to the {@link SalesArchive} are dropped, so dropping a
+ * partition is a one-statement delete step of archival: the columnar backend, hourly profit and the rollup
+ * rebuild keep reading those months from their files.
+ * Since V13 the primary key is (id, sale_date), so the database no longer enforces unique sale ids on its
+ * own; they stay unique because every writer takes them from {@code id_generators} (V14).
+ */
+@Service
+@ConditionalOnProperty(name = "pharmacy.sales.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class SalesPartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesPartitionService.class);
+
+    static final String FUTURE = "p_future";
+    private static final DateTimeFormatter MONTH_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    /**
+     * A partition and the exclusive upper bound of its sale dates; {@code end} is null for {@code p_future}.
+     */
+    public record Partition(String name, LocalDate end) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SalesArchive salesArchive;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final Supplier<LocalDate> clock;
+
+    public SalesPartitionService(JdbcTemplate jdbcTemplate,
+                                 SalesArchive salesArchive,
+                                 @Value("${pharmacy.sales.partitions.months-ahead:3}") int monthsAhead,
+                                 @Value("${pharmacy.sales.partitions.retention-months:0}") int retentionMonths) {
+        this(jdbcTemplate, salesArchive, monthsAhead, retentionMonths, LocalDate::now);
+    }
+
+    SalesPartitionService(JdbcTemplate jdbcTemplate,
+                          SalesArchive salesArchive,
+                          int monthsAhead,
+                          int retentionMonths,
+                          Supplier<LocalDate> clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.salesArchive = salesArchive;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = Math.max(0, retentionMonths);
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${pharmacy.sales.partitions.cron:0 30 0 * * *}")
+    public void maintain() {
+        createFuturePartitions();
+        if (retentionMonths > 0) {
+            dropPartitionsBefore(clock.get().withDayOfMonth(1).minusMonths(retentionMonths));
+        }
+    }
+
+    /**
+     * Splits one partition per month out of {@code p_future} until the current month and the next
+     * {@code months-ahead} have their own. Returns the partitions created.
+     */
+    public synchronized List<String> createFuturePartitions() {
+        List<Partition> partitions = partitions();
+        if (partitions.isEmpty()) {
+            log.warn("sales is not partitioned; skipping partition maintenance");
+            return List.of();
+        }
+        LocalDate last = partitions.stream()
+                .map(Partition::end)
+                .filter(Objects::nonNull)
+                .max(LocalDate::compareTo)
+                .orElse(null);
+        LocalDate until = clock.get().withDayOfMonth(1).plusMonths(monthsAhead + 1L);
+        if (last == null || !last.isBefore(until)) {
+            return List.of();
+        }
+        List<String> created = new ArrayList<>();
+        StringBuilder definitions = new StringBuilder();
+        for (LocalDate month = last; month.isBefore(until); month = month.plusMonths(1)) {
+            String name = month.format(MONTH_NAME);
+            created.add(name);
+            definitions.append("PARTITION ").append(name)
+                    .append(" VALUES LESS THAN ('").append(month.plusMonths(1)).append("'), ");
+        }
+        jdbcTemplate.execute("ALTER TABLE sales REORGANIZE PARTITION " + FUTURE + " INTO (" + definitions
+                + "PARTITION " + FUTURE + " VALUES LESS THAN (MAXVALUE))");
+        log.info("Created sales partitions {}", created);
+        return created;
+    }
+
+    /**
+     * Drops every partition whose sales all fall before {@code cutoff}, oldest first. Stops at the first
+     * partition holding a month the archive does not have, or a sale whose stock decrement has not been
+     * written to medicines, so nothing is removed that is not in an archive file. Returns the partitions dropped.
+     */
+    public synchronized List<String> dropPartitionsBefore(LocalDate cutoff) {
+        List<String> dropped = new ArrayList<>();
+        for (Partition partition : partitions()) {
+            if (partition.end() == null || partition.end().isAfter(cutoff)) {
+                break;
+            }
+            String months = "SELECT DISTINCT DATE_FORMAT(sale_date, '%Y-%m') FROM sales PARTITION ("
+                    + partition.name() + ")";
+            List<YearMonth> unarchived = jdbcTemplate.queryForList(months, String.class).stream()
+                    .map(YearMonth::parse)
+                    .filter(month -> !salesArchive.isArchived(month))
+                    .sorted()
+                    .toList();
+            if (!unarchived.isEmpty()) {
+                log.warn("Not dropping sales partition {}: months {} are not archived yet", partition.name(),
+                        unarchived);
+                break;
+            }
+            Long pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sales PARTITION (" + partition.name()
+                    + ") WHERE stock_applied = 0", Long.class);
+            if (pending != null && pending > 0) {
+                log.warn("Not dropping sales partition {}: {} sales still owe their stock decrement",
+                        partition.name(), pending);
+                break;
+            }
+            jdbcTemplate.execute("ALTER TABLE sales DROP PARTITION " + partition.name());
+            dropped.add(partition.name());
+        }
+        if (!dropped.isEmpty()) {
+            log.info("Dropped sales partitions before {}: {}", cutoff, dropped);
+        }
+        return dropped;
+    }
+
+    /**
+     * The partitions of {@code sales} in bound order; empty when the table is not partitioned.
+     */
+    public List<Partition> partitions() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS bound
+                FROM information_schema.PARTITIONS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sales' AND PARTITION_NAME IS NOT NULL
+                ORDER BY PARTITION_ORDINAL_POSITION""");
+        List<Partition> partitions = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            partitions.add(new Partition((String) row.get("name"), bound((String) row.get("bound"))));
+        }
+        return partitions;
+    }
+
+    // RANGE COLUMNS bounds read back as quoted literals, e.g. '2026-02-01' or '2026-02-01 00:00:00'
+    private static LocalDate bound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        return LocalDate.parse(description.replace("'", "").substring(0, 10));
+    }
+}
@@ -0,0 +1,309 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.model.SalesRollupBackfill;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository;
+import com.pharmacy.repository.SalesRollupBackfillRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains {@code sales_daily_rollup}. {@link #record} runs inside the sale transaction; {@link #backfill}
+ * rebuilds whole days from {@code sales}, or from the {@link SalesArchive} for archived months, and is safe
+ * to re-run, which {@link #resumeBackfill} relies on after an interrupted or failed run.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    // Attempts per day when its rebuild deadlocks with a sale being recorded into it
+    private static final int MAX_DAY_ATTEMPTS = 3;
+
+    // Fixed key order so concurrent batches lock rollup rows in the same sequence
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::day)
+            .thenComparing(RollupKey::medicineId)
+            .thenComparing(RollupKey::status);
+
+    private record RollupKey(LocalDate day, Long medicineId, SaleStatus status) {
+    }
+
+    private static final class RollupDelta {
+        private long saleCount;
+        private long quantity;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal cost = BigDecimal.ZERO;
+    }
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SalesRollupBackfillRepository backfillRepository;
+    private final SaleRepository saleRepository;
+    private final SalesArchive salesArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final int backfillThreads;
+    private final boolean backfillOnStartup;
+    private final long backfillRetryMs;
+    private final ScheduledExecutorService backfillRunner;
+
+    public SalesRollupService(SalesDailyRollupRepository rollupRepository,
+                              SalesRollupBackfillRepository backfillRepository,
+                              SaleRepository saleRepository,
+                              SalesArchive salesArchive,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${pharmacy.rollup.backfill-threads:4}") int backfillThreads,
+                              @Value("${pharmacy.rollup.backfill-on-startup:true}") boolean backfillOnStartup,
+                              @Value("${pharmacy.rollup.backfill-retry-ms:60000}") long backfillRetryMs) {
+        this.rollupRepository = rollupRepository;
+        this.backfillRepository = backfillRepository;
+        this.saleRepository = saleRepository;
+        this.salesArchive = salesArchive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillThreads = Math.max(1, backfillThreads);
+        this.backfillOnStartup = backfillOnStartup;
+        this.backfillRetryMs = Math.max(0, backfillRetryMs);
+        this.backfillRunner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sales-rollup-backfill-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds saved sales to their rollup rows. Must be called in the transaction that saved them.
+     */
+    public void record(Collection<Sale> sales) {
+        Map<RollupKey, RollupDelta> deltas = new TreeMap<>(KEY_ORDER);
+        for (Sale sale : sales) {
+            if (sale.getSaleDate() == null || sale.getStatus() == null) {
+                continue;
+            }
+            RollupKey key = new RollupKey(sale.getSaleDate().toLocalDate(), sale.getMedicine().getId(), sale.getStatus());
+            RollupDelta delta = deltas.computeIfAbsent(key, k -> new RollupDelta());
+            delta.saleCount++;
+            delta.quantity += sale.getQuantitySold();
+            if (sale.getTotalPrice() != null) {
+                delta.revenue = delta.revenue.add(sale.getTotalPrice());
+            }
+            if (sale.getStatus() == SaleStatus.VALID && sale.getUnitCost() != null) {
+                delta.cost = delta.cost.add(sale.getUnitCost().multiply(BigDecimal.valueOf(sale.getQuantitySold())));
+            }
+        }
+        increment(deltas);
+    }
+
+    private void increment(Map<RollupKey, RollupDelta> deltas) {
+        deltas.forEach((key, delta) -> rollupRepository.increment(
+                key.day(),
+                key.medicineId(),
+                key.status().name(),
+                delta.saleCount,
+                delta.quantity,
+                delta.revenue,
+                delta.cost
+        ));
+    }
+
+    /**
+     * The {@code limit} most profitable medicines over {@code [start, end]}, the limit applied in SQL.
+     */
+    public List<ProfitByMedicineDto> topProfitByMedicine(LocalDate start, LocalDate end, int limit) {
+        return rollupRepository.findProfitByMedicine(SaleStatus.VALID, start, end, PageRequest.of(0, limit));
+    }
+
+    public List<SalesDailyRollupRepository.DayMedicineTotals> profitByDayAndMedicine(LocalDate start, LocalDate end) {
+        return rollupRepository.totalsByDayAndMedicine(SaleStatus.VALID, start, end);
+    }
+
+    /**
+     * Starts {@link #resumeBackfill} in the background, after the sale price snapshot backfill since the
+     * rebuild reads each sale's unit cost. A failed run is logged and started again after
+     * {@code pharmacy.rollup.backfill-retry-ms}, so it never stops an application already serving requests.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void startBackfill() {
+        if (backfillOnStartup) {
+            backfillRunner.execute(this::runBackfill);
+        }
+    }
+
+    @PreDestroy
+    public void stopBackfill() {
+        backfillRunner.shutdownNow();
+    }
+
+    private void runBackfill() {
+        try {
+            resumeBackfill();
+        } catch (RuntimeException ex) {
+            if (backfillRunner.isShutdown()) {
+                return;
+            }
+            log.error("Sales rollup backfill failed, retrying in {} ms", backfillRetryMs, ex);
+            backfillRunner.schedule(this::runBackfill, backfillRetryMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rebuilds the history the rollup table started without. Progress is saved in
+     * {@code sales_rollup_backfill} after each month, so a run that stops part way resumes after the last
+     * finished month, and a finished one is a single read. Only months holding sales are rebuilt, so the
+     * 1970-01-01 placeholder V13 gave undated sales does not mean rebuilding every day since.
+     */
+    public void resumeBackfill() {
+        SalesRollupBackfill progress = backfillRepository.findById(SalesRollupBackfill.SINGLETON_ID)
+                .orElseGet(() -> new SalesRollupBackfill(SalesRollupBackfill.SINGLETON_ID, null, false));
+        if (progress.isDone()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        int rebuilt = 0;
+        for (YearMonth month : monthsWithSales()) {
+            if (progress.getNextDay() != null && month.atDay(1).isBefore(progress.getNextDay())) {
+                continue;
+            }
+            List<LocalDate> days = new ArrayList<>();
+            for (LocalDate day = month.atDay(1); !day.isAfter(month.atEndOfMonth()) && !day.isAfter(today);
+                 day = day.plusDays(1)) {
+                days.add(day);
+            }
+            rebuildDays(days);
+            rebuilt += days.size();
+            progress.setNextDay(month.plusMonths(1).atDay(1));
+            backfillRepository.save(progress);
+        }
+        progress.setDone(true);
+        backfillRepository.save(progress);
+        log.info("Backfilled sales_daily_rollup for {} days", rebuilt);
+    }
+
+    /**
+     * Recomputes every day in {@code [from, to]} from {@code sales}, one transaction per day, spread over
+     * {@code pharmacy.rollup.backfill-threads} workers. Returns the number of days rebuilt.
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        rebuildDays(days);
+        return days.size();
+    }
+
+    // Archived months, then each live month holding sales, jumping over empty ones
+    private SortedSet<YearMonth> monthsWithSales() {
+        SortedSet<YearMonth> months = new TreeSet<>(salesArchive.months());
+        LocalDateTime next = saleRepository.findFirstSaleDate();
+        while (next != null) {
+            YearMonth month = YearMonth.from(next);
+            months.add(month);
+            next = saleRepository.findFirstSaleDateFrom(month.plusMonths(1).atDay(1).atStartOfDay());
+        }
+        return months;
+    }
+
+    private void rebuildDays(List<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(backfillThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sales-rollup-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> rebuilt = new ArrayList<>(days.size());
+            for (LocalDate day : days) {
+                rebuilt.add(executor.submit(() -> rebuildDay(day)));
+            }
+            for (Future<?> day : rebuilt) {
+                day.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sales rollup backfill interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Sales rollup backfill failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void rebuildDay(LocalDate day) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Delete and re-insert in one transaction; rows locked here make concurrent sales for the day wait
+                transactionTemplate.executeWithoutResult(status -> {
+                    rollupRepository.deleteDay(day);
+                    if (salesArchive.isArchived(day)) {
+                        increment(archivedDay(day));
+                    } else {
+                        rollupRepository.rebuildRange(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+                    }
+                });
+                return;
+            } catch (PessimisticLockingFailureException ex) {
+                // A sale recorded into this day took its locks in the other order; the rollback undid the delete
+                if (attempt >= MAX_DAY_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    // The archived month's sales for one day, grouped as rebuildRange groups them
+    private Map<RollupKey, RollupDelta> archivedDay(LocalDate day) {
+        SalesArchiveFile.Columns sales = salesArchive.read(YearMonth.from(day));
+        Map<RollupKey, RollupDelta> deltas = new TreeMap<>(KEY_ORDER);
+        for (int row = sales.firstRowOn(day); row < sales.rows && sales.saleDate(row).toLocalDate().equals(day); row++) {
+            SaleStatus saleStatus = sales.status(row);
+            if (saleStatus == null) {
+                continue;
+            }
+            RollupKey key = new RollupKey(day, sales.medicineIds[sales.medicine[row]], saleStatus);
+            RollupDelta delta = deltas.computeIfAbsent(key, k -> new RollupDelta());
+            delta.saleCount++;
+            delta.quantity += sales.quantity[row];
+            delta.revenue = delta.revenue.add(BigDecimal.valueOf(SalesArchive.cents(sales.totalCents[row]), 2));
+            if (saleStatus == SaleStatus.VALID) {
+                delta.cost = delta.cost.add(BigDecimal.valueOf(
+                        SalesArchive.cents(sales.unitCostCents[row]) * sales.quantity[row], 2));
+            }
+        }
+        return deltas;
+    }
+}
@@ -0,0 +1,22 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Sale;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Month totals for the summary endpoints. Selected with {@code pharmacy.summary.cache}.
+ */
+public interface SalesSummaryCache {
+
+    /**
+     * Totals for each month, in the order given.
+     */
+    List<SalesSummaryEngine.Totals> months(List<YearMonth> months);
+
+    /**
+     * Drops the months the saved sales fall in once their transaction commits.
+     */
+    void invalidate(List<Sale> sales);
+}
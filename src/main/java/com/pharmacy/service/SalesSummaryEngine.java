@@ -0,0 +1,139 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SalesDailyRollupRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayTotals;
+import com.pharmacy.repository.SalesDailyRollupRepository.StatusTotals;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Answers sales summaries with a single {@code GROUP BY status} query over {@code sales_daily_rollup} per date
+ * range. Multi-month requests run one query per month on a small pool, bounded so a single request cannot
+ * take over the connection pool.
+ */
+@Service
+public class SalesSummaryEngine {
+
+    public record Totals(Map<SaleStatus, StatusTotals> byStatus) {
+
+        public long count(SaleStatus status) {
+            StatusTotals row = byStatus.get(status);
+            return row == null ? 0 : row.getSaleCount();
+        }
+
+        public long totalCount() {
+            long total = 0;
+            for (StatusTotals row : byStatus.values()) {
+                total += row.getSaleCount();
+            }
+            return total;
+        }
+
+        public BigDecimal revenue(SaleStatus status) {
+            StatusTotals row = byStatus.get(status);
+            return row == null || row.getRevenue() == null ? BigDecimal.ZERO : row.getRevenue();
+        }
+
+        public BigDecimal cost(SaleStatus status) {
+            StatusTotals row = byStatus.get(status);
+            return row == null || row.getCost() == null ? BigDecimal.ZERO : row.getCost();
+        }
+    }
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final ExecutorService executor;
+
+    public SalesSummaryEngine(SalesDailyRollupRepository rollupRepository,
+                              @Value("${pharmacy.summary.parallelism:4}") int parallelism) {
+        this.rollupRepository = rollupRepository;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "sales-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Totals allTime() {
+        return totals(rollupRepository.totalsByStatus());
+    }
+
+    /**
+     * Totals for the inclusive day range.
+     */
+    public Totals forRange(LocalDate start, LocalDate end) {
+        return totals(rollupRepository.totalsByStatus(start, end));
+    }
+
+    /**
+     * Per-day totals for one status over the inclusive range, from a single query. Days without sales are absent.
+     */
+    public Map<LocalDate, DayTotals> byDay(SaleStatus status, LocalDate start, LocalDate end) {
+        Map<LocalDate, DayTotals> days = new HashMap<>();
+        for (DayTotals row : rollupRepository.totalsByDay(status, start, end)) {
+            days.put(row.getDay(), row);
+        }
+        return days;
+    }
+
+    /**
+     * Totals for each month, in the order given.
+     */
+    public List<Totals> forMonths(List<YearMonth> months) {
+        if (months.size() == 1) {
+            return List.of(forMonth(months.get(0)));
+        }
+        List<Future<Totals>> futures = new ArrayList<>(months.size());
+        for (YearMonth month : months) {
+            futures.add(executor.submit(() -> forMonth(month)));
+        }
+        List<Totals> results = new ArrayList<>(months.size());
+        try {
+            for (Future<Totals> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Sales summary interrupted", ex);
+        } catch (ExecutionException ex) {
+            futures.forEach(future -> future.cancel(true));
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Sales summary failed", ex.getCause());
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Totals forMonth(YearMonth month) {
+        return forRange(month.atDay(1), month.atEndOfMonth());
+    }
+
+    private static Totals totals(List<StatusTotals> rows) {
+        Map<SaleStatus, StatusTotals> byStatus = new EnumMap<>(SaleStatus.class);
+        for (StatusTotals row : rows) {
+            byStatus.put(row.getStatus(), row);
+        }
+        return new Totals(byStatus);
+    }
+}
@@ -0,0 +1,44 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Medicine;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decides how {@link SaleService} takes stock off a medicine row.
+ * Selected with {@code pharmacy.sales.stock-strategy} (atomic, optimistic, pessimistic or in-memory).
+ */
+public interface StockDecrementStrategy {
+
+    /**
+     * Loads the active medicines a sale is about to draw from.
+     */
+    List<Medicine> loadForSale(Collection<Long> medicineIds);
+
+    /**
+     * Takes {@code quantity} units off the medicine, returning false when there is not enough stock.
+     * On success {@code medicine.getQuantity()} holds the remaining stock.
+     */
+    boolean tryDecrement(Medicine medicine, int quantity);
+
+    /**
+     * How many times a sale transaction is attempted when it loses an optimistic locking race.
+     */
+    default int maxAttempts() {
+        return 1;
+    }
+
+    /**
+     * False when accepted sales are written behind to {@code medicines.quantity} after commit.
+     */
+    default boolean appliesStockImmediately() {
+        return true;
+    }
+
+    /**
+     * Called when a medicine's stock is changed outside a sale, such as a stock-in or an admin edit.
+     */
+    default void onStockChanged(Long medicineId) {
+    }
+}
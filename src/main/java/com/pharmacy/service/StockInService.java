@@ -1,12 +1,14 @@
 package com.pharmacy.service;
 
 import com.pharmacy.dto.StockInRequest;
+import com.pharmacy.dto.StockInView;
 import com.pharmacy.model.Medicine;
 import com.pharmacy.model.StockIn;
 import com.pharmacy.model.Supplier;
 import com.pharmacy.repository.MedicineRepository;
 import com.pharmacy.repository.StockInRepository;
 import com.pharmacy.repository.SupplierRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,23 +21,29 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class StockInService {
 
+    public static final int MAX_LIST_SIZE = 1000;
+
     private final StockInRepository stockInRepository;
     private final MedicineRepository medicineRepository;
     private final SupplierRepository supplierRepository;
     private final AuditLogService auditLogService;
+    private final StockDecrementStrategy stockDecrementStrategy;
 
     public StockInService(StockInRepository stockInRepository,
                           MedicineRepository medicineRepository,
                           SupplierRepository supplierRepository,
-                          AuditLogService auditLogService) {
+                          AuditLogService auditLogService,
+                          StockDecrementStrategy stockDecrementStrategy) {
         this.stockInRepository = stockInRepository;
         this.medicineRepository = medicineRepository;
         this.supplierRepository = supplierRepository;
         this.auditLogService = auditLogService;
+        this.stockDecrementStrategy = stockDecrementStrategy;
     }
 
-    public List<StockIn> getAllStockIns() {
-        return stockInRepository.findAllByOrderByReceivedAtDesc();
+    public List<StockInView> getRecentStockIns(int limit) {
+        int safeLimit = Math.min(Math.max(limit, 1), MAX_LIST_SIZE);
+        return stockInRepository.findRecentViews(PageRequest.of(0, safeLimit));
     }
 
     @Transactional
@@ -62,6 +70,7 @@ public class StockInService {
         int quantity = request.getQuantity();
         medicine.setQuantity((medicine.getQuantity() == null ? 0 : medicine.getQuantity()) + quantity);
         medicineRepository.save(medicine);
+        stockDecrementStrategy.onStockChanged(medicine.getId());
 
         StockIn stockIn = new StockIn();
         stockIn.setMedicine(medicine);
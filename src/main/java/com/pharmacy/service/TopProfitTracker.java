@@ -0,0 +1,223 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayMedicineTotals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-medicine profit of VALID sales for the trailing {@code pharmacy.profit.top.window-days}, so the top-profit
+ * view is answered from memory. Each day keeps every medicine sold that day: cutting days down to their own
+ * top K would drop medicines that lead over the window without leading any single day. Running window totals
+ * are kept beside the days, so the default range is one pass over the medicines sold with a heap of
+ * {@code limit} entries; other ranges inside the window merge their days first. Sales reach it through a
+ * {@link CommittedSalesFeed}, so one committing while the window loads is counted once.
+ */
+@Service
+@ConditionalOnProperty(name = "pharmacy.analytics.backend", havingValue = "rollup", matchIfMissing = true)
+public class TopProfitTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(TopProfitTracker.class);
+
+    private static final Comparator<Entry> BY_PROFIT = Comparator
+            .comparingLong((Entry entry) -> entry.totals.profitCents())
+            .thenComparing(Comparator.comparingLong((Entry entry) -> entry.medicineId).reversed());
+
+    private static final class Totals {
+        private String medicineName;
+        private long quantity;
+        private long revenueCents;
+        private long costCents;
+
+        private long profitCents() {
+            return revenueCents - costCents;
+        }
+
+        private void add(String name, long quantity, long revenueCents, long costCents) {
+            if (name != null) {
+                this.medicineName = name;
+            }
+            this.quantity += quantity;
+            this.revenueCents += revenueCents;
+            this.costCents += costCents;
+        }
+    }
+
+    private record Entry(long medicineId, Totals totals) {
+    }
+
+    private final SalesRollupService salesRollupService;
+    private final int windowDays;
+    private final Supplier<LocalDate> clock;
+    private final CommittedSalesFeed feed;
+
+    // Guarded by this
+    private final TreeMap<LocalDate, Map<Long, Totals>> days = new TreeMap<>();
+    private final Map<Long, Totals> window = new HashMap<>();
+    private boolean loaded;
+
+    public TopProfitTracker(SalesRollupService salesRollupService,
+                            SaleRepository saleRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${pharmacy.profit.top.window-days:30}") int windowDays) {
+        this(salesRollupService, saleRepository, transactionManager, windowDays, LocalDate::now);
+    }
+
+    TopProfitTracker(SalesRollupService salesRollupService, SaleRepository saleRepository,
+                     PlatformTransactionManager transactionManager, int windowDays, Supplier<LocalDate> clock) {
+        this.salesRollupService = salesRollupService;
+        this.windowDays = Math.max(1, windowDays);
+        this.clock = clock;
+        this.feed = new CommittedSalesFeed(saleRepository, transactionManager, this::apply);
+    }
+
+    /**
+     * The top {@code limit} medicines by profit over {@code [start, end]}, or empty when the range reaches
+     * back past the window or the window has not been loaded yet.
+     */
+    public synchronized Optional<List<ProfitByMedicineDto>> top(LocalDate start, LocalDate end, int limit) {
+        LocalDate today = clock.get();
+        advance(today);
+        LocalDate windowStart = today.minusDays(windowDays - 1L);
+        if (!loaded || start.isBefore(windowStart)) {
+            return Optional.empty();
+        }
+        if (start.equals(windowStart) && !end.isBefore(today)) {
+            return Optional.of(select(window, limit));
+        }
+        Map<Long, Totals> merged = new HashMap<>();
+        for (Map<Long, Totals> day : days.subMap(start, true, end, true).values()) {
+            day.forEach((medicineId, totals) -> merged.computeIfAbsent(medicineId, id -> new Totals())
+                    .add(totals.medicineName, totals.quantity, totals.revenueCents, totals.costCents));
+        }
+        return Optional.of(select(merged, limit));
+    }
+
+    /**
+     * Adds saved sales once their transaction commits, or straight away outside a transaction.
+     */
+    public void record(List<Sale> sales) {
+        feed.record(sales);
+    }
+
+    /**
+     * Loads the window from {@code sales_daily_rollup}, after the rollup backfill.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void rebuild() {
+        feed.load(() -> {
+            LocalDate today = clock.get();
+            LocalDate windowStart = today.minusDays(windowDays - 1L);
+            List<DayMedicineTotals> rows = salesRollupService.profitByDayAndMedicine(windowStart, today);
+            synchronized (this) {
+                days.clear();
+                window.clear();
+                for (DayMedicineTotals row : rows) {
+                    add(row.getDay(), row.getMedicineId(), row.getMedicineName(), row.getQuantity(),
+                            IntradaySalesCounters.toCents(row.getRevenue()),
+                            IntradaySalesCounters.toCents(row.getCost()));
+                }
+                loaded = true;
+            }
+            log.info("Loaded top-profit window {} to {}: {} medicine days", windowStart, today, rows.size());
+        });
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public synchronized void rollOver() {
+        advance(clock.get());
+    }
+
+    private synchronized void apply(List<Sale> sales) {
+        advance(clock.get());
+        for (Sale sale : sales) {
+            if (sale.getStatus() != SaleStatus.VALID || sale.getSaleDate() == null || sale.getMedicine() == null) {
+                continue;
+            }
+            Medicine medicine = sale.getMedicine();
+            long quantity = sale.getQuantitySold() == null ? 0 : sale.getQuantitySold();
+            long costCents = sale.getUnitCost() == null
+                    ? 0
+                    : IntradaySalesCounters.toCents(sale.getUnitCost().multiply(BigDecimal.valueOf(quantity)));
+            add(sale.getSaleDate().toLocalDate(), medicine.getId(), medicine.getName(), quantity,
+                    IntradaySalesCounters.toCents(sale.getTotalPrice()), costCents);
+        }
+    }
+
+    private void add(LocalDate day, Long medicineId, String name, long quantity, long revenueCents, long costCents) {
+        LocalDate today = clock.get();
+        if (day.isBefore(today.minusDays(windowDays - 1L)) || day.isAfter(today)) {
+            return;
+        }
+        days.computeIfAbsent(day, d -> new HashMap<>())
+                .computeIfAbsent(medicineId, id -> new Totals())
+                .add(name, quantity, revenueCents, costCents);
+        window.computeIfAbsent(medicineId, id -> new Totals()).add(name, quantity, revenueCents, costCents);
+    }
+
+    // Takes days that have left the window back out of the running totals
+    private void advance(LocalDate today) {
+        LocalDate windowStart = today.minusDays(windowDays - 1L);
+        while (!days.isEmpty() && days.firstKey().isBefore(windowStart)) {
+            Map<Long, Totals> expired = days.pollFirstEntry().getValue();
+            expired.forEach((medicineId, totals) -> {
+                Totals running = window.get(medicineId);
+                running.add(null, -totals.quantity, -totals.revenueCents, -totals.costCents);
+                if (running.quantity == 0 && running.revenueCents == 0 && running.costCents == 0) {
+                    window.remove(medicineId);
+                }
+            });
+        }
+    }
+
+    private static List<ProfitByMedicineDto> select(Map<Long, Totals> byMedicine, int limit) {
+        // Min-heap of the best seen so far, so selection is O(n log limit)
+        PriorityQueue<Entry> heap = new PriorityQueue<>(limit + 1, BY_PROFIT);
+        for (Map.Entry<Long, Totals> medicine : byMedicine.entrySet()) {
+            heap.offer(new Entry(medicine.getKey(), medicine.getValue()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<Entry> best = new ArrayList<>(heap);
+        best.sort(BY_PROFIT.reversed());
+        List<ProfitByMedicineDto> result = new ArrayList<>(best.size());
+        for (Entry entry : best) {
+            Totals totals = entry.totals;
+            result.add(new ProfitByMedicineDto(
+                    entry.medicineId,
+                    totals.medicineName,
+                    totals.quantity,
+                    BigDecimal.valueOf(totals.revenueCents, 2),
+                    BigDecimal.valueOf(totals.costCents, 2)
+            ));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,6 @@
+-- Keyset pages of sales history, newest first. InnoDB appends the primary key to every secondary index,
+-- so each of these already ends in id and serves ORDER BY sale_date DESC, id DESC without a filesort
+-- for its equality filter; the amount filter is checked on the rows the index walk returns.
+CREATE INDEX idx_sales_status_date ON sales (status, sale_date);
+CREATE INDEX idx_sales_medicine_date ON sales (medicine_id, sale_date);
+CREATE INDEX idx_sales_date ON sales (sale_date);
@@ -0,0 +1,11 @@
+-- Covering indexes for the remaining hot repository queries; the sales history shapes are covered by V10.
+-- InnoDB appends id to each secondary index, so id-returning queries are served from the index alone.
+
+-- Low-stock and out-of-stock counts and the low-stock id lookup read only these columns
+CREATE INDEX idx_medicines_active_quantity ON medicines (active, quantity, reorder_level);
+
+-- Unapplied quantity per medicine, summed by findAvailableQuantity without touching sale rows
+CREATE INDEX idx_sales_pending_medicine ON sales (stock_applied, medicine_id, status, quantity);
+
+-- Newest-first stock-in listing
+CREATE INDEX idx_stock_ins_received_at ON stock_ins (received_at);
@@ -0,0 +1,16 @@
+-- Medicine price and cost as they were when each sale was made, so profit is summed from sales alone and
+-- editing a medicine no longer rewrites history. Nullable columns are added in place without a table copy.
+ALTER TABLE sales
+    ADD COLUMN unit_price DECIMAL(19, 2),
+    ADD COLUMN unit_cost DECIMAL(19, 2);
+
+-- Existing rows are filled in id chunks after startup; next_id is advanced with each committed chunk so
+-- an interrupted backfill resumes where it stopped. Rows above end_id are written with their snapshot.
+CREATE TABLE IF NOT EXISTS sale_snapshot_backfill (
+    id BIGINT PRIMARY KEY,
+    next_id BIGINT NOT NULL,
+    end_id BIGINT NOT NULL
+);
+
+INSERT INTO sale_snapshot_backfill (id, next_id, end_id)
+SELECT 1, COALESCE(MIN(id), 1), COALESCE(MAX(id), 0) FROM sales;
@@ -0,0 +1,44 @@
+-- Monthly RANGE partitions on sale_date, so date-bounded sales queries read only the months they cover and
+-- old months are archived by dropping a partition instead of deleting rows.
+-- MySQL requires the partitioning column in every unique key and does not allow foreign keys on partitioned
+-- tables: the primary key becomes (id, sale_date), sale_date becomes NOT NULL and fk_sales_medicine goes.
+-- Medicines are only ever deactivated, never deleted, so medicine_id keeps pointing at a row.
+-- Repartitioning copies the table; on a large sales table run this in a maintenance window.
+
+UPDATE sales SET sale_date = '1970-01-01 00:00:00' WHERE sale_date IS NULL;
+
+ALTER TABLE sales DROP FOREIGN KEY fk_sales_medicine;
+
+ALTER TABLE sales
+    MODIFY sale_date DATETIME NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, sale_date);
+
+-- One partition per month from the first dated sale (at least the last twelve months) to three months ahead.
+-- Earlier and undated rows go to p_history; p_future catches anything past the last month until
+-- SalesPartitionService splits the next months out of it.
+SET SESSION group_concat_max_len = 1048576;
+
+WITH RECURSIVE months (month_start) AS (
+    SELECT CAST(DATE_FORMAT(LEAST(COALESCE(MIN(sale_date), CURDATE()), CURDATE() - INTERVAL 12 MONTH),
+                            '%Y-%m-01') AS DATE)
+    FROM sales
+    WHERE sale_date > '1970-01-01'
+    UNION ALL
+    SELECT month_start + INTERVAL 1 MONTH
+    FROM months
+    WHERE month_start < CAST(DATE_FORMAT(CURDATE(), '%Y-%m-01') AS DATE) + INTERVAL 3 MONTH
+)
+SELECT CONCAT(
+           'ALTER TABLE sales PARTITION BY RANGE COLUMNS (sale_date) (',
+           'PARTITION p_history VALUES LESS THAN (''', MIN(month_start), '''), ',
+           GROUP_CONCAT(CONCAT('PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+                               ' VALUES LESS THAN (''', month_start + INTERVAL 1 MONTH, ''')')
+                        ORDER BY month_start SEPARATOR ', '),
+           ', PARTITION p_future VALUES LESS THAN (MAXVALUE))')
+INTO @partition_sales
+FROM months;
+
+PREPARE partition_sales FROM @partition_sales;
+EXECUTE partition_sales;
+DEALLOCATE PREPARE partition_sales;
@@ -0,0 +1,24 @@
+-- Since V6 the application takes ids for these tables from id_generators, in blocks of 50. An AUTO_INCREMENT
+-- insert next to that hands out ids inside blocks the generator has yet to give, and since V13 sales is keyed
+-- by (id, sale_date), so a clash there is stored instead of rejected. Every writer must take its ids from
+-- id_generators: AUTO_INCREMENT goes, and an insert without an id now fails.
+-- medicines.id is referenced by stock_ins, which MySQL only lets this change with foreign key checks off.
+
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE sales MODIFY id BIGINT NOT NULL;
+ALTER TABLE audit_logs MODIFY id BIGINT NOT NULL;
+ALTER TABLE stock_ins MODIFY id BIGINT NOT NULL;
+ALTER TABLE medicines MODIFY id BIGINT NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
+
+-- Move each generator above any id written through AUTO_INCREMENT since V6
+UPDATE id_generators SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM sales))
+WHERE name = 'sales';
+UPDATE id_generators SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM audit_logs))
+WHERE name = 'audit_logs';
+UPDATE id_generators SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM stock_ins))
+WHERE name = 'stock_ins';
+UPDATE id_generators SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM medicines))
+WHERE name = 'medicines';
@@ -0,0 +1,13 @@
+-- Progress of the sales_daily_rollup backfill. A non-empty rollup table does not mean the backfill finished,
+-- so it records the first day it has yet to rebuild after each month and sets done at the end.
+-- Existing deployments run it once more from the start, which also completes one that stopped part way
+-- before this table existed. It runs in the background after startup: a day is rebuilt in one transaction,
+-- a rebuild that deadlocks with a sale recorded into the same day is retried, and a failed run is logged
+-- and started again later.
+CREATE TABLE IF NOT EXISTS sales_rollup_backfill (
+    id BIGINT PRIMARY KEY,
+    next_day DATE NULL,
+    done TINYINT(1) NOT NULL
+);
+
+INSERT INTO sales_rollup_backfill (id, next_day, done) VALUES (1, NULL, 0);
@@ -0,0 +1,4 @@
+ALTER TABLE sales
+    ADD COLUMN stock_applied TINYINT(1) NOT NULL DEFAULT 1;
+
+CREATE INDEX idx_sales_stock_applied ON sales (stock_applied, id);
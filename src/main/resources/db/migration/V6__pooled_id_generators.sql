@@ -0,0 +1,13 @@
+-- Hi/lo style block allocation for high-volume tables. IDENTITY ids make Hibernate
+-- insert row by row; table-backed pooled ids let inserts be JDBC batched.
+-- Each next_val is the upper bound of the next block of 50, so it starts one block
+-- above the current max id.
+CREATE TABLE IF NOT EXISTS id_generators (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO id_generators (name, next_val) SELECT 'sales', COALESCE(MAX(id), 0) + 50 FROM sales;
+INSERT INTO id_generators (name, next_val) SELECT 'audit_logs', COALESCE(MAX(id), 0) + 50 FROM audit_logs;
+INSERT INTO id_generators (name, next_val) SELECT 'stock_ins', COALESCE(MAX(id), 0) + 50 FROM stock_ins;
+INSERT INTO id_generators (name, next_val) SELECT 'medicines', COALESCE(MAX(id), 0) + 50 FROM medicines;
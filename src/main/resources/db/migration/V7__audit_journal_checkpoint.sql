@@ -0,0 +1,7 @@
+-- Position up to which the local audit journal has been loaded into audit_logs.
+-- Updated in the same transaction as the inserted rows so replay after a crash is exactly-once.
+CREATE TABLE IF NOT EXISTS audit_journal_checkpoint (
+    id BIGINT PRIMARY KEY,
+    segment BIGINT NOT NULL,
+    position INT NOT NULL
+);
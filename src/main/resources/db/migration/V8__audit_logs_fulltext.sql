@@ -0,0 +1,4 @@
+-- Full-text index over actor and message for /api/admin/audit/search.
+-- The ngram parser indexes overlapping character n-grams (innodb_ngram_token_size, default 2),
+-- so partial words and usernames match without a leading-wildcard LIKE scan.
+ALTER TABLE audit_logs ADD FULLTEXT INDEX ft_audit_logs_actor_message (actor, message) WITH PARSER ngram;
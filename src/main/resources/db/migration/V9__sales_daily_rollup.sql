@@ -0,0 +1,15 @@
+-- Per-day, per-medicine, per-status sales totals maintained in the same transaction as each sale.
+-- Reporting reads O(days x medicines) rows here instead of scanning sales.
+-- cost is quantity * medicines.cost_price at the time of sale, and only for VALID sales.
+CREATE TABLE IF NOT EXISTS sales_daily_rollup (
+    day DATE NOT NULL,
+    medicine_id BIGINT NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    sale_count BIGINT NOT NULL,
+    quantity BIGINT NOT NULL,
+    revenue DECIMAL(19, 2) NOT NULL,
+    cost DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (day, medicine_id, status)
+);
+
+CREATE INDEX idx_sales_daily_rollup_status_day ON sales_daily_rollup (status, day);
@@ -0,0 +1,41 @@
+package com.pharmacy;
+
+import com.pharmacy.model.Medicine;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Seeds a {@link ScratchDatabaseTest} medicine and removes what the test wrote for it, so a run leaves no
+ * sales, rollup rows or audit entries behind.
+ */
+public final class ScratchData {
+
+    private ScratchData() {
+    }
+
+    /**
+     * An unsaved in-date medicine priced 10 at cost 1, with a batch number unique to this run.
+     */
+    public static Medicine medicine(String name, String batchPrefix, int quantity) {
+        Medicine medicine = new Medicine();
+        medicine.setName(name);
+        medicine.setBatchNumber(batchPrefix + System.nanoTime());
+        medicine.setPrice(BigDecimal.TEN);
+        medicine.setCostPrice(BigDecimal.ONE);
+        medicine.setQuantity(quantity);
+        medicine.setExpiryDate(LocalDate.now().plusYears(1));
+        return medicine;
+    }
+
+    public static void deleteMedicine(JdbcTemplate jdbcTemplate, long medicineId) {
+        jdbcTemplate.update("""
+                DELETE a FROM audit_logs a JOIN sales s ON a.entity_type = 'SALE' AND a.entity_id = s.id
+                WHERE s.medicine_id = ?""", medicineId);
+        jdbcTemplate.update("DELETE FROM sales_daily_rollup WHERE medicine_id = ?", medicineId);
+        jdbcTemplate.update("DELETE FROM sales WHERE medicine_id = ?", medicineId);
+        jdbcTemplate.update("DELETE FROM stock_ins WHERE medicine_id = ?", medicineId);
+        jdbcTemplate.update("DELETE FROM medicines WHERE id = ?", medicineId);
+    }
+}
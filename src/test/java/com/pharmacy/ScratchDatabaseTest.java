@@ -0,0 +1,22 @@
+package com.pharmacy;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A Spring Boot test that seeds rows into MySQL. It runs against the throwaway database in
+ * {@code SCRATCH_DB_URL} (the {@code scratch} profile) and is skipped when that is not set.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest
+@ActiveProfiles("scratch")
+@EnabledIfEnvironmentVariable(named = "SCRATCH_DB_URL", matches = ".+")
+public @interface ScratchDatabaseTest {
+}
@@ -0,0 +1,467 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.ScratchDatabaseTest;
+import com.pharmacy.model.SaleStatus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs EXPLAIN against MySQL for every query declared on {@link SaleRepository}, {@link MedicineRepository}
+ * and {@link StockInRepository}, and fails when one of them falls back to a full scan of sales, medicines or
+ * stock_ins. Each repository method is called with sample arguments in a transaction that is rolled back, and
+ * the statements Hibernate sends to the driver, with their parameters bound, are what gets explained; a method
+ * added to one of those repositories without a call here fails the coverage check.
+ * Date-bounded sales queries must also prune to the monthly partitions of their range.
+ * Seeds a realistic row count into the scratch database first and deletes it afterwards:
+ * {@code SCRATCH_DB_URL=jdbc:mysql://localhost:3306/pharmacy_scratch mvn test -Dtest=QueryPlanRegressionTest}
+ */
+@ScratchDatabaseTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanRegressionTest {
+
+    private static final int MEDICINES = 5_000;
+    private static final int SALES = 200_000;
+    private static final int STOCK_INS = 20_000;
+    private static final int INSERT_CHUNK = 5_000;
+    private static final String SUPPLIER = "Explain plan supplier";
+
+    // Tables too large to scan per request; suppliers is a small lookup table and may be read whole
+    private static final Set<String> LARGE_TABLES = Set.of("sales", "medicines", "stock_ins");
+
+    // Queries that read every active row by design, so there is nothing for an index to narrow
+    private static final Map<String, String> FULL_READS = Map.of(
+            "MedicineRepository.findByActiveTrue", "the full active catalogue for the medicine list"
+    );
+
+    // Date-bounded sales queries, by label, that must read only the monthly partitions (V13) of their range
+    private static final List<String> PRUNED = List.of(
+            "SaleRepository.history (date range, amount)",
+            "SaleRepository.totalsByHour",
+            "SalesDailyRollupRepository.rebuildRange",
+            "SaleRepository.findArchivePage",
+            "SaleRepository.countStockPendingBetween",
+            "SaleRepository.deleteChunkBetween"
+    );
+
+    private static final List<Class<?>> REPOSITORIES =
+            List.of(SaleRepository.class, MedicineRepository.class, StockInRepository.class);
+
+    // from/join/update/into <table> [alias], to map EXPLAIN's table column (Hibernate's aliases) back to tables
+    private static final Pattern TABLE_REFERENCE = Pattern.compile(
+            "\\b(?:from|join|update|into)\\s+(\\w+)(?:\\s+(?:as\\s+)?(\\w+))?", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> NOT_ALIASES = Set.of("where", "set", "join", "inner", "left", "cross", "on",
+            "order", "group", "limit", "partition", "for", "values", "select");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private MedicineRepository medicineRepository;
+
+    @Autowired
+    private StockInRepository stockInRepository;
+
+    @Autowired
+    private SalesDailyRollupRepository rollupRepository;
+
+    private long medicinesFrom;
+    private long salesFrom;
+    private long stockInsFrom;
+    private boolean supplierSeeded;
+
+    private long medicineId;
+    private String batchNumber;
+    private Map<String, List<String>> statements;
+
+    /**
+     * Records the statements prepared on this thread, with their parameters bound, while capturing is on.
+     */
+    @TestConfiguration
+    static class StatementCapture {
+
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CapturingDataSource(dataSource) : bean;
+                }
+            };
+        }
+
+        static List<String> capture(Runnable work) {
+            List<String> captured = new ArrayList<>();
+            CAPTURED.set(captured);
+            try {
+                work.run();
+            } finally {
+                CAPTURED.remove();
+            }
+            return captured;
+        }
+
+        private static final class CapturingDataSource extends DelegatingDataSource {
+
+            private CapturingDataSource(DataSource target) {
+                super(target);
+            }
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                return capturing(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return capturing(super.getConnection(username, password));
+            }
+        }
+
+        private static Connection capturing(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        return method.getName().equals("prepareStatement")
+                                ? capturing((PreparedStatement) result)
+                                : result;
+                    });
+        }
+
+        private static PreparedStatement capturing(PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        List<String> captured = CAPTURED.get();
+                        if (captured != null && method.getName().startsWith("execute")) {
+                            // The driver's statement prints as "<class>: <sql with the bound values>"
+                            String bound = statement.unwrap(PreparedStatement.class).toString();
+                            captured.add(bound.substring(bound.indexOf(": ") + 2));
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        medicinesFrom = nextId("medicines");
+        salesFrom = nextId("sales");
+        stockInsFrom = nextId("stock_ins");
+        seedMedicines();
+        seedSales();
+        seedStockIns();
+        jdbcTemplate.execute("ANALYZE TABLE medicines, sales, stock_ins, suppliers");
+        medicineId = jdbcTemplate.queryForObject("SELECT MAX(medicine_id) FROM sales", Long.class);
+        batchNumber = jdbcTemplate.queryForObject(
+                "SELECT batch_number FROM medicines WHERE id = ?", String.class, medicineId);
+        statements = captureStatements();
+    }
+
+    @AfterAll
+    void deleteSeededRows() {
+        jdbcTemplate.update("DELETE FROM stock_ins WHERE id >= ?", stockInsFrom);
+        jdbcTemplate.update("DELETE FROM sales WHERE id >= ?", salesFrom);
+        jdbcTemplate.update("DELETE FROM medicines WHERE id >= ?", medicinesFrom);
+        if (supplierSeeded) {
+            jdbcTemplate.update("DELETE FROM suppliers WHERE name = ?", SUPPLIER);
+        }
+    }
+
+    @Test
+    void everyRepositoryQueryHasAPlan() {
+        Set<String> planned = new TreeSet<>(FULL_READS.keySet());
+        statements.keySet().forEach(label -> planned.add(label.split(" ")[0]));
+        List<String> missing = new ArrayList<>();
+        for (Class<?> repository : REPOSITORIES) {
+            for (Method method : repository.getDeclaredMethods()) {
+                String key = repository.getSimpleName() + "." + method.getName();
+                if (!method.isSynthetic() && !planned.contains(key)) {
+                    missing.add(key);
+                }
+            }
+        }
+        assertTrue(missing.isEmpty(), "Add a call for " + missing);
+        List<String> silent = statements.entrySet().stream()
+                .filter(entry -> entry.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .toList();
+        assertTrue(silent.isEmpty(), "No statement was captured for " + silent);
+    }
+
+    @Test
+    void noRepositoryQueryScansALargeTable() {
+        List<String> failures = new ArrayList<>();
+        statements.forEach((label, sqls) -> {
+            for (String sql : sqls) {
+                Map<String, String> tables = tablesByAlias(sql);
+                for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + sql)) {
+                    String table = tables.get((String) row.get("table"));
+                    String type = (String) row.get("type");
+                    if (table == null || !LARGE_TABLES.contains(table)) {
+                        continue;
+                    }
+                    // A full index walk is fine when it stops at a LIMIT, e.g. newest-first pages
+                    boolean limited = sql.toLowerCase().contains(" limit ");
+                    boolean fullScan = "ALL".equals(type) || ("index".equals(type) && !limited);
+                    if (fullScan) {
+                        failures.add(label + ": " + type + " on " + table + " (key " + row.get("key")
+                                + ", rows " + row.get("rows") + ", " + row.get("Extra") + ")\n    " + sql);
+                    }
+                }
+            }
+        });
+        if (!failures.isEmpty()) {
+            fail("Full scans in repository queries:\n" + String.join("\n", failures));
+        }
+    }
+
+    @Test
+    void dateBoundedSalesQueriesPruneToTheirMonths() {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT PARTITION_NAME FROM information_schema.PARTITIONS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sales' AND PARTITION_NAME IS NOT NULL""",
+                String.class);
+        assertTrue(partitions.size() > 3, "sales is not partitioned by month: " + partitions);
+
+        List<String> failures = new ArrayList<>();
+        for (String label : PRUNED) {
+            for (String sql : statements.get(label)) {
+                Map<String, String> tables = tablesByAlias(sql);
+                for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + sql)) {
+                    if (!"sales".equals(tables.get((String) row.get("table")))) {
+                        continue;
+                    }
+                    // The calls cover the last seven days, which touch at most two months
+                    String read = (String) row.get("partitions");
+                    if (read == null || read.split(",").length > 2) {
+                        failures.add(label + ": reads partitions " + read + "\n    " + sql);
+                    }
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            fail("Date-bounded sales queries without partition pruning:\n" + String.join("\n", failures));
+        }
+    }
+
+    /**
+     * Calls every repository query with sample arguments, each in its own rolled-back transaction, and
+     * returns the statements each call sent, by label.
+     */
+    private Map<String, List<String>> captureStatements() {
+        LocalDateTime at = LocalDate.now().atStartOfDay();
+        LocalDateTime weekAgo = at.minusDays(7);
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+
+        calls.put("SaleRepository.history (no filter)", () -> saleRepository.history(
+                null, null, null, null, null, null, null, null, PageRequest.of(0, 100)));
+        calls.put("SaleRepository.history (status)", () -> saleRepository.history(
+                SaleStatus.REJECTED_EXPIRED, null, null, null, null, null, null, null, PageRequest.of(0, 100)));
+        calls.put("SaleRepository.history (medicine, cursor)", () -> saleRepository.history(
+                null, medicineId, null, null, null, null, at, 1_000_000_000L, PageRequest.of(0, 100)));
+        calls.put("SaleRepository.history (date range, amount)", () -> saleRepository.history(
+                SaleStatus.VALID, null, weekAgo, at, new BigDecimal("5.00"), new BigDecimal("15.00"), null, null,
+                PageRequest.of(0, 100)));
+        calls.put("SaleRepository.findFirstSaleDate", saleRepository::findFirstSaleDate);
+        calls.put("SaleRepository.findFirstSaleDateFrom", () -> saleRepository.findFirstSaleDateFrom(weekAgo));
+        calls.put("SaleRepository.findIdsIn", () -> saleRepository.findIdsIn(List.of(salesFrom, salesFrom + 1)));
+        calls.put("SaleRepository.totalsByHour", () -> saleRepository.totalsByHour(weekAgo, at));
+        calls.put("SaleRepository.findFactsAfter",
+                () -> saleRepository.findFactsAfter(1000L, PageRequest.of(0, 10_000)));
+        calls.put("SaleRepository.lockPendingStock", () -> saleRepository.lockPendingStock(200));
+        calls.put("SaleRepository.markStockApplied", () -> saleRepository.markStockApplied(List.of(1L, 2L, 3L)));
+        calls.put("SaleRepository.backfillPriceSnapshots", () -> saleRepository.backfillPriceSnapshots(1L, 5001L));
+        calls.put("SaleRepository.findArchivePage", () -> saleRepository.findArchivePage(
+                weekAgo, at, weekAgo, 1000L, PageRequest.of(0, 10_000)));
+        calls.put("SaleRepository.countStockPendingBetween",
+                () -> saleRepository.countStockPendingBetween(weekAgo, at));
+        calls.put("SaleRepository.deleteChunkBetween", () -> saleRepository.deleteChunkBetween(weekAgo, at, 5000));
+        calls.put("SalesDailyRollupRepository.rebuildRange", () -> rollupRepository.rebuildRange(weekAgo, at));
+
+        calls.put("MedicineRepository.findLowStockMedicineIds",
+                () -> medicineRepository.findLowStockMedicineIds(10));
+        calls.put("MedicineRepository.countLowStockMedicines", () -> medicineRepository.countLowStockMedicines(10));
+        calls.put("MedicineRepository.countOutOfStockMedicines", medicineRepository::countOutOfStockMedicines);
+        calls.put("MedicineRepository.countByActiveTrue", medicineRepository::countByActiveTrue);
+        calls.put("MedicineRepository.findByIdAndActiveTrue",
+                () -> medicineRepository.findByIdAndActiveTrue(medicineId));
+        calls.put("MedicineRepository.findByIdInAndActiveTrue",
+                () -> medicineRepository.findByIdInAndActiveTrue(List.of(1L, 2L, medicineId)));
+        calls.put("MedicineRepository.findByIdInAndActiveTrueForUpdate",
+                () -> medicineRepository.findByIdInAndActiveTrueForUpdate(List.of(1L, 2L, medicineId)));
+        calls.put("MedicineRepository.decrementQuantity", () -> medicineRepository.decrementQuantity(medicineId, 1));
+        calls.put("MedicineRepository.applyPendingDecrement",
+                () -> medicineRepository.applyPendingDecrement(medicineId, 1));
+        calls.put("MedicineRepository.findAvailableQuantity",
+                () -> medicineRepository.findAvailableQuantity(medicineId));
+        calls.put("MedicineRepository.findByBatchNumber", () -> medicineRepository.findByBatchNumber(batchNumber));
+        calls.put("MedicineRepository.existsByBatchNumber",
+                () -> medicineRepository.existsByBatchNumber(batchNumber));
+        calls.put("MedicineRepository.existsByBatchNumberAndIdNot",
+                () -> medicineRepository.existsByBatchNumberAndIdNot(batchNumber, 1L));
+
+        calls.put("StockInRepository.findRecentViews",
+                () -> stockInRepository.findRecentViews(PageRequest.of(0, 500)));
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Map<String, List<String>> captured = new LinkedHashMap<>();
+        calls.forEach((label, call) -> captured.put(label, StatementCapture.capture(() ->
+                tx.executeWithoutResult(status -> {
+                    status.setRollbackOnly();
+                    try {
+                        call.run();
+                    } catch (DataAccessException ex) {
+                        // Only the statement is needed; e.g. rebuildRange may collide with rollup rows there
+                    }
+                }))));
+        return captured;
+    }
+
+    private static Map<String, String> tablesByAlias(String sql) {
+        Map<String, String> tables = new HashMap<>();
+        Matcher matcher = TABLE_REFERENCE.matcher(sql);
+        while (matcher.find()) {
+            String table = matcher.group(1).toLowerCase();
+            String alias = matcher.group(2);
+            tables.put(table, table);
+            if (alias != null && !NOT_ALIASES.contains(alias.toLowerCase())) {
+                tables.put(alias, table);
+            }
+        }
+        return tables;
+    }
+
+    private void seedMedicines() {
+        int missing = MEDICINES - count("medicines");
+        if (missing <= 0) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = medicinesFrom;
+        List<Object[]> batch = new ArrayList<>(missing);
+        for (int i = 0; i < missing; i++) {
+            // Mostly well stocked and active, as in a real catalogue, so the low-stock filters are selective
+            int quantity = random.nextInt(100) < 3 ? 0 : 1 + random.nextInt(500);
+            Integer reorderLevel = random.nextInt(100) < 20 ? 5 + random.nextInt(30) : null;
+            batch.add(new Object[]{id, "Explain plan medicine " + id, "EXPLAIN-" + id + "-" + System.nanoTime(),
+                    quantity, reorderLevel, random.nextInt(100) < 95});
+            id++;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO medicines (id, name, batch_number, price, cost_price, quantity,"
+                + " reorder_level, expiry_date, active) VALUES (?, ?, ?, 4.00, 2.00, ?, ?, '2030-01-01', ?)", batch);
+        bumpGenerator("medicines", id);
+    }
+
+    private void seedSales() {
+        int missing = SALES - count("sales");
+        if (missing <= 0) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> medicineIds = jdbcTemplate.queryForList("SELECT id FROM medicines", Long.class);
+        LocalDateTime start = LocalDate.now().minusDays(365).atStartOfDay();
+        long id = salesFrom;
+        for (int done = 0; done < missing; done += INSERT_CHUNK) {
+            int chunk = Math.min(INSERT_CHUNK, missing - done);
+            List<Object[]> batch = new ArrayList<>(chunk);
+            for (int i = 0; i < chunk; i++) {
+                int roll = random.nextInt(100);
+                String status = roll < 94 ? "VALID" : roll < 97 ? "REJECTED_EXPIRED" : "REJECTED_OUT_OF_STOCK";
+                int quantity = 1 + random.nextInt(5);
+                batch.add(new Object[]{id++, medicineIds.get(random.nextInt(medicineIds.size())), quantity,
+                        Timestamp.valueOf(start.plusSeconds(random.nextInt(365 * 86_400))),
+                        BigDecimal.valueOf(quantity * 4L), status});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO sales (id, medicine_id, quantity, sale_date, total_price, status,"
+                    + " stock_applied, unit_price, unit_cost) VALUES (?, ?, ?, ?, ?, ?, 1, 4.00, 2.00)", batch);
+        }
+        bumpGenerator("sales", id);
+    }
+
+    private void seedStockIns() {
+        int missing = STOCK_INS - count("stock_ins");
+        if (missing <= 0) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        supplierSeeded = jdbcTemplate.update("INSERT IGNORE INTO suppliers (name) VALUES (?)", SUPPLIER) > 0;
+        long supplierId = jdbcTemplate.queryForObject("SELECT id FROM suppliers WHERE name = ?", Long.class, SUPPLIER);
+        List<Long> medicineIds = jdbcTemplate.queryForList("SELECT id FROM medicines", Long.class);
+        LocalDateTime start = LocalDate.now().minusDays(365).atStartOfDay();
+        long id = stockInsFrom;
+        List<Object[]> batch = new ArrayList<>(missing);
+        for (int i = 0; i < missing; i++) {
+            batch.add(new Object[]{id++, medicineIds.get(random.nextInt(medicineIds.size())), supplierId,
+                    10 + random.nextInt(90), Timestamp.valueOf(start.plusSeconds(random.nextInt(365 * 86_400)))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO stock_ins (id, medicine_id, supplier_id, quantity, unit_cost,"
+                + " received_at) VALUES (?, ?, ?, ?, 2.00, ?)", batch);
+        bumpGenerator("stock_ins", id);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    // Seeded ids start well above the current ones, so the rows are easy to tell apart and delete
+    private long nextId(String table) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class) + 1_000_000;
+    }
+
+    // Keep the pooled id generator ahead of the ids written directly above
+    private void bumpGenerator(String name, long id) {
+        jdbcTemplate.update("UPDATE id_generators SET next_val = GREATEST(next_val, ?) WHERE name = ?", id + 50, name);
+    }
+}
@@ -0,0 +1,141 @@
+package com.pharmacy.repository;
+
+import com.pharmacy.dto.SaleHistoryItem;
+import com.pharmacy.dto.StockInView;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.model.StockIn;
+import com.pharmacy.model.Supplier;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the SQL statements behind the sale and stock-in list endpoints, so an association going back to
+ * EAGER or a projection turning into entity loading shows up as an N+1 failure here. Runs on an in-memory
+ * H2 schema generated from the entities; the MySQL migrations are not applied.
+ */
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:read-model;MODE=MySQL;NON_KEYWORDS=DAY",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class ReadModelStatementCountTest {
+
+    private static final int MEDICINES = 5;
+    private static final int ROWS_PER_MEDICINE = 4;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private StockInRepository stockInRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        Supplier supplier = new Supplier();
+        supplier.setName("Acme Pharma");
+        entityManager.persist(supplier);
+        LocalDateTime at = LocalDateTime.of(2026, 5, 1, 9, 0);
+        for (int m = 0; m < MEDICINES; m++) {
+            Medicine medicine = medicine("Medicine " + m);
+            entityManager.persist(medicine);
+            for (int i = 0; i < ROWS_PER_MEDICINE; i++) {
+                entityManager.persist(sale(medicine, at.plusMinutes(m * 10L + i)));
+                entityManager.persist(stockIn(medicine, supplier, at.plusMinutes(m * 10L + i)));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void salesHistoryPage_isOneSelectAndLoadsNoEntities() {
+        List<SaleHistoryItem> page = saleRepository.history(
+                SaleStatus.VALID, null, null, null, null, null, null, null, PageRequest.of(0, 100));
+
+        assertEquals(MEDICINES * ROWS_PER_MEDICINE, page.size());
+        assertEquals("Medicine 4", page.get(0).medicineName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void stockInList_isOneSelectAndLoadsNoEntities() {
+        List<StockInView> rows = stockInRepository.findRecentViews(PageRequest.of(0, 100));
+
+        assertEquals(MEDICINES * ROWS_PER_MEDICINE, rows.size());
+        assertEquals("Acme Pharma", rows.get(0).supplierName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void loadingSalesDoesNotSelectTheirMedicines() {
+        List<Sale> sales = saleRepository.findAll();
+
+        assertEquals(MEDICINES * ROWS_PER_MEDICINE, sales.size());
+        sales.forEach(sale -> sale.getMedicine().getId());
+        // With an EAGER medicine this would be 1 + one select per distinct medicine
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private static Medicine medicine(String name) {
+        Medicine medicine = new Medicine();
+        medicine.setName(name);
+        medicine.setBatchNumber("B-" + name);
+        medicine.setPrice(new BigDecimal("4.00"));
+        medicine.setCostPrice(new BigDecimal("2.00"));
+        medicine.setQuantity(100);
+        medicine.setExpiryDate(LocalDate.of(2030, 1, 1));
+        return medicine;
+    }
+
+    private static Sale sale(Medicine medicine, LocalDateTime at) {
+        Sale sale = new Sale();
+        sale.setMedicine(medicine);
+        sale.setQuantitySold(1);
+        sale.setSaleDate(at);
+        sale.setStatus(SaleStatus.VALID);
+        return sale;
+    }
+
+    private static StockIn stockIn(Medicine medicine, Supplier supplier, LocalDateTime at) {
+        StockIn stockIn = new StockIn();
+        stockIn.setMedicine(medicine);
+        stockIn.setSupplier(supplier);
+        stockIn.setQuantity(10);
+        stockIn.setUnitCost(new BigDecimal("2.00"));
+        stockIn.setReceivedAt(at);
+        return stockIn;
+    }
+}
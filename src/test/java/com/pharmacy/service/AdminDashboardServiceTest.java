@@ -1,24 +1,30 @@
 package com.pharmacy.service;
 
 import com.pharmacy.dto.AdminDashboardDto;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
 import com.pharmacy.model.SaleStatus;
 import com.pharmacy.repository.MedicineRepository;
 import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository;
 import com.pharmacy.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,11 +37,32 @@ class AdminDashboardServiceTest {
     private MedicineRepository medicineRepo;
 
     @Mock
-    private SaleRepository saleRepo;
+    private SalesDailyRollupRepository rollupRepository;
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SalesSummaryEngine salesSummaryEngine;
+
+    private IntradaySalesCounters intradaySalesCounters;
 
-    @InjectMocks
     private AdminDashboardService service;
 
+    @BeforeEach
+    void setUp() {
+        salesSummaryEngine = new SalesSummaryEngine(rollupRepository, 2);
+        intradaySalesCounters = new IntradaySalesCounters(salesSummaryEngine, saleRepository, transactionManager);
+        service = new AdminDashboardService(userRepo, medicineRepo, salesSummaryEngine, intradaySalesCounters);
+    }
+
+    @AfterEach
+    void tearDown() {
+        salesSummaryEngine.shutdown();
+    }
+
     @Test
     void getDashboardCounts_aggregatesExpectedValues() {
         when(userRepo.count()).thenReturn(42L);
@@ -43,12 +70,18 @@ class AdminDashboardServiceTest {
         when(medicineRepo.countLowStockMedicines(10)).thenReturn(7L);
         when(medicineRepo.countOutOfStockMedicines()).thenReturn(3L);
 
-        when(saleRepo.count()).thenReturn(200L);
-        when(saleRepo.sumTotalPriceByStatusAndDateBetween(
-                any(SaleStatus.class), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(BigDecimal.valueOf(1234.56));
-        when(saleRepo.countByStatus(SaleStatus.VALID)).thenReturn(150L);
-        when(saleRepo.countByStatus(SaleStatus.REJECTED_EXPIRED)).thenReturn(30L);
-        when(saleRepo.countByStatus(SaleStatus.REJECTED_OUT_OF_STOCK)).thenReturn(20L);
+        when(rollupRepository.totalsByStatus()).thenReturn(List.of(
+                SalesSummaryEngineTest.row(SaleStatus.VALID, 150, "9000.00"),
+                SalesSummaryEngineTest.row(SaleStatus.REJECTED_EXPIRED, 30, "0"),
+                SalesSummaryEngineTest.row(SaleStatus.REJECTED_OUT_OF_STOCK, 20, "0")
+        ));
+
+        LocalDate today = LocalDate.now();
+        when(rollupRepository.totalsByStatus(today, today)).thenReturn(List.of(
+                SalesSummaryEngineTest.row(SaleStatus.VALID, 4, "1200.00")
+        ));
+        intradaySalesCounters.rebuild();
+        intradaySalesCounters.record(List.of(sale("34.56")));
 
         ReflectionTestUtils.setField(service, "lowStockThreshold", 10);
 
@@ -62,5 +95,20 @@ class AdminDashboardServiceTest {
         assertEquals(1234.56, dto.todaySalesAmount(), 0.0001);
         assertEquals(150L, dto.completedSales());
         assertEquals(50L, dto.cancelledSales()); // 30 + 20
+
+        // One all-time GROUP BY; today's amount comes from the counters, loaded once and then kept in memory
+        verify(rollupRepository).totalsByStatus();
+        verify(rollupRepository).totalsByStatus(today, today);
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    private static Sale sale(String total) {
+        Sale sale = new Sale();
+        sale.setMedicine(new Medicine());
+        sale.setQuantitySold(1);
+        sale.setSaleDate(LocalDateTime.now());
+        sale.setStatus(SaleStatus.VALID);
+        sale.setTotalPrice(new BigDecimal(total));
+        return sale;
     }
 }
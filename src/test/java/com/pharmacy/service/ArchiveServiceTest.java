@@ -0,0 +1,170 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleArchiveRow;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.AuditLogRepository;
+import com.pharmacy.repository.SaleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveServiceTest {
+
+    private static final YearMonth JANUARY = YearMonth.of(2025, 1);
+    private static final LocalDateTime JANUARY_START = JANUARY.atDay(1).atStartOfDay();
+    private static final LocalDateTime FEBRUARY_START = JANUARY.plusMonths(1).atDay(1).atStartOfDay();
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directory;
+
+    private SalesArchive archive;
+    private ArchiveService service;
+
+    @BeforeEach
+    void setUp() {
+        archive = new SalesArchive(directory.toString(), 2);
+        service = new ArchiveService(archive, saleRepository, auditLogRepository, transactionManager, 12, 2, 100,
+                () -> YearMonth.of(2026, 1));
+    }
+
+    @Test
+    void archiveSales_writesTheMonthInPagesThenDeletesItInChunks() {
+        when(saleRepository.findFirstSaleDate()).thenReturn(JANUARY_START.plusDays(3));
+        LocalDateTime at = JANUARY.atDay(4).atTime(9, 0);
+        SaleArchiveRow first = row(1L, at);
+        SaleArchiveRow second = row(2L, at);
+        SaleArchiveRow third = row(3L, at.plusHours(2));
+        when(saleRepository.findArchivePage(JANUARY_START, FEBRUARY_START, JANUARY_START, 0L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(first, second));
+        when(saleRepository.findArchivePage(JANUARY_START, FEBRUARY_START, at, 2L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(third));
+        when(saleRepository.deleteChunkBetween(JANUARY_START, FEBRUARY_START, 100)).thenReturn(100, 100, 1, 0);
+
+        List<YearMonth> done = service.archiveSales(JANUARY.plusMonths(1));
+
+        assertEquals(List.of(JANUARY), done);
+        assertTrue(archive.isArchived(JANUARY));
+        assertEquals(JANUARY.plusMonths(1).atDay(1), archive.liveFrom().orElseThrow());
+        SalesArchiveFile.Columns columns = archive.read(JANUARY);
+        assertArrayEquals(new long[]{1L, 2L, 3L}, columns.id);
+        verify(saleRepository, times(4)).deleteChunkBetween(JANUARY_START, FEBRUARY_START, 100);
+
+        long[][] hours = archive.hourTotals(JANUARY.atDay(4), JANUARY.atDay(4));
+        assertEquals(2, hours[9][0]);
+        assertEquals(1600, hours[9][2]);
+        assertEquals(1, hours[11][0]);
+    }
+
+    @Test
+    void archiveSales_stopsAtAMonthWithPendingStock() {
+        when(saleRepository.findFirstSaleDate()).thenReturn(JANUARY_START);
+        when(saleRepository.countStockPendingBetween(JANUARY_START, FEBRUARY_START)).thenReturn(3L);
+
+        assertEquals(List.of(), service.archiveSales(JANUARY.plusMonths(6)));
+
+        assertFalse(archive.isArchived(JANUARY));
+        verify(saleRepository, never()).findArchivePage(any(), any(), any(), anyLong(), any());
+        verify(saleRepository, never()).deleteChunkBetween(any(), any(), anyInt());
+    }
+
+    @Test
+    void archiveSales_onlyDeletesAMonthAlreadyWritten() {
+        new SalesArchiveFile.Writer(JANUARY).writeTo(archive.salesFile(JANUARY));
+        archive.register(JANUARY);
+        // Rows left behind by a delete that was interrupted
+        when(saleRepository.findFirstSaleDate()).thenReturn(JANUARY_START.plusDays(10));
+        when(saleRepository.deleteChunkBetween(JANUARY_START, FEBRUARY_START, 100)).thenReturn(40, 0);
+
+        assertEquals(List.of(JANUARY), service.archiveSales(JANUARY.plusMonths(1)));
+
+        verify(saleRepository, never()).countStockPendingBetween(any(), any());
+        verify(saleRepository, never()).findArchivePage(any(), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void archiveSales_skipsMonthsWithoutSales() {
+        YearMonth placeholder = YearMonth.of(1970, 1);
+        LocalDateTime placeholderStart = placeholder.atDay(1).atStartOfDay();
+        LocalDateTime placeholderEnd = placeholder.plusMonths(1).atDay(1).atStartOfDay();
+        // Undated sales that V13 moved to 1970-01-01, then nothing until January 2025
+        when(saleRepository.findFirstSaleDate()).thenReturn(placeholderStart);
+        when(saleRepository.findArchivePage(placeholderStart, placeholderEnd, placeholderStart, 0L,
+                PageRequest.of(0, 2))).thenReturn(List.of(row(1L, placeholderStart)));
+        when(saleRepository.findFirstSaleDateFrom(placeholderEnd)).thenReturn(JANUARY_START.plusDays(3));
+        when(saleRepository.findArchivePage(JANUARY_START, FEBRUARY_START, JANUARY_START, 0L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(row(2L, JANUARY.atDay(4).atTime(9, 0))));
+
+        List<YearMonth> done = service.archiveSales(JANUARY.plusMonths(1));
+
+        assertEquals(List.of(placeholder, JANUARY), done);
+        assertEquals(List.of(placeholder, JANUARY), archive.months());
+        assertFalse(Files.exists(archive.salesFile(placeholder.plusMonths(1))));
+        verify(saleRepository).findFirstSaleDateFrom(FEBRUARY_START);
+    }
+
+    @Test
+    void archiveAuditLogs_writesAndDeletesClosedMonths() {
+        LocalDateTime at = JANUARY.atDay(20).atTime(12, 0);
+        when(auditLogRepository.findFirstCreatedAt()).thenReturn(at);
+        when(auditLogRepository.findArchivePage(JANUARY_START, FEBRUARY_START, JANUARY_START, 0L,
+                PageRequest.of(0, 2))).thenReturn(List.of(new AuditLog(5L, "admin", "SALE", "SALE", 1L, "Sold", at)));
+        when(auditLogRepository.deleteChunkBetween(JANUARY_START, FEBRUARY_START, 100)).thenReturn(1, 0);
+
+        assertEquals(List.of(JANUARY), service.archiveAuditLogs(JANUARY.plusMonths(1)));
+
+        assertTrue(Files.exists(archive.auditFile(JANUARY)));
+        assertEquals("Sold", AuditArchiveFile.read(archive.auditFile(JANUARY)).get(0).getMessage());
+    }
+
+    @Test
+    void salesArchive_findsMonthsWrittenBeforeARestart() {
+        new SalesArchiveFile.Writer(JANUARY).writeTo(archive.salesFile(JANUARY));
+        new SalesArchiveFile.Writer(JANUARY.plusMonths(1)).writeTo(archive.salesFile(JANUARY.plusMonths(1)));
+
+        SalesArchive reopened = new SalesArchive(directory.toString(), 2);
+
+        assertEquals(List.of(JANUARY, JANUARY.plusMonths(1)), reopened.months());
+        assertEquals(LocalDate.of(2025, 3, 1), reopened.liveFrom().orElseThrow());
+    }
+
+    private static SaleArchiveRow row(Long id, LocalDateTime at) {
+        return new SaleArchiveRow(id, 7L, "Panadol", at, 2, new BigDecimal("8.00"), new BigDecimal("4.00"),
+                new BigDecimal("2.00"), SaleStatus.VALID);
+    }
+}
@@ -0,0 +1,130 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditLogRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncAuditLogWriterTest {
+
+    @Mock
+    private AuditLogRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void write_dropsAndCountsEntriesWhenBufferIsFull() {
+        AsyncAuditLogWriter writer = writer(2, "drop");
+
+        writer.write(List.of(entry("A"), entry("B"), entry("C")));
+
+        assertEquals(1, writer.getDroppedCount());
+        verify(repository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stop_drainsBufferedEntriesInOneBatch() throws Exception {
+        AsyncAuditLogWriter writer = writer(10, "block");
+
+        writer.write(List.of(entry("A"), entry("B"), entry("C")));
+        writer.start();
+        writer.stop();
+
+        ArgumentCaptor<List<AuditLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, atLeastOnce()).saveAll(captor.capture());
+        assertEquals(3, captor.getAllValues().stream().mapToInt(List::size).sum());
+        assertEquals(3, writer.getWrittenCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_replaysSpilledEntries() throws Exception {
+        AsyncAuditLogWriter spilling = writer(1, "spill");
+        spilling.write(List.of(entry("A"), entry("B")));
+        assertEquals(1, spilling.getSpilledCount());
+
+        AsyncAuditLogWriter writer = writer(10, "block");
+        writer.start();
+        writer.stop();
+
+        ArgumentCaptor<List<AuditLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(captor.capture());
+        assertEquals("B", captor.getValue().get(0).getAction());
+        assertFalse(Files.exists(tempDir.resolve("spill.ndjson")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replaySpill_resumesAfterTheLastCommittedBatch() {
+        AsyncAuditLogWriter spilling = writer(1, "spill");
+        spilling.write(List.of(entry("A"), entry("B"), entry("C"), entry("D")));
+        assertEquals(3, spilling.getSpilledCount());
+        when(repository.saveAll(anyList()))
+                .thenReturn(List.of())
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"))
+                .thenReturn(List.of());
+
+        AsyncAuditLogWriter writer = writer(10, "block", 1);
+        writer.replaySpill();
+        writer.replaySpill();
+
+        ArgumentCaptor<List<AuditLog>> captor = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(4)).saveAll(captor.capture());
+        // B was committed before C failed, so the second replay starts at C
+        assertEquals(List.of("B", "C", "C", "D"),
+                captor.getAllValues().stream().map(batch -> batch.get(0).getAction()).toList());
+        assertEquals(3, writer.getWrittenCount());
+        assertFalse(Files.exists(tempDir.resolve("spill.ndjson.replaying")));
+        assertFalse(Files.exists(tempDir.resolve("spill.ndjson.replayed")));
+    }
+
+    private AsyncAuditLogWriter writer(int capacity, String policy) {
+        return writer(capacity, policy, 100);
+    }
+
+    private AsyncAuditLogWriter writer(int capacity, String policy, int maxBatchSize) {
+        return new AsyncAuditLogWriter(repository, transactionManager, objectMapper,
+                capacity, maxBatchSize, 10, policy, tempDir.resolve("spill.ndjson").toString());
+    }
+
+    private AuditLog entry(String action) {
+        AuditLog log = new AuditLog();
+        log.setActor("admin");
+        log.setAction(action);
+        log.setEntityType("SALE");
+        log.setEntityId(1L);
+        log.setMessage("test");
+        log.setCreatedAt(LocalDateTime.now());
+        return log;
+    }
+}
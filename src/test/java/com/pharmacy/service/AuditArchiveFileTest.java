@@ -0,0 +1,40 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AuditArchiveFileTest {
+
+    @Test
+    void writeThenRead_roundTripsEveryColumn(@TempDir Path directory) {
+        YearMonth month = YearMonth.of(2025, 7);
+        LocalDateTime at = month.atDay(3).atTime(10, 0, 5);
+        AuditArchiveFile.Writer writer = new AuditArchiveFile.Writer(month);
+        writer.append(new AuditLog(10L, "admin", "SALE", "SALE", 55L, "Sold 2 x Panadol", at));
+        writer.append(new AuditLog(12L, "pharmacist", "STOCK_IN", "MEDICINE", null, null, at.plusSeconds(1)));
+        writer.append(new AuditLog(11L, "admin", "SALE", "SALE", 56L, "Ünïcode ✓ message", at.plusDays(20)));
+        Path file = directory.resolve("audit_logs-2025-07.col.gz");
+        writer.writeTo(file);
+
+        List<AuditLog> entries = AuditArchiveFile.read(file);
+
+        assertEquals(3, entries.size());
+        assertEquals(new AuditLog(10L, "admin", "SALE", "SALE", 55L, "Sold 2 x Panadol", at), entries.get(0));
+        assertEquals("pharmacist", entries.get(1).getActor());
+        assertEquals("MEDICINE", entries.get(1).getEntityType());
+        assertNull(entries.get(1).getEntityId());
+        assertNull(entries.get(1).getMessage());
+        assertEquals(11L, entries.get(2).getId());
+        assertEquals(at.plusDays(20), entries.get(2).getCreatedAt());
+        assertEquals("Ünïcode ✓ message", entries.get(2).getMessage());
+    }
+}
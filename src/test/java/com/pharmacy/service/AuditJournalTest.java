@@ -0,0 +1,117 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditJournalTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void read_returnsAppendedEntriesAndNextPosition() throws Exception {
+        try (AuditJournal journal = new AuditJournal(dir, 4096, false)) {
+            journal.append(List.of(entry("SALE_CREATE", 7L), entry("STOCK_IN", null)));
+
+            AuditJournal.Batch first = journal.read(journal.first(), 1);
+            assertEquals(1, first.entries().size());
+            assertEquals("SALE_CREATE", first.entries().get(0).getAction());
+            assertEquals(7L, first.entries().get(0).getEntityId());
+
+            AuditJournal.Batch rest = journal.read(first.next(), 10);
+            assertEquals(1, rest.entries().size());
+            assertNull(rest.entries().get(0).getEntityId());
+            assertEquals(journal.head(), rest.next());
+        }
+    }
+
+    @Test
+    void open_cutsOffCorruptTailAndKeepsAppending() throws Exception {
+        try (AuditJournal journal = new AuditJournal(dir, 4096, false)) {
+            journal.append(List.of(entry("A", 1L), entry("B", 2L)));
+        }
+        AuditJournal.Position secondRecord;
+        try (AuditJournal journal = new AuditJournal(dir, 4096, false)) {
+            secondRecord = journal.read(journal.first(), 1).next();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(onlySegment().toFile(), "rw")) {
+            file.seek(secondRecord.offset() + 12);
+            file.write(0x5A);
+        }
+
+        try (AuditJournal journal = new AuditJournal(dir, 4096, false)) {
+            assertEquals(secondRecord, journal.head());
+            journal.append(List.of(entry("C", 3L)));
+
+            List<AuditLog> entries = journal.read(journal.first(), 10).entries();
+            assertEquals(List.of("A", "C"), entries.stream().map(AuditLog::getAction).toList());
+        }
+    }
+
+    @Test
+    void append_rollsSegmentsAndIndexedSegmentsCanBeDeleted() throws Exception {
+        try (AuditJournal journal = new AuditJournal(dir, 512, false)) {
+            journal.append(IntStream.range(0, 20).mapToObj(i -> entry("ACTION_" + i, (long) i)).toList());
+            assertTrue(journal.head().segment() > 1);
+
+            AuditJournal.Batch batch = journal.read(journal.first(), 100);
+            assertEquals(20, batch.entries().size());
+            assertEquals("ACTION_19", batch.entries().get(19).getAction());
+
+            journal.deleteBefore(batch.next());
+            assertEquals(1, segmentCount());
+            assertEquals(0, journal.read(batch.next(), 100).entries().size());
+        }
+    }
+
+    @Test
+    void append_rejectsAListWithAnOversizedEntryWithoutWritingAnyOfIt() throws Exception {
+        try (AuditJournal journal = new AuditJournal(dir, 512, false)) {
+            AuditLog oversized = entry("BULK_IMPORT", 2L);
+            oversized.setMessage("x".repeat(1024));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> journal.append(List.of(entry("SALE_CREATE", 1L), oversized)));
+
+            assertEquals(0, journal.read(journal.first(), 10).entries().size());
+            assertEquals(new AuditJournal.Position(1, 0), journal.head());
+        }
+    }
+
+    private AuditLog entry(String action, Long entityId) {
+        AuditLog log = new AuditLog();
+        log.setActor("pharmacist");
+        log.setAction(action);
+        log.setEntityType("SALE");
+        log.setEntityId(entityId);
+        log.setMessage("Sale recorded");
+        log.setCreatedAt(LocalDateTime.of(2026, 3, 1, 10, 15, 30, 123_000_000));
+        return log;
+    }
+
+    private Path onlySegment() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.pharmacy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditLogRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuditQueryServiceTest {
+
+    @Mock
+    private AuditLogRepository repository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private AuditQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AuditQueryService(repository, entityManager, new ObjectMapper(), 2);
+    }
+
+    @Test
+    void page_returnsCursorOfLastRowWhenPageIsFull() {
+        LocalDateTime at = LocalDateTime.of(2026, 2, 3, 9, 0);
+        AuditQueryService.AuditFilter filter = service.filter(null, "SALE", null, "2026-02-01", "2026-02-03");
+        when(repository.search(isNull(), eq("SALE"), isNull(), eq(LocalDateTime.of(2026, 2, 1, 0, 0)),
+                eq(LocalDateTime.of(2026, 2, 4, 0, 0)), isNull(), isNull(), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(entry(9L, at, "a"), entry(8L, at, "b")));
+
+        AuditQueryService.AuditPage page = service.page(filter, null, 2);
+
+        assertEquals(KeysetCursor.encode(at, 8L), page.nextCursor());
+
+        when(repository.search(isNull(), eq("SALE"), isNull(), any(), any(), eq(at), eq(8L), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(entry(7L, at, "c")));
+        AuditQueryService.AuditPage next = service.page(filter, page.nextCursor(), 2);
+        assertEquals(1, next.items().size());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void page_rejectsMalformedCursor() {
+        AuditQueryService.AuditFilter filter = service.filter(null, null, null, null, null);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.page(filter, "not-a-cursor", 10));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void search_quotesTrimmedQueryAsPhraseClampsLimitAndRejectsTooShortQueries() {
+        service.search("  pana\"dol ", null, "SALE_CREATE", 1000);
+        service.search("  panadol ", null, "SALE_CREATE", 1000);
+
+        verify(repository).fullTextSearch("\"pana dol\"", null, "SALE_CREATE", 100);
+        verify(repository).fullTextSearch("\"panadol\"", null, "SALE_CREATE", 100);
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.search(" a ", null, null, 10));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        assertThrows(ResponseStatusException.class, () -> service.search("\"a\"", null, null, 10));
+    }
+
+    @Test
+    void export_writesEscapedCsvAndDetachesRows() throws Exception {
+        AuditLog row = entry(1L, LocalDateTime.of(2026, 1, 5, 8, 30), "Sold 2 \"Panadol\", expired");
+        when(repository.streamForExport(null, null, null, null, null)).thenReturn(Stream.of(row));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = service.export(service.filter(null, null, null, null, null), AuditQueryService.ExportFormat.CSV, out);
+
+        assertEquals(1, count);
+        assertEquals("id,created_at,actor,action,entity_type,entity_id,message\n"
+                        + "1,2026-01-05T08:30,admin,SALE_CREATE,SALE,3,\"Sold 2 \"\"Panadol\"\", expired\"\n",
+                out.toString(StandardCharsets.UTF_8));
+        verify(entityManager).detach(row);
+    }
+
+    private AuditLog entry(Long id, LocalDateTime createdAt, String message) {
+        return new AuditLog(id, "admin", "SALE_CREATE", "SALE", 3L, message, createdAt);
+    }
+}
@@ -0,0 +1,138 @@
+package com.pharmacy.service;
+
+import com.pharmacy.ScratchData;
+import com.pharmacy.ScratchDatabaseTest;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.AuditLogRepository;
+import com.pharmacy.repository.MedicineRepository;
+import com.pharmacy.repository.SaleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares inserting sales and audit rows one IDENTITY round trip at a time (how Hibernate wrote them
+ * before the pooled id generators) with the current pooled ids plus JDBC batching. The IDENTITY side writes
+ * to AUTO_INCREMENT copies of the tables, since the real ones take ids only from {@code id_generators}.
+ * Runs against the scratch database and removes its rows afterwards:
+ * {@code SCRATCH_DB_URL=jdbc:mysql://localhost:3306/pharmacy_scratch mvn test -Dtest=BulkInsertBenchmark}
+ */
+@ScratchDatabaseTest
+class BulkInsertBenchmark {
+
+    private static final int ROWS = 5_000;
+    private static final String ACTOR = "bulk-insert-benchmark";
+
+    @Autowired
+    private MedicineRepository medicineRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareIdentityWithPooledBatchedInserts() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Medicine medicine = medicineRepository.save(ScratchData.medicine("Bulk insert benchmark", "BENCH-BULK-", 0));
+        jdbcTemplate.execute("""
+                CREATE TABLE bench_identity_sales (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY, medicine_id BIGINT NOT NULL, quantity INT NOT NULL,
+                    sale_date DATETIME NOT NULL, total_price DECIMAL(19, 2), status VARCHAR(50))""");
+        jdbcTemplate.execute("""
+                CREATE TABLE bench_identity_audit_logs (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY, actor VARCHAR(255) NOT NULL, action VARCHAR(100) NOT NULL,
+                    entity_type VARCHAR(100) NOT NULL, entity_id BIGINT, message TEXT, created_at DATETIME NOT NULL)""");
+        try {
+            long identityNanos = time(() -> tx.executeWithoutResult(status -> {
+                for (int i = 0; i < ROWS; i++) {
+                    long saleId = insertReturningKey("""
+                            INSERT INTO bench_identity_sales (medicine_id, quantity, sale_date, total_price, status)
+                            VALUES (?, ?, ?, ?, ?)""",
+                            medicine.getId(), 1, Timestamp.valueOf(LocalDateTime.now()), BigDecimal.TEN,
+                            SaleStatus.VALID.name());
+                    insertReturningKey("""
+                            INSERT INTO bench_identity_audit_logs
+                                (actor, action, entity_type, entity_id, message, created_at)
+                            VALUES (?, ?, ?, ?, ?, ?)""",
+                            ACTOR, "SALE", "SALE", saleId, "identity insert", Timestamp.valueOf(LocalDateTime.now()));
+                }
+            }));
+
+            long pooledNanos = time(() -> tx.executeWithoutResult(status -> {
+                List<Sale> sales = new ArrayList<>(ROWS);
+                for (int i = 0; i < ROWS; i++) {
+                    Sale sale = new Sale();
+                    sale.setMedicine(medicine);
+                    sale.setQuantitySold(1);
+                    sale.setSaleDate(LocalDateTime.now());
+                    sale.setStatus(SaleStatus.VALID);
+                    sales.add(sale);
+                }
+                List<AuditLog> audits = new ArrayList<>(ROWS);
+                for (Sale sale : saleRepository.saveAll(sales)) {
+                    AuditLog audit = new AuditLog();
+                    audit.setActor(ACTOR);
+                    audit.setAction("SALE");
+                    audit.setEntityType("SALE");
+                    audit.setEntityId(sale.getId());
+                    audit.setMessage("pooled batched insert");
+                    audits.add(audit);
+                }
+                auditLogRepository.saveAll(audits);
+            }));
+
+            System.out.printf("%-22s %12s%n", "insert path", "rows/s");
+            System.out.printf("%-22s %12.0f%n", "identity (before)", rowsPerSecond(identityNanos));
+            System.out.printf("%-22s %12.0f%n", "pooled + batched", rowsPerSecond(pooledNanos));
+        } finally {
+            // The pooled rows bypassed the rollup, so none of them may stay behind
+            jdbcTemplate.execute("DROP TABLE IF EXISTS bench_identity_sales");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS bench_identity_audit_logs");
+            ScratchData.deleteMedicine(jdbcTemplate, medicine.getId());
+        }
+    }
+
+    private long insertReturningKey(String sql, Object... args) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    private static long time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+
+    private static double rowsPerSecond(long nanos) {
+        return (ROWS * 2) / (nanos / 1_000_000_000.0);
+    }
+}
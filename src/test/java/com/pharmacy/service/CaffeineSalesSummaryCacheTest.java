@@ -0,0 +1,135 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CaffeineSalesSummaryCacheTest {
+
+    @Mock
+    private SalesSummaryEngine salesSummaryEngine;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private CaffeineSalesSummaryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CaffeineSalesSummaryCache(salesSummaryEngine, 100, Duration.ofMinutes(5), Duration.ofMinutes(1),
+                nanos::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cache.shutdown();
+    }
+
+    @Test
+    void months_loadsMissingMonthsInOneBatchAndServesClosedMonthsFromCache() {
+        YearMonth current = YearMonth.now();
+        YearMonth previous = current.minusMonths(1);
+        when(salesSummaryEngine.forMonths(anyList())).thenAnswer(invocation -> {
+            List<YearMonth> months = invocation.getArgument(0);
+            return months.stream().map(month -> totals(month.getMonthValue())).toList();
+        });
+
+        List<SalesSummaryEngine.Totals> first = cache.months(List.of(previous, current));
+        assertEquals(previous.getMonthValue(), first.get(0).count(SaleStatus.VALID));
+        assertEquals(current.getMonthValue(), first.get(1).count(SaleStatus.VALID));
+
+        // Past the open-month TTL: only the current month is read again
+        nanos.addAndGet(Duration.ofMinutes(10).toNanos());
+        cache.months(List.of(previous, current));
+
+        verify(salesSummaryEngine, times(2)).forMonths(anyList());
+        verify(salesSummaryEngine).forMonths(List.of(current));
+        assertEquals(3, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void invalidate_dropsTheSaleMonthOnlyAfterCommit() {
+        YearMonth current = YearMonth.now();
+        when(salesSummaryEngine.forMonths(List.of(current))).thenReturn(List.of(totals(1)), List.of(totals(2)));
+
+        assertEquals(1, cache.months(List.of(current)).get(0).count(SaleStatus.VALID));
+
+        TransactionSynchronizationManager.initSynchronization();
+        Sale sale = new Sale();
+        sale.setSaleDate(LocalDateTime.now());
+        cache.invalidate(List.of(sale));
+        assertEquals(1, cache.months(List.of(current)).get(0).count(SaleStatus.VALID));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertEquals(2, cache.months(List.of(current)).get(0).count(SaleStatus.VALID));
+    }
+
+    @Test
+    void months_concurrentMissesShareOneLoad() throws Exception {
+        YearMonth month = YearMonth.now().minusMonths(3);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(salesSummaryEngine.forMonths(List.of(month))).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(totals(7));
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<SalesSummaryEngine.Totals>> first = callers.submit(() -> cache.months(List.of(month)));
+            loading.await(5, TimeUnit.SECONDS);
+            List<Future<List<SalesSummaryEngine.Totals>>> others = List.of(
+                    callers.submit(() -> cache.months(List.of(month))),
+                    callers.submit(() -> cache.months(List.of(month))),
+                    callers.submit(() -> cache.months(List.of(month)))
+            );
+            release.countDown();
+
+            assertEquals(7, first.get(5, TimeUnit.SECONDS).get(0).count(SaleStatus.VALID));
+            for (Future<List<SalesSummaryEngine.Totals>> other : others) {
+                assertEquals(7, other.get(5, TimeUnit.SECONDS).get(0).count(SaleStatus.VALID));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(salesSummaryEngine, times(1)).forMonths(List.of(month));
+    }
+
+    private static SalesSummaryEngine.Totals totals(long validSales) {
+        return new SalesSummaryEngine.Totals(Map.of(
+                SaleStatus.VALID, SalesSummaryEngineTest.row(SaleStatus.VALID, validSales, "0")
+        ));
+    }
+}
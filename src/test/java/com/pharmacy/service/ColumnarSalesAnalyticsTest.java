@@ -0,0 +1,185 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.HourlyProfitDto;
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.dto.ProfitSummaryDto;
+import com.pharmacy.dto.SaleArchiveRow;
+import com.pharmacy.dto.SaleFactRow;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayTotals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ColumnarSalesAnalyticsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 5, 4);
+
+    private final SaleRepository saleRepository = mock(SaleRepository.class);
+
+    @TempDir
+    private Path directory;
+
+    private SalesArchive archive;
+    private ColumnarSalesAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        archive = new SalesArchive(directory.toString(), 2);
+        analytics = new ColumnarSalesAnalytics(saleRepository, archive, mock(PlatformTransactionManager.class),
+                2, 2, 2);
+    }
+
+    @AfterEach
+    void shutdown() {
+        analytics.shutdown();
+    }
+
+    @Test
+    void queries_answer503UntilLoaded() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> analytics.profitSummary(DAY, DAY));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+    }
+
+    @Test
+    void load_pagesThroughSalesAndKeepsSalesCommittedMeanwhileOnce() {
+        // Committed before the load: held, then dropped because the snapshot already has it
+        Sale committedDuringLoad = sale(3L, 2L, "Amoxil", DAY.atTime(15, 0), 1, "6.00", "2.00");
+        analytics.record(List.of(committedDuringLoad));
+
+        when(saleRepository.findFactsAfter(0L, PageRequest.of(0, 2))).thenReturn(List.of(
+                row(1L, 1L, "Panadol", DAY.atTime(9, 30), 2, "10.00", "3.00"),
+                row(2L, 2L, "Amoxil", DAY.atTime(9, 45), 1, "6.00", "2.00")
+        ));
+        when(saleRepository.findFactsAfter(2L, PageRequest.of(0, 2))).thenReturn(List.of(
+                row(3L, 2L, "Amoxil", DAY.atTime(15, 0), 1, "6.00", "2.00")
+        ));
+        when(saleRepository.findIdsIn(Set.of(3L))).thenReturn(List.of(3L));
+        analytics.load();
+
+        analytics.record(List.of(sale(4L, 1L, "Panadol", DAY.plusDays(1).atTime(10, 0), 1, "5.00", "3.00")));
+
+        ProfitSummaryDto summary = analytics.profitSummary(DAY, DAY.plusDays(1));
+        assertEquals(4L, summary.getSaleCount());
+        assertEquals(new BigDecimal("27.00"), summary.getTotalRevenue());
+        assertEquals(new BigDecimal("14.00"), summary.getTotalProfit());
+
+        Map<LocalDate, DayTotals> days = analytics.profitByDay(DAY, DAY.plusDays(1));
+        assertEquals(3L, days.get(DAY).getSaleCount());
+        assertEquals(new BigDecimal("5.00"), days.get(DAY.plusDays(1)).getRevenue());
+
+        List<HourlyProfitDto> hours = analytics.profitByHour(DAY, DAY);
+        assertEquals(24, hours.size());
+        assertEquals(2L, hours.get(9).saleCount());
+        assertEquals(1L, hours.get(15).saleCount());
+        assertEquals(0L, hours.get(10).saleCount());
+
+        List<ProfitByMedicineDto> top = analytics.topProfitMedicines(DAY, DAY.plusDays(1), 1);
+        assertEquals(1, top.size());
+        assertEquals(2L, top.get(0).getMedicineId());
+        assertEquals(new BigDecimal("8.00"), top.get(0).getProfit());
+    }
+
+    @Test
+    void load_appendsASaleReadBeforeItsCommitHookRanOnce() {
+        Sale readByThePage = sale(1L, 1L, "Panadol", DAY.atTime(9, 30), 2, "10.00", "3.00");
+        Sale missedByThePage = sale(7L, 2L, "Amoxil", DAY.atTime(9, 31), 1, "6.00", "2.00");
+        when(saleRepository.findFactsAfter(0L, PageRequest.of(0, 2))).thenAnswer(invocation -> {
+            // Both hooks run after the page was read; only the first sale had committed in time for it
+            analytics.record(List.of(readByThePage));
+            analytics.record(List.of(missedByThePage));
+            return List.of(row(1L, 1L, "Panadol", DAY.atTime(9, 30), 2, "10.00", "3.00"));
+        });
+        when(saleRepository.findIdsIn(Set.of(1L, 7L))).thenReturn(List.of(1L));
+
+        analytics.load();
+
+        ProfitSummaryDto summary = analytics.profitSummary(DAY, DAY);
+        assertEquals(2L, summary.getSaleCount());
+        assertEquals(new BigDecimal("16.00"), summary.getTotalRevenue());
+    }
+
+    @Test
+    void record_ignoresSalesThatAreNotValid() {
+        when(saleRepository.findFactsAfter(0L, PageRequest.of(0, 2))).thenReturn(List.of());
+        analytics.load();
+
+        Sale rejected = sale(1L, 1L, "Panadol", DAY.atTime(9, 0), 5, "0.00", "3.00");
+        rejected.setStatus(SaleStatus.REJECTED_EXPIRED);
+        analytics.record(List.of(rejected));
+
+        assertEquals(0L, analytics.profitSummary(DAY, DAY).getSaleCount());
+    }
+
+    @Test
+    void load_readsArchivedMonthsAndSkipsTheirLeftoverLiveRows() {
+        YearMonth archived = YearMonth.from(DAY.minusMonths(1));
+        SalesArchiveFile.Writer writer = new SalesArchiveFile.Writer(archived);
+        writer.append(new SaleArchiveRow(1L, 1L, "Panadol", archived.atDay(3).atTime(11, 0), 2,
+                new BigDecimal("10.00"), new BigDecimal("5.00"), new BigDecimal("3.00"), SaleStatus.VALID));
+        writer.append(new SaleArchiveRow(2L, 1L, "Panadol", archived.atDay(3).atTime(12, 0), 1,
+                new BigDecimal("0.00"), new BigDecimal("5.00"), new BigDecimal("3.00"), SaleStatus.REJECTED_EXPIRED));
+        writer.writeTo(archive.salesFile(archived));
+        archive.register(archived);
+        // Sale 1 was archived but its delete had not finished
+        when(saleRepository.findFactsAfter(0L, PageRequest.of(0, 2))).thenReturn(List.of(
+                row(1L, 1L, "Panadol", archived.atDay(3).atTime(11, 0), 2, "10.00", "3.00"),
+                row(3L, 2L, "Amoxil", DAY.atTime(9, 0), 1, "6.00", "2.00")
+        ));
+        when(saleRepository.findFactsAfter(3L, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        analytics.load();
+
+        ProfitSummaryDto summary = analytics.profitSummary(archived.atDay(1), DAY);
+        assertEquals(2L, summary.getSaleCount());
+        assertEquals(new BigDecimal("16.00"), summary.getTotalRevenue());
+        assertEquals(new BigDecimal("8.00"), summary.getTotalProfit());
+        assertEquals(1L, analytics.profitByDay(archived.atDay(1), DAY).get(archived.atDay(3)).getSaleCount());
+    }
+
+    private static SaleFactRow row(Long id, Long medicineId, String name, LocalDateTime saleDate, int quantity,
+                                   String totalPrice, String unitCost) {
+        return new SaleFactRow(id, medicineId, name, saleDate, quantity, new BigDecimal(totalPrice),
+                new BigDecimal(unitCost));
+    }
+
+    private static Sale sale(Long id, Long medicineId, String name, LocalDateTime saleDate, int quantity,
+                             String totalPrice, String unitCost) {
+        Medicine medicine = new Medicine();
+        medicine.setId(medicineId);
+        medicine.setName(name);
+        Sale sale = new Sale();
+        sale.setId(id);
+        sale.setMedicine(medicine);
+        sale.setSaleDate(saleDate);
+        sale.setQuantitySold(quantity);
+        sale.setTotalPrice(new BigDecimal(totalPrice));
+        sale.setUnitCost(new BigDecimal(unitCost));
+        sale.setStatus(SaleStatus.VALID);
+        return sale;
+    }
+}
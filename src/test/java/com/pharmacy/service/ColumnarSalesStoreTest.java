@@ -0,0 +1,133 @@
+package com.pharmacy.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColumnarSalesStoreTest {
+
+    private record Row(long medicineId, LocalDateTime saleDate, int quantity, long revenueCents, long costCents) {
+    }
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    // Small segments so a few hundred rows span many fork/join tasks
+    private final ColumnarSalesStore store = new ColumnarSalesStore(16, pool);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void scan_matchesNaiveSumsForEveryGrouping() {
+        Random random = new Random(42);
+        LocalDate first = LocalDate.of(2026, 1, 1);
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // Mostly in date order with some stragglers, like real commits
+            LocalDate day = first.plusDays(i / 10 - (random.nextInt(10) == 0 ? random.nextInt(5) : 0));
+            Row row = new Row(1 + random.nextInt(7), day.atTime(random.nextInt(24), random.nextInt(60)),
+                    1 + random.nextInt(5), random.nextInt(10_000), random.nextInt(5_000));
+            rows.add(row);
+            store.append(row.medicineId(), "Medicine " + row.medicineId(), row.saleDate(), row.quantity(),
+                    row.revenueCents(), row.costCents());
+        }
+        assertEquals(500, store.rows());
+
+        LocalDate from = first.plusDays(12);
+        LocalDate to = first.plusDays(31);
+        for (ColumnarSalesStore.GroupBy groupBy : ColumnarSalesStore.GroupBy.values()) {
+            ColumnarSalesStore.Totals actual = store.scan(from.toEpochDay(), to.toEpochDay(), groupBy);
+            long[][] expected = naive(rows, from, to, groupBy, actual.count.length);
+            assertArrayEquals(expected[0], actual.count, groupBy.name());
+            assertArrayEquals(expected[1], actual.quantity, groupBy.name());
+            assertArrayEquals(expected[2], actual.revenueCents, groupBy.name());
+            assertArrayEquals(expected[3], actual.costCents, groupBy.name());
+        }
+    }
+
+    @Test
+    void scan_skipsSegmentsOutsideTheRangeWhenRowsArriveInDateOrder() {
+        LocalDate first = LocalDate.of(2026, 1, 1);
+        for (int day = 0; day < 100; day++) {
+            for (int i = 0; i < 4; i++) {
+                store.append(1L, "Panadol", first.plusDays(day).atTime(9 + i, 0), 1, 100, 40);
+            }
+        }
+
+        ColumnarSalesStore.Totals totals = store.scan(
+                first.plusDays(40).toEpochDay(), first.plusDays(49).toEpochDay(), ColumnarSalesStore.GroupBy.DAY);
+
+        assertEquals(10, totals.count.length);
+        for (int day = 0; day < 10; day++) {
+            assertEquals(4, totals.count[day]);
+            assertEquals(400, totals.revenueCents[day]);
+        }
+    }
+
+    @Test
+    void scan_outsideStoredDaysIsEmpty() {
+        store.append(1L, "Panadol", LocalDateTime.of(2026, 3, 1, 9, 0), 2, 1_000, 400);
+
+        ColumnarSalesStore.Totals totals = store.scan(
+                LocalDate.of(2026, 4, 1).toEpochDay(), LocalDate.of(2026, 4, 30).toEpochDay(),
+                ColumnarSalesStore.GroupBy.NONE);
+
+        assertEquals(0, totals.count[0]);
+        assertEquals(0, totals.revenueCents[0]);
+    }
+
+    @Test
+    void medicineCodes_areDenseAndKeepTheLatestName() {
+        LocalDateTime now = LocalDateTime.of(2026, 3, 1, 9, 0);
+        store.append(40L, "Panadol", now, 1, 100, 50);
+        store.append(7L, "Amoxil", now, 1, 100, 50);
+        store.append(40L, "Panadol Extra", now, 1, 100, 50);
+
+        assertEquals(2, store.medicineCount());
+        assertEquals(40L, store.medicineId(0));
+        assertEquals("Panadol Extra", store.medicineName(0));
+        assertEquals(7L, store.medicineId(1));
+    }
+
+    // count, quantity, revenue and cost per group, summed row by row
+    private long[][] naive(List<Row> rows, LocalDate from, LocalDate to, ColumnarSalesStore.GroupBy groupBy,
+                           int groups) {
+        long[][] sums = new long[4][groups];
+        for (Row row : rows) {
+            LocalDate day = row.saleDate().toLocalDate();
+            if (day.isBefore(from) || day.isAfter(to)) {
+                continue;
+            }
+            int group = switch (groupBy) {
+                case NONE -> 0;
+                case DAY -> (int) (day.toEpochDay() - from.toEpochDay());
+                case MEDICINE -> codeOf(row.medicineId(), groups);
+                case HOUR -> row.saleDate().getHour();
+            };
+            sums[0][group]++;
+            sums[1][group] += row.quantity();
+            sums[2][group] += row.revenueCents();
+            sums[3][group] += row.costCents();
+        }
+        return sums;
+    }
+
+    private int codeOf(long medicineId, int groups) {
+        for (int code = 0; code < groups; code++) {
+            if (store.medicineId(code) == medicineId) {
+                return code;
+            }
+        }
+        throw new AssertionError("No code for medicine " + medicineId);
+    }
+}
@@ -0,0 +1,106 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Sale;
+import com.pharmacy.repository.SaleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommittedSalesFeedTest {
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> view = new ArrayList<>();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void load_dropsASaleTheSnapshotHeldWhoseCommitHookRunsAfterTheLoad() {
+        CommittedSalesFeed feed = feed();
+        // Sale 7 commits before the snapshot reads, but its afterCommit hook is still to run
+        List<TransactionSynchronization> hooks = recordInTransaction(feed, sale(7L));
+        when(saleRepository.findIdsIn(anyCollection())).thenReturn(List.of(7L));
+
+        feed.load(() -> {
+            view.clear();
+            view.add(7L);
+        });
+        complete(hooks, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(List.of(7L), view);
+    }
+
+    @Test
+    void load_passesOnAPendingSaleTheSnapshotDidNotHold() {
+        CommittedSalesFeed feed = feed();
+        List<TransactionSynchronization> hooks = recordInTransaction(feed, sale(8L));
+        when(saleRepository.findIdsIn(anyCollection())).thenReturn(List.of());
+
+        feed.load(view::clear);
+        complete(hooks, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(List.of(8L), view);
+    }
+
+    @Test
+    void record_forgetsASaleWhoseTransactionRolledBack() {
+        CommittedSalesFeed feed = feed();
+        feed.load(view::clear);
+        complete(recordInTransaction(feed, sale(9L)), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Nothing pending, so the next load asks the database about nothing
+        feed.load(view::clear);
+
+        assertEquals(List.of(), view);
+    }
+
+    private CommittedSalesFeed feed() {
+        return new CommittedSalesFeed(saleRepository, transactionManager,
+                sales -> sales.forEach(sale -> view.add(sale.getId())));
+    }
+
+    private static List<TransactionSynchronization> recordInTransaction(CommittedSalesFeed feed, Sale sale) {
+        TransactionSynchronizationManager.initSynchronization();
+        feed.record(List.of(sale));
+        List<TransactionSynchronization> hooks = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        return hooks;
+    }
+
+    private static void complete(List<TransactionSynchronization> hooks, int status) {
+        for (TransactionSynchronization hook : hooks) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                hook.afterCommit();
+            }
+            hook.afterCompletion(status);
+        }
+    }
+
+    private static Sale sale(Long id) {
+        Sale sale = new Sale();
+        sale.setId(id);
+        return sale;
+    }
+}
@@ -0,0 +1,112 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.IdempotencyRecord;
+import com.pharmacy.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(repository, transactionManager, 24, 60, 100);
+    }
+
+    @Test
+    void claim_replaysCompletedResponseFromMemoryWithoutTouchingTheDatabase() {
+        when(repository.findByScopeKey("k")).thenReturn(Optional.empty());
+
+        assertEquals(IdempotencyService.ClaimState.ACQUIRED, service.claim("k", "hash").state());
+        verify(repository).save(any(IdempotencyRecord.class));
+
+        IdempotencyRecord pending = new IdempotencyRecord();
+        when(repository.findByScopeKey("k")).thenReturn(Optional.of(pending));
+        service.complete("k", "hash", 200, "application/json", "{\"id\":1}");
+
+        IdempotencyService.Claim retry = service.claim("k", "hash");
+        assertEquals(IdempotencyService.ClaimState.REPLAY, retry.state());
+        assertEquals("{\"id\":1}", retry.response().body());
+        assertEquals(200, retry.response().statusCode());
+
+        verify(repository, times(2)).findByScopeKey("k");
+        verify(repository, times(2)).save(any(IdempotencyRecord.class));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void claim_rejectsReuseOfKeyForDifferentRequest() {
+        IdempotencyRecord stored = new IdempotencyRecord();
+        stored.setRequestHash("original");
+        stored.setStatusCode(200);
+        stored.setResponseBody("{}");
+        stored.setCreatedAt(LocalDateTime.now());
+        when(repository.findByScopeKey("k")).thenReturn(Optional.of(stored));
+
+        assertEquals(IdempotencyService.ClaimState.MISMATCH, service.claim("k", "other").state());
+    }
+
+    @Test
+    void claim_reportsInProgressWhileOriginalIsRunning() {
+        when(repository.findByScopeKey("k")).thenReturn(Optional.empty());
+
+        assertEquals(IdempotencyService.ClaimState.ACQUIRED, service.claim("k", "hash").state());
+        assertEquals(IdempotencyService.ClaimState.IN_PROGRESS, service.claim("k", "hash").state());
+
+        service.release("k");
+        assertEquals(IdempotencyService.ClaimState.ACQUIRED, service.claim("k", "hash").state());
+    }
+
+    @Test
+    void claim_takesOverAPendingKeyOnceItsLeaseRunsOut() {
+        IdempotencyRecord abandoned = new IdempotencyRecord();
+        abandoned.setId(7L);
+        abandoned.setRequestHash("hash");
+        abandoned.setCreatedAt(LocalDateTime.now().minusMinutes(2));
+        when(repository.findByScopeKey("k")).thenReturn(Optional.of(abandoned));
+
+        assertEquals(IdempotencyService.ClaimState.ACQUIRED, service.claim("k", "hash").state());
+        verify(repository).deleteRecord(7L);
+
+        abandoned.setCreatedAt(LocalDateTime.now());
+        service.abandon("k");
+        assertEquals(IdempotencyService.ClaimState.IN_PROGRESS, service.claim("k", "hash").state());
+    }
+
+    @Test
+    void complete_keepsTheKeyAndReplaysWhenTheResponseCannotBeStored() {
+        when(repository.findByScopeKey("k")).thenReturn(Optional.empty());
+        assertEquals(IdempotencyService.ClaimState.ACQUIRED, service.claim("k", "hash").state());
+
+        when(repository.findByScopeKey("k")).thenThrow(new DataAccessResourceFailureException("down"));
+        service.complete("k", "hash", 201, "application/json", "{\"id\":1}");
+
+        verify(repository, times(4)).findByScopeKey("k");
+        verify(repository, never()).deleteByScopeKey("k");
+        assertEquals(IdempotencyService.ClaimState.REPLAY, service.claim("k", "hash").state());
+    }
+}
@@ -0,0 +1,91 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Medicine;
+import com.pharmacy.repository.MedicineRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryStockDecrementStrategyTest {
+
+    @Mock
+    private MedicineRepository medicineRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private InventoryFlushService inventoryFlushService;
+
+    @InjectMocks
+    private InMemoryStockDecrementStrategy strategy;
+
+    @BeforeEach
+    void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void endTransaction() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void tryDecrement_seedsOnceAndRejectsWhenCounterIsExhausted() {
+        when(medicineRepository.findAvailableQuantity(1L)).thenReturn(5);
+        Medicine medicine = medicine(1L);
+
+        assertTrue(strategy.tryDecrement(medicine, 3));
+        assertEquals(2, medicine.getQuantity());
+        assertFalse(strategy.tryDecrement(medicine, 3));
+        assertTrue(strategy.tryDecrement(medicine, 2));
+        assertEquals(0, medicine.getQuantity());
+
+        verify(medicineRepository, times(1)).findAvailableQuantity(1L);
+    }
+
+    @Test
+    void tryDecrement_returnsStockWhenTransactionRollsBack() {
+        when(medicineRepository.findAvailableQuantity(1L)).thenReturn(5);
+        Medicine medicine = medicine(1L);
+
+        assertTrue(strategy.tryDecrement(medicine, 5));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(strategy.tryDecrement(medicine, 5));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertFalse(strategy.tryDecrement(medicine, 1));
+    }
+
+    private static void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Medicine medicine(Long id) {
+        Medicine medicine = new Medicine();
+        medicine.setId(id);
+        medicine.setQuantity(5);
+        return medicine;
+    }
+}
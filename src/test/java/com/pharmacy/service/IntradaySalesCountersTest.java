@@ -0,0 +1,154 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IntradaySalesCountersTest {
+
+    @Mock
+    private SalesDailyRollupRepository rollupRepository;
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SalesSummaryEngine salesSummaryEngine;
+
+    private IntradaySalesCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        salesSummaryEngine = new SalesSummaryEngine(rollupRepository, 1);
+        counters = new IntradaySalesCounters(salesSummaryEngine, saleRepository, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        salesSummaryEngine.shutdown();
+    }
+
+    @Test
+    void record_countsSalesOnlyAfterCommit() {
+        counters.rebuild();
+        LocalDateTime now = LocalDateTime.now();
+        TransactionSynchronizationManager.initSynchronization();
+
+        counters.record(List.of(
+                sale(3, now, SaleStatus.VALID, "12.30", "2.05"),
+                sale(1, now, SaleStatus.REJECTED_EXPIRED, "0", "2.05")
+        ));
+        assertEquals(0, counters.today().totalCount());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        IntradaySalesCounters.Day today = counters.today();
+        assertEquals(1, today.count(SaleStatus.VALID));
+        assertEquals(1, today.count(SaleStatus.REJECTED_EXPIRED));
+        assertEquals(2, today.totalCount());
+        assertEquals(1230, today.revenueCents());
+        assertEquals(615, today.costCents());
+    }
+
+    @Test
+    void record_ignoresSalesFromDaysThatRolledOver() {
+        counters.rebuild();
+        counters.record(List.of(sale(1, LocalDateTime.now().minusDays(1), SaleStatus.VALID, "5.00", "1.00")));
+
+        assertEquals(0, counters.today().totalCount());
+        assertEquals(0, counters.today().revenueCents());
+    }
+
+    @Test
+    void rebuild_loadsTodayFromTheRollupAndKeepsCounting() {
+        LocalDate today = LocalDate.now();
+        when(rollupRepository.totalsByStatus(today, today)).thenReturn(List.of(
+                SalesSummaryEngineTest.row(SaleStatus.VALID, 4, "100.50"),
+                SalesSummaryEngineTest.row(SaleStatus.REJECTED_OUT_OF_STOCK, 2, "0")
+        ));
+
+        counters.rebuild();
+        counters.record(List.of(sale(1, LocalDateTime.now(), SaleStatus.VALID, "9.50", "4.00")));
+
+        IntradaySalesCounters.Day day = counters.today();
+        assertEquals(today, day.date());
+        assertEquals(5, day.count(SaleStatus.VALID));
+        assertEquals(2, day.count(SaleStatus.REJECTED_OUT_OF_STOCK));
+        assertEquals(11000, day.revenueCents());
+    }
+
+    @Test
+    void rebuild_countsSalesCommittedDuringTheLoadOnce() {
+        LocalDate today = LocalDate.now();
+        Sale inSnapshot = sale(1, LocalDateTime.now(), SaleStatus.VALID, "10.00", "4.00");
+        inSnapshot.setId(1L);
+        Sale afterSnapshot = sale(1, LocalDateTime.now(), SaleStatus.VALID, "7.00", "3.00");
+        afterSnapshot.setId(2L);
+        when(rollupRepository.totalsByStatus(today, today)).thenAnswer(invocation -> {
+            // Both commit while the rollup is read; only the first made it into the snapshot
+            counters.record(List.of(inSnapshot));
+            counters.record(List.of(afterSnapshot));
+            return List.of(SalesSummaryEngineTest.row(SaleStatus.VALID, 3, "30.00"));
+        });
+        when(saleRepository.findIdsIn(Set.of(1L, 2L))).thenReturn(List.of(1L));
+
+        counters.rebuild();
+
+        IntradaySalesCounters.Day day = counters.today();
+        assertEquals(4, day.count(SaleStatus.VALID));
+        assertEquals(3700, day.revenueCents());
+    }
+
+    @Test
+    void rollOver_loadsTheNewDayFromTheRollup() {
+        LocalDate today = LocalDate.now();
+        when(rollupRepository.totalsByStatus(today, today))
+                .thenReturn(List.of())
+                .thenReturn(List.of(SalesSummaryEngineTest.row(SaleStatus.VALID, 2, "20.00")));
+        counters.rebuild();
+
+        counters.rollOver();
+
+        assertEquals(2, counters.today().count(SaleStatus.VALID));
+        assertEquals(2000, counters.today().revenueCents());
+    }
+
+    private Sale sale(int quantity, LocalDateTime at, SaleStatus status, String total, String unitCost) {
+        Sale sale = new Sale();
+        sale.setMedicine(new Medicine());
+        sale.setUnitCost(new BigDecimal(unitCost));
+        sale.setQuantitySold(quantity);
+        sale.setSaleDate(at);
+        sale.setStatus(status);
+        sale.setTotalPrice(new BigDecimal(total));
+        return sale;
+    }
+}
@@ -0,0 +1,84 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.repository.AuditJournalCheckpointRepository;
+import com.pharmacy.repository.AuditLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the writer against an in-memory H2 schema with real transactions, so entries handed over in
+ * {@code afterCommit} are checked against what actually reached {@code audit_logs}.
+ */
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:journal-writer;MODE=MySQL;NON_KEYWORDS=DAY",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JournalAuditLogWriterTest {
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditJournalCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path journalDir;
+
+    private JournalAuditLogWriter writer;
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        if (writer != null) {
+            writer.shutdown();
+        }
+        auditLogRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void write_savesAnOversizedEntryToTheTableAfterTheCallerCommits() throws Exception {
+        writer = new JournalAuditLogWriter(auditLogRepository, checkpointRepository, transactionManager,
+                journalDir.toString(), 1, false, 500);
+        AuditLog oversized = entry("x".repeat(2 * 1024 * 1024));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> writer.write(List.of(oversized)));
+
+        List<AuditLog> saved = auditLogRepository.findAll();
+        assertEquals(1, saved.size());
+        assertEquals(2 * 1024 * 1024, saved.get(0).getMessage().length());
+    }
+
+    private static AuditLog entry(String message) {
+        AuditLog entry = new AuditLog();
+        entry.setActor("admin");
+        entry.setAction("UPDATE");
+        entry.setEntityType("MEDICINE");
+        entry.setEntityId(1L);
+        entry.setMessage(message);
+        entry.setCreatedAt(LocalDateTime.of(2026, 5, 1, 9, 0));
+        return entry;
+    }
+}
@@ -0,0 +1,120 @@
+package com.pharmacy.service;
+
+import com.pharmacy.ScratchData;
+import com.pharmacy.ScratchDatabaseTest;
+import com.pharmacy.dto.ProfitPeriod;
+import com.pharmacy.dto.ProfitPointDto;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.repository.MedicineRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the old profit series path (three aggregate queries over {@code sales} per bucket) with the
+ * current single GROUP BY day over {@code sales_daily_rollup}, for a one-year DAILY series. Seeds
+ * {@code benchmark.sales.rows} sales (default 2,000,000) into the scratch database and deletes them, with
+ * their rollup rows, afterwards:
+ * {@code SCRATCH_DB_URL=jdbc:mysql://localhost:3306/pharmacy_scratch mvn test -Dtest=ProfitSeriesBenchmark}
+ */
+@ScratchDatabaseTest
+class ProfitSeriesBenchmark {
+
+    private static final int INSERT_CHUNK = 5_000;
+
+    @Autowired
+    private MedicineRepository medicineRepository;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compareBucketLoopWithSingleGroupBy() {
+        int rows = Integer.getInteger("benchmark.sales.rows", 2_000_000);
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate start = end.minusDays(364);
+        Medicine medicine = medicineRepository.save(ScratchData.medicine("Profit series benchmark", "BENCH-PROFIT-", 0));
+        try {
+            seedSales(medicine, rows, start);
+            salesRollupService.backfill(start, end);
+
+            long bucketLoopNanos = time(() -> bucketLoop(start, end));
+            int[] points = new int[1];
+            long groupByNanos = time(() ->
+                    points[0] = saleService.getProfitSeries(start, end, ProfitPeriod.DAILY).size());
+            assertEquals(365, points[0]);
+
+            System.out.printf("%-28s %10s %12s%n", "profit series (365 days)", "queries", "ms");
+            System.out.printf("%-28s %10d %12.1f%n", "per-bucket over sales", 365 * 3, bucketLoopNanos / 1e6);
+            System.out.printf("%-28s %10d %12.1f%n", "GROUP BY day over rollup", 1, groupByNanos / 1e6);
+        } finally {
+            ScratchData.deleteMedicine(jdbcTemplate, medicine.getId());
+        }
+    }
+
+    /**
+     * The series as it was computed before the rollup: revenue, cost and count per day straight from sales.
+     */
+    private List<ProfitPointDto> bucketLoop(LocalDate start, LocalDate end) {
+        List<ProfitPointDto> points = new ArrayList<>();
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+            Timestamp to = Timestamp.valueOf(day.atTime(23, 59, 59));
+            BigDecimal revenue = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(total_price), 0) FROM sales WHERE status = 'VALID' AND sale_date BETWEEN ? AND ?",
+                    BigDecimal.class, from, to);
+            BigDecimal cost = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(s.quantity * m.cost_price), 0) FROM sales s JOIN medicines m ON m.id = s.medicine_id"
+                            + " WHERE s.status = 'VALID' AND s.sale_date BETWEEN ? AND ?",
+                    BigDecimal.class, from, to);
+            Long count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM sales WHERE status = 'VALID' AND sale_date BETWEEN ? AND ?",
+                    Long.class, from, to);
+            points.add(new ProfitPointDto(day.toString(), day, day, revenue, cost, revenue.subtract(cost), count));
+        }
+        return points;
+    }
+
+    private void seedSales(Medicine medicine, int rows, LocalDate start) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM sales", Long.class) + 1_000_000;
+        for (int done = 0; done < rows; done += INSERT_CHUNK) {
+            int chunk = Math.min(INSERT_CHUNK, rows - done);
+            List<Object[]> batch = new ArrayList<>(chunk);
+            for (int i = 0; i < chunk; i++) {
+                LocalDateTime at = start.plusDays(random.nextInt(365)).atStartOfDay().plusSeconds(random.nextInt(86_400));
+                int quantity = 1 + random.nextInt(5);
+                batch.add(new Object[]{id++, medicine.getId(), quantity, Timestamp.valueOf(at),
+                        BigDecimal.TEN.multiply(BigDecimal.valueOf(quantity)), "VALID"});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO sales (id, medicine_id, quantity, sale_date, total_price, status, stock_applied,"
+                            + " unit_price, unit_cost) VALUES (?, ?, ?, ?, ?, ?, 1, 10.00, 1.00)",
+                    batch);
+        }
+        // Keep the pooled id generator ahead of the ids written directly above
+        jdbcTemplate.update("UPDATE id_generators SET next_val = GREATEST(next_val, ?) WHERE name = 'sales'", id + 50);
+    }
+
+    private static long time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+}
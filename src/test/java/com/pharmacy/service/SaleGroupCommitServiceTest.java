@@ -0,0 +1,133 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleRequest;
+import com.pharmacy.model.Sale;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaleGroupCommitServiceTest {
+
+    @Mock
+    private SaleService saleService;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    private SaleGroupCommitService service;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void submit_commitsConcurrentSalesInOneBatch() throws Exception {
+        service = new SaleGroupCommitService(saleService, auditLogService, true, 4, 2_000, 100, 5_000);
+        service.start();
+        when(auditLogService.currentActor()).thenReturn("cashier");
+        when(saleService.createSales(anyList(), anyList())).thenAnswer(invocation -> {
+            List<SaleRequest> requests = invocation.getArgument(0);
+            List<SaleService.BatchOutcome> outcomes = new ArrayList<>();
+            for (SaleRequest request : requests) {
+                Sale sale = new Sale();
+                sale.setId(request.getMedicineId());
+                outcomes.add(new SaleService.BatchOutcome(sale, null));
+            }
+            return outcomes;
+        });
+
+        List<CompletableFuture<Sale>> results = new ArrayList<>();
+        for (long i = 1; i <= 4; i++) {
+            SaleRequest request = request(i);
+            results.add(CompletableFuture.supplyAsync(() -> service.submit(request)));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 1L, results.get(i).get(5, TimeUnit.SECONDS).getId());
+        }
+        verify(saleService, times(1)).createSales(anyList(), anyList());
+    }
+
+    @Test
+    void submit_reportsPerRequestErrorsToTheirOwnCaller() {
+        service = new SaleGroupCommitService(saleService, auditLogService, true, 1, 0, 100, 5_000);
+        service.start();
+        when(saleService.createSales(anyList(), anyList())).thenReturn(List.of(new SaleService.BatchOutcome(
+                null, new ResponseStatusException(HttpStatus.NOT_FOUND, "Medicine not found"))));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.submit(request(9L)));
+
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    @Test
+    void submit_givesUpOnABatchThatTakesTooLong() throws Exception {
+        service = new SaleGroupCommitService(saleService, auditLogService, true, 1, 0, 100, 50);
+        service.start();
+        CountDownLatch release = new CountDownLatch(1);
+        when(saleService.createSales(anyList(), anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(new SaleService.BatchOutcome(new Sale(), null));
+        });
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.submit(request(1L)));
+        release.countDown();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+    }
+
+    @Test
+    void submit_failsWaitingSalesWhenTheWorkerDies() {
+        service = new SaleGroupCommitService(saleService, auditLogService, true, 1, 0, 100, 5_000);
+        service.start();
+        when(saleService.createSales(anyList(), anyList())).thenThrow(new OutOfMemoryError("Java heap space"));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.submit(request(1L)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+
+        // Nothing is queued behind a worker that is gone
+        assertThrows(ResponseStatusException.class, () -> service.submit(request(2L)));
+        verify(saleService, times(1)).createSales(anyList(), anyList());
+    }
+
+    @Test
+    void submit_goesStraightToSaleServiceWhenDisabled() {
+        service = new SaleGroupCommitService(saleService, auditLogService, false, 50, 5, 100, 5_000);
+        service.start();
+        SaleRequest request = request(1L);
+
+        service.submit(request);
+
+        verify(saleService).createSale(request);
+        verify(saleService, never()).createSales(anyList(), anyList());
+    }
+
+    private static SaleRequest request(Long medicineId) {
+        SaleRequest request = new SaleRequest();
+        request.setMedicineId(medicineId);
+        request.setQuantity(1);
+        return request;
+    }
+}
@@ -0,0 +1,82 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleHistoryItem;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaleQueryServiceTest {
+
+    @Mock
+    private SaleRepository repository;
+
+    private SaleQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SaleQueryService(repository);
+    }
+
+    @Test
+    void page_passesFiltersAndReturnsCursorOfLastRowWhenPageIsFull() {
+        LocalDateTime at = LocalDateTime.of(2026, 3, 4, 10, 15);
+        BigDecimal min = new BigDecimal("5.00");
+        SaleQueryService.SaleFilter filter = service.filter(
+                SaleStatus.VALID, 7L, "2026-03-01", "2026-03-04", min, null);
+        when(repository.history(eq(SaleStatus.VALID), eq(7L), eq(LocalDateTime.of(2026, 3, 1, 0, 0)),
+                eq(LocalDateTime.of(2026, 3, 5, 0, 0)), eq(min), isNull(), isNull(), isNull(),
+                eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(item(12L, at), item(11L, at)));
+
+        SaleQueryService.SalePage page = service.page(filter, null, 2);
+
+        assertEquals(KeysetCursor.encode(at, 11L), page.nextCursor());
+
+        when(repository.history(eq(SaleStatus.VALID), eq(7L), any(), any(), eq(min), isNull(), eq(at), eq(11L),
+                eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(item(10L, at.minusMinutes(1))));
+        SaleQueryService.SalePage next = service.page(filter, page.nextCursor(), 2);
+        assertEquals(1, next.items().size());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void filter_rejectsInvertedRangesAndBadCursors() {
+        ResponseStatusException amounts = assertThrows(ResponseStatusException.class,
+                () -> service.filter(null, null, null, null, BigDecimal.TEN, BigDecimal.ONE));
+        assertEquals(HttpStatus.BAD_REQUEST, amounts.getStatusCode());
+
+        ResponseStatusException dates = assertThrows(ResponseStatusException.class,
+                () -> service.filter(null, null, "2026-03-05", "2026-03-01", null, null));
+        assertEquals(HttpStatus.BAD_REQUEST, dates.getStatusCode());
+
+        SaleQueryService.SaleFilter filter = service.filter(null, null, null, null, null, null);
+        ResponseStatusException cursor = assertThrows(ResponseStatusException.class,
+                () -> service.page(filter, "not-a-cursor", 10));
+        assertEquals(HttpStatus.BAD_REQUEST, cursor.getStatusCode());
+    }
+
+    private SaleHistoryItem item(Long id, LocalDateTime at) {
+        return new SaleHistoryItem(id, 7L, "Panadol", 2, new BigDecimal("8.00"), SaleStatus.VALID, at);
+    }
+}
@@ -0,0 +1,264 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.BasketSaleRequest;
+import com.pharmacy.dto.BasketSaleResponse;
+import com.pharmacy.dto.ProfitPeriod;
+import com.pharmacy.dto.ProfitPointDto;
+import com.pharmacy.dto.SaleRequest;
+import com.pharmacy.model.AuditLog;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayTotals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaleServiceTest {
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private StockDecrementStrategy stockDecrementStrategy;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private IntradaySalesCounters intradaySalesCounters;
+
+    @Mock
+    private SalesSummaryCache salesSummaryCache;
+
+    @Mock
+    private SalesEventBroadcaster salesEventBroadcaster;
+
+    @Mock
+    private SalesAnalytics salesAnalytics;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private SaleService service;
+
+    @Test
+    void createBasketSale_loadsMedicinesOnceAndReportsEachLine() {
+        Medicine paracetamol = medicine(1L, "Paracetamol", 10, LocalDate.now().plusYears(1));
+        Medicine expired = medicine(2L, "Amoxicillin", 50, LocalDate.now().minusDays(1));
+        when(stockDecrementStrategy.loadForSale(anyCollection()))
+                .thenReturn(List.of(paracetamol, expired));
+        when(stockDecrementStrategy.tryDecrement(any(Medicine.class), anyInt())).thenAnswer(invocation -> {
+            Medicine medicine = invocation.getArgument(0);
+            int quantity = invocation.getArgument(1);
+            if (medicine.getQuantity() < quantity) {
+                return false;
+            }
+            medicine.setQuantity(medicine.getQuantity() - quantity);
+            return true;
+        });
+        when(saleRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(auditLogService.entry(anyString(), anyString(), any(), anyString())).thenReturn(new AuditLog());
+
+        BasketSaleResponse response = service.createBasketSale(basket(
+                item(1L, 6),
+                item(2L, 1),
+                item(1L, 6)
+        ));
+
+        assertEquals(3, response.getLines().size());
+        assertEquals(SaleStatus.VALID, response.getLines().get(0).getStatus());
+        assertEquals(SaleStatus.REJECTED_EXPIRED, response.getLines().get(1).getStatus());
+        assertEquals(SaleStatus.REJECTED_OUT_OF_STOCK, response.getLines().get(2).getStatus());
+        assertEquals(1, response.getValidLines());
+        assertEquals(2, response.getRejectedLines());
+        assertEquals(4, paracetamol.getQuantity());
+        assertEquals(50, expired.getQuantity());
+
+        verify(stockDecrementStrategy).loadForSale(anyCollection());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AuditLog>> audits = ArgumentCaptor.forClass(List.class);
+        verify(auditLogService).logAll(audits.capture());
+        assertEquals(3, audits.getValue().size());
+    }
+
+    @Test
+    void createBasketSale_takesStockInMedicineIdOrderOncePerMedicine() {
+        Medicine ibuprofen = medicine(2L, "Ibuprofen", 10, LocalDate.now().plusYears(1));
+        Medicine paracetamol = medicine(1L, "Paracetamol", 10, LocalDate.now().plusYears(1));
+        when(stockDecrementStrategy.loadForSale(anyCollection())).thenReturn(List.of(ibuprofen, paracetamol));
+        when(stockDecrementStrategy.tryDecrement(any(Medicine.class), anyInt())).thenAnswer(invocation -> {
+            Medicine medicine = invocation.getArgument(0);
+            medicine.setQuantity(medicine.getQuantity() - (int) invocation.getArgument(1));
+            return true;
+        });
+        when(saleRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(auditLogService.entry(anyString(), anyString(), any(), anyString())).thenReturn(new AuditLog());
+
+        BasketSaleResponse response = service.createBasketSale(basket(
+                item(2L, 1),
+                item(1L, 2),
+                item(2L, 3)
+        ));
+
+        InOrder order = inOrder(stockDecrementStrategy);
+        order.verify(stockDecrementStrategy).tryDecrement(paracetamol, 2);
+        order.verify(stockDecrementStrategy).tryDecrement(ibuprofen, 4);
+        verify(stockDecrementStrategy, times(2)).tryDecrement(any(Medicine.class), anyInt());
+        assertEquals(3, response.getValidLines());
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(auditLogService, times(3)).entry(anyString(), anyString(), any(), messages.capture());
+        assertEquals(List.of(
+                "Sale for Ibuprofen (batch B-2) qty 1 remaining 9",
+                "Sale for Paracetamol (batch B-1) qty 2 remaining 8",
+                "Sale for Ibuprofen (batch B-2) qty 3 remaining 6"
+        ), messages.getAllValues());
+    }
+
+    @Test
+    void createSale_retriesADeadlockedTransaction() {
+        Medicine medicine = medicine(1L, "Paracetamol", 10, LocalDate.now().plusYears(1));
+        when(stockDecrementStrategy.loadForSale(anyCollection())).thenReturn(List.of(medicine));
+        when(stockDecrementStrategy.tryDecrement(any(Medicine.class), anyInt()))
+                .thenThrow(new DeadlockLoserDataAccessException("Deadlock found", null))
+                .thenReturn(true);
+        when(saleRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(SaleStatus.VALID, service.createSale(item(1L, 1)).getStatus());
+        verify(stockDecrementStrategy, times(2)).tryDecrement(any(Medicine.class), anyInt());
+    }
+
+    @Test
+    void createBasketSale_rejectsUnknownMedicineWithoutWriting() {
+        when(stockDecrementStrategy.loadForSale(anyCollection())).thenReturn(List.of());
+
+        assertThrows(ResponseStatusException.class,
+                () -> service.createBasketSale(basket(item(99L, 1))));
+
+        verify(saleRepository, never()).saveAll(anyList());
+        verify(auditLogService, never()).logAll(anyList());
+    }
+
+    @Test
+    void createBasketSale_rejectsEmptyBasket() {
+        assertThrows(ResponseStatusException.class, () -> service.createBasketSale(basket()));
+    }
+
+    @Test
+    void createSale_retriesOptimisticConflictsThenReportsConflict() {
+        Medicine medicine = medicine(1L, "Paracetamol", 10, LocalDate.now().plusYears(1));
+        when(stockDecrementStrategy.maxAttempts()).thenReturn(3);
+        when(stockDecrementStrategy.loadForSale(anyCollection())).thenReturn(List.of(medicine));
+        when(stockDecrementStrategy.tryDecrement(any(Medicine.class), anyInt()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Medicine.class, 1L));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.createSale(item(1L, 1)));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        verify(stockDecrementStrategy, times(3)).tryDecrement(any(Medicine.class), anyInt());
+        verify(saleRepository, never()).save(any());
+    }
+
+
+    @Test
+    void getProfitSeries_readsDailyTotalsOnceAndFillsEmptyBuckets() {
+        LocalDate start = LocalDate.of(2026, 3, 2);
+        LocalDate end = LocalDate.of(2026, 3, 22);
+        when(salesAnalytics.profitByDay(start, end)).thenReturn(Map.of(
+                LocalDate.of(2026, 3, 3), dayTotals(2, "20.00", "8.00"),
+                LocalDate.of(2026, 3, 7), dayTotals(1, "5.00", "2.00"),
+                LocalDate.of(2026, 3, 20), dayTotals(4, "40.00", "30.00")
+        ));
+
+        List<ProfitPointDto> points = service.getProfitSeries(start, end, ProfitPeriod.WEEKLY);
+
+        assertEquals(3, points.size());
+        assertEquals(3, points.get(0).getSaleCount());
+        assertEquals(new BigDecimal("15.00"), points.get(0).getProfit());
+        assertEquals(0, points.get(1).getSaleCount());
+        assertEquals(BigDecimal.ZERO, points.get(1).getRevenue());
+        assertEquals(new BigDecimal("10.00"), points.get(2).getProfit());
+        verify(salesAnalytics).profitByDay(start, end);
+    }
+    private static Medicine medicine(Long id, String name, int quantity, LocalDate expiry) {
+        Medicine medicine = new Medicine();
+        medicine.setId(id);
+        medicine.setName(name);
+        medicine.setBatchNumber("B-" + id);
+        medicine.setPrice(BigDecimal.TEN);
+        medicine.setCostPrice(BigDecimal.ONE);
+        medicine.setQuantity(quantity);
+        medicine.setExpiryDate(expiry);
+        return medicine;
+    }
+
+    private static SaleRequest item(Long medicineId, int quantity) {
+        SaleRequest request = new SaleRequest();
+        request.setMedicineId(medicineId);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private static BasketSaleRequest basket(SaleRequest... items) {
+        BasketSaleRequest request = new BasketSaleRequest();
+        request.setItems(List.of(items));
+        return request;
+    }
+
+    private DayTotals dayTotals(long saleCount, String revenue, String cost) {
+        return new DayTotals() {
+            @Override
+            public LocalDate getDay() {
+                return null;
+            }
+
+            @Override
+            public long getSaleCount() {
+                return saleCount;
+            }
+
+            @Override
+            public BigDecimal getRevenue() {
+                return new BigDecimal(revenue);
+            }
+
+            @Override
+            public BigDecimal getCost() {
+                return new BigDecimal(cost);
+            }
+        };
+    }
+}
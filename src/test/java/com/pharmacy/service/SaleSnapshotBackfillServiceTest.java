@@ -0,0 +1,65 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.SaleSnapshotBackfill;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SaleSnapshotBackfillRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaleSnapshotBackfillServiceTest {
+
+    @Mock
+    private SaleSnapshotBackfillRepository backfillRepository;
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SaleSnapshotBackfillService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SaleSnapshotBackfillService(backfillRepository, saleRepository, transactionManager, 5, false);
+    }
+
+    @Test
+    void backfill_resumesFromCheckpointAndStopsAfterLastPreSnapshotSale() {
+        // A previous run already committed ids 1..5
+        SaleSnapshotBackfill progress = new SaleSnapshotBackfill(SaleSnapshotBackfill.SINGLETON_ID, 6, 17);
+        when(backfillRepository.lockById(SaleSnapshotBackfill.SINGLETON_ID)).thenReturn(Optional.of(progress));
+
+        assertEquals(3, service.backfill());
+
+        InOrder order = inOrder(saleRepository);
+        order.verify(saleRepository).backfillPriceSnapshots(6, 11);
+        order.verify(saleRepository).backfillPriceSnapshots(11, 16);
+        order.verify(saleRepository).backfillPriceSnapshots(16, 18);
+        assertEquals(18, progress.getNextId());
+        assertEquals(0, service.backfill());
+    }
+
+    @Test
+    void backfill_doesNothingWithoutCheckpoint() {
+        when(backfillRepository.lockById(SaleSnapshotBackfill.SINGLETON_ID)).thenReturn(Optional.empty());
+
+        assertEquals(0, service.backfill());
+        verify(saleRepository, never()).backfillPriceSnapshots(anyLong(), anyLong());
+    }
+}
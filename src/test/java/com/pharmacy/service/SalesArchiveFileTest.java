@@ -0,0 +1,99 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleArchiveRow;
+import com.pharmacy.model.SaleStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SalesArchiveFileTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2025, 2);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void writeThenRead_roundTripsEveryColumn() {
+        SalesArchiveFile.Writer writer = new SalesArchiveFile.Writer(MONTH);
+        LocalDateTime at = MONTH.atDay(1).atTime(8, 15, 30);
+        writer.append(row(900L, 40L, "Panadol", at, 2, "8.00", "4.00", "2.50", SaleStatus.VALID));
+        // Ids are not in date order, amounts may be missing and statuses repeat
+        writer.append(row(450L, 7L, "Amoxil", at, 1, "0.00", null, null, SaleStatus.REJECTED_EXPIRED));
+        writer.append(row(901L, 40L, "Panadol", MONTH.atEndOfMonth().atTime(23, 59, 59), 3, "-1.25", "4.00", "2.50",
+                SaleStatus.VALID));
+        Path file = directory.resolve("sales-2025-02.col.gz");
+        writer.writeTo(file);
+
+        SalesArchiveFile.Columns columns = SalesArchiveFile.read(file);
+
+        assertEquals(MONTH, columns.month);
+        assertEquals(3, columns.rows);
+        assertEquals(900L, columns.id[0]);
+        assertEquals(450L, columns.id[1]);
+        assertEquals(901L, columns.id[2]);
+        assertEquals(at, columns.saleDate(1));
+        assertEquals(MONTH.atEndOfMonth().atTime(23, 59, 59), columns.saleDate(2));
+        assertEquals(40L, columns.medicineIds[columns.medicine[2]]);
+        assertEquals("Amoxil", columns.medicineNames[columns.medicine[1]]);
+        assertEquals(SaleStatus.REJECTED_EXPIRED, columns.status(1));
+        assertEquals(3, columns.quantity[2]);
+        assertEquals(-125L, columns.totalCents[2]);
+        assertEquals(ColumnCodec.NULL_CENTS, columns.unitCostCents[1]);
+        assertNull(ColumnCodec.money(columns.unitPriceCents[1]));
+        assertEquals(new BigDecimal("2.50"), ColumnCodec.money(columns.unitCostCents[0]));
+        assertEquals(2, columns.firstRowOn(MONTH.atDay(2)));
+        assertTrue(Files.exists(file));
+        assertTrue(Files.notExists(directory.resolve("sales-2025-02.col.gz.tmp")));
+    }
+
+    @Test
+    void append_rejectsRowsOutOfDateOrderOrMonth() {
+        SalesArchiveFile.Writer writer = new SalesArchiveFile.Writer(MONTH);
+        writer.append(row(1L, 1L, "Panadol", MONTH.atDay(5).atStartOfDay(), 1, "1.00", "1.00", "0.50",
+                SaleStatus.VALID));
+
+        assertThrows(IllegalArgumentException.class, () -> writer.append(row(2L, 1L, "Panadol",
+                MONTH.atDay(4).atStartOfDay(), 1, "1.00", "1.00", "0.50", SaleStatus.VALID)));
+        assertThrows(IllegalArgumentException.class, () -> writer.append(row(3L, 1L, "Panadol",
+                MONTH.plusMonths(1).atDay(1).atStartOfDay(), 1, "1.00", "1.00", "0.50", SaleStatus.VALID)));
+    }
+
+    @Test
+    void writeThenRead_keepsAManyRowMonthSmall() throws IOException {
+        SalesArchiveFile.Writer writer = new SalesArchiveFile.Writer(MONTH);
+        LocalDateTime at = MONTH.atDay(1).atStartOfDay();
+        for (int i = 0; i < 10_000; i++) {
+            writer.append(row(1_000L + i, 1L + i % 50, "Medicine " + i % 50, at.plusSeconds(i * 60L), 1 + i % 3,
+                    "4.00", "4.00", "2.00", SaleStatus.VALID));
+        }
+        Path file = directory.resolve("sales-2025-02.col.gz");
+        writer.writeTo(file);
+
+        SalesArchiveFile.Columns columns = SalesArchiveFile.read(file);
+
+        assertEquals(10_000, columns.rows);
+        assertEquals(10_999L, columns.id[9_999]);
+        // A row as a MySQL record with its secondary indexes is well over 100 bytes
+        long size = Files.size(file);
+        assertTrue(size < 10_000 * 4, "archive is " + size + " bytes");
+    }
+
+    private static SaleArchiveRow row(Long id, Long medicineId, String name, LocalDateTime at, int quantity,
+                                      String total, String unitPrice, String unitCost, SaleStatus status) {
+        return new SaleArchiveRow(id, medicineId, name, at, quantity, new BigDecimal(total),
+                unitPrice == null ? null : new BigDecimal(unitPrice),
+                unitCost == null ? null : new BigDecimal(unitCost), status);
+    }
+}
@@ -0,0 +1,210 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.LiveRevenueUpdate;
+import com.pharmacy.dto.LiveStockAlert;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SalesEventBroadcasterTest {
+
+    private final SalesSummaryEngine salesSummaryEngine = mock(SalesSummaryEngine.class);
+
+    private final IntradaySalesCounters counters = new IntradaySalesCounters(salesSummaryEngine,
+            mock(SaleRepository.class), mock(PlatformTransactionManager.class));
+
+    @BeforeEach
+    void loadCounters() {
+        when(salesSummaryEngine.forRange(any(), any())).thenReturn(new SalesSummaryEngine.Totals(Map.of()));
+        counters.rebuild();
+    }
+
+    private SalesEventBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void publish_deliversSalesAndRevenueAfterCommit() throws Exception {
+        broadcaster = new SalesEventBroadcaster(counters, 10, 16, 60_000, 2, 10);
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        broadcaster.subscribe(emitter);
+        emitter.awaitEvents(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        Sale sale = sale(medicine(1L, 50, null), 2, SaleStatus.VALID, "9.00");
+        counters.record(List.of(sale));
+        broadcaster.publish(List.of(sale));
+        Thread.sleep(50);
+        assertEquals(List.of("revenue"), emitter.names());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        emitter.awaitEvents(3);
+        assertEquals(List.of("revenue", "sale", "revenue"), emitter.names());
+        LiveRevenueUpdate revenue = (LiveRevenueUpdate) emitter.data().get(2);
+        assertEquals(1, revenue.validSales());
+        assertEquals(900, revenue.revenueCents());
+    }
+
+    @Test
+    void slowSubscriber_getsCoalescedSnapshotAndOverflowWithoutHoldingUpOthers() throws Exception {
+        broadcaster = new SalesEventBroadcaster(counters, 10, 2, 60_000, 2, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        broadcaster.subscribe(slow);
+        broadcaster.subscribe(fast);
+        fast.awaitEvents(1);
+
+        Medicine medicine = medicine(1L, 500, null);
+        // The fast client gets every sale while the slow one is stuck on its first send
+        for (int i = 1; i <= 5; i++) {
+            broadcaster.publish(List.of(sale(medicine, 1, SaleStatus.VALID, "1.00")));
+            long expected = i;
+            waitFor(() -> fast.names().stream().filter("sale"::equals).count() == expected);
+        }
+
+        release.countDown();
+        // Initial snapshot, then the overflow notice, the two newest sales and one coalesced snapshot
+        slow.awaitEvents(5);
+        Thread.sleep(50);
+        assertEquals(List.of("revenue", "overflow", "sale", "sale", "revenue"), slow.names());
+        assertEquals(Map.of("dropped", 3L), slow.data().get(1));
+    }
+
+    @Test
+    void publish_sendsStockAlertWhenAMedicineCrossesItsReorderLevel() throws Exception {
+        broadcaster = new SalesEventBroadcaster(counters, 10, 16, 60_000, 1, 10);
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        broadcaster.subscribe(emitter);
+        emitter.awaitEvents(1);
+
+        Medicine crossing = medicine(1L, 3, 5);
+        Medicine plenty = medicine(2L, 40, null);
+        broadcaster.publish(List.of(
+                sale(crossing, 2, SaleStatus.VALID, "2.00"),
+                sale(crossing, 2, SaleStatus.VALID, "2.00"),
+                sale(plenty, 1, SaleStatus.VALID, "1.00"),
+                sale(plenty, 0, SaleStatus.REJECTED_OUT_OF_STOCK, "0")
+        ));
+
+        emitter.awaitEvents(7);
+        assertEquals(List.of("revenue", "sale", "sale", "sale", "rejection", "stock", "revenue"), emitter.names());
+        LiveStockAlert alert = (LiveStockAlert) emitter.data().get(5);
+        assertEquals(1L, alert.medicineId());
+        assertEquals(3, alert.quantity());
+        assertEquals(5, alert.reorderLevel());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for live events");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static Medicine medicine(Long id, int remaining, Integer reorderLevel) {
+        Medicine medicine = new Medicine();
+        medicine.setId(id);
+        medicine.setName("Medicine " + id);
+        medicine.setQuantity(remaining);
+        medicine.setReorderLevel(reorderLevel);
+        medicine.setCostPrice(BigDecimal.ONE);
+        return medicine;
+    }
+
+    private static Sale sale(Medicine medicine, int quantity, SaleStatus status, String total) {
+        Sale sale = new Sale();
+        sale.setMedicine(medicine);
+        sale.setQuantitySold(quantity);
+        sale.setSaleDate(LocalDateTime.now());
+        sale.setStatus(status);
+        sale.setTotalPrice(new BigDecimal(total));
+        return sale;
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch gate;
+        private final List<String> names = new CopyOnWriteArrayList<>();
+        private final List<Object> data = new CopyOnWriteArrayList<>();
+
+        private RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(ex);
+                }
+            }
+            String name = null;
+            Object payload = null;
+            for (DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    if (text.startsWith("event:")) {
+                        name = text.substring("event:".length(), text.indexOf('\n'));
+                    }
+                } else {
+                    payload = part.getData();
+                }
+            }
+            if (name != null) {
+                data.add(payload);
+                names.add(name);
+            }
+        }
+
+        List<String> names() {
+            return new ArrayList<>(names);
+        }
+
+        List<Object> data() {
+            return new ArrayList<>(data);
+        }
+
+        void awaitEvents(int count) throws InterruptedException {
+            waitFor(() -> names.size() >= count);
+        }
+    }
+}
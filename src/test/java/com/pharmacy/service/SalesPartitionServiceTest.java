@@ -0,0 +1,116 @@
+package com.pharmacy.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SalesPartitionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SalesArchive salesArchive;
+
+    @Test
+    void createFuturePartitions_splitsMissingMonthsOutOfTheCatchAll() {
+        SalesPartitionService service = service();
+        partitions(Map.of("name", "p_history", "bound", "'2026-05-01'"),
+                Map.of("name", "p202605", "bound", "'2026-06-01 00:00:00'"),
+                Map.of("name", "p_future", "bound", "MAXVALUE"));
+
+        List<String> created = service.createFuturePartitions();
+
+        // June plus two months ahead
+        assertEquals(List.of("p202606", "p202607", "p202608"), created);
+        verify(jdbcTemplate).execute("ALTER TABLE sales REORGANIZE PARTITION p_future INTO ("
+                + "PARTITION p202606 VALUES LESS THAN ('2026-07-01'), "
+                + "PARTITION p202607 VALUES LESS THAN ('2026-08-01'), "
+                + "PARTITION p202608 VALUES LESS THAN ('2026-09-01'), "
+                + "PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+    }
+
+    @Test
+    void createFuturePartitions_doesNothingWhenAheadOrNotPartitioned() {
+        SalesPartitionService service = service();
+        partitions(Map.of("name", "p202608", "bound", "'2026-09-01'"),
+                Map.of("name", "p_future", "bound", "MAXVALUE"));
+        assertEquals(List.of(), service.createFuturePartitions());
+
+        partitions();
+        assertEquals(List.of(), service.createFuturePartitions());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void dropPartitionsBefore_dropsWholeMonthsAndStopsAtPendingStock() {
+        SalesPartitionService service = service();
+        partitions(Map.of("name", "p_history", "bound", "'2026-01-01'"),
+                Map.of("name", "p202601", "bound", "'2026-02-01'"),
+                Map.of("name", "p202602", "bound", "'2026-03-01'"),
+                Map.of("name", "p202603", "bound", "'2026-04-01'"),
+                Map.of("name", "p_future", "bound", "MAXVALUE"));
+        archived("p_history", "1970-01", "2025-12");
+        archived("p202601", "2026-01");
+        archived("p202602", "2026-02");
+        when(jdbcTemplate.queryForObject(contains("PARTITION (p_history)"), eq(Long.class))).thenReturn(0L);
+        when(jdbcTemplate.queryForObject(contains("PARTITION (p202601)"), eq(Long.class))).thenReturn(0L);
+        when(jdbcTemplate.queryForObject(contains("PARTITION (p202602)"), eq(Long.class))).thenReturn(4L);
+
+        List<String> dropped = service.dropPartitionsBefore(LocalDate.of(2026, 4, 1));
+
+        assertEquals(List.of("p_history", "p202601"), dropped);
+        verify(jdbcTemplate).execute("ALTER TABLE sales DROP PARTITION p_history");
+        verify(jdbcTemplate).execute("ALTER TABLE sales DROP PARTITION p202601");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE sales DROP PARTITION p202602");
+    }
+
+    @Test
+    void dropPartitionsBefore_keepsMonthsNotYetArchived() {
+        SalesPartitionService service = service();
+        partitions(Map.of("name", "p202601", "bound", "'2026-02-01'"),
+                Map.of("name", "p202602", "bound", "'2026-03-01'"),
+                Map.of("name", "p_future", "bound", "MAXVALUE"));
+        archived("p202601", "2026-01");
+        when(jdbcTemplate.queryForList(contains("PARTITION (p202602)"), eq(String.class)))
+                .thenReturn(List.of("2026-02"));
+        when(jdbcTemplate.queryForObject(contains("PARTITION (p202601)"), eq(Long.class))).thenReturn(0L);
+
+        assertEquals(List.of("p202601"), service.dropPartitionsBefore(LocalDate.of(2026, 4, 1)));
+
+        verify(jdbcTemplate, never()).execute("ALTER TABLE sales DROP PARTITION p202602");
+    }
+
+    private SalesPartitionService service() {
+        return new SalesPartitionService(jdbcTemplate, salesArchive, 2, 0, () -> LocalDate.of(2026, 6, 15));
+    }
+
+    private void archived(String partition, String... months) {
+        when(jdbcTemplate.queryForList(contains("PARTITION (" + partition + ")"), eq(String.class)))
+                .thenReturn(List.of(months));
+        for (String month : months) {
+            when(salesArchive.isArchived(YearMonth.parse(month))).thenReturn(true);
+        }
+    }
+
+    @SafeVarargs
+    private void partitions(Map<String, Object>... rows) {
+        when(jdbcTemplate.queryForList(contains("information_schema.PARTITIONS"))).thenReturn(List.of(rows));
+    }
+}
@@ -0,0 +1,230 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.SaleArchiveRow;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.model.SalesRollupBackfill;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository;
+import com.pharmacy.repository.SalesRollupBackfillRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupServiceTest {
+
+    @Mock
+    private SalesDailyRollupRepository rollupRepository;
+
+    @Mock
+    private SalesRollupBackfillRepository backfillRepository;
+
+    @Mock
+    private SaleRepository saleRepository;
+
+    @Mock
+    private SalesArchive salesArchive;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SalesRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SalesRollupService(rollupRepository, backfillRepository, saleRepository, salesArchive,
+                transactionManager, 2, false, 0);
+    }
+
+    @Test
+    void record_mergesSalesPerKeyAndUpsertsInKeyOrder() {
+        Medicine ibuprofen = medicine(5L, "4.00", "2.50");
+        Medicine aspirin = medicine(2L, "3.00", "1.00");
+        LocalDateTime morning = LocalDateTime.of(2026, 4, 2, 9, 0);
+
+        List<Sale> sales = List.of(
+                sale(ibuprofen, 2, morning, SaleStatus.VALID, "8.00"),
+                sale(aspirin, 1, morning, SaleStatus.REJECTED_EXPIRED, "0"),
+                sale(ibuprofen, 3, morning.plusHours(5), SaleStatus.VALID, "12.00")
+        );
+        // Cost comes from each sale's snapshot, so a later cost edit does not change it
+        ibuprofen.setCostPrice(new BigDecimal("3.75"));
+        service.record(sales);
+
+        InOrder order = inOrder(rollupRepository);
+        LocalDate day = LocalDate.of(2026, 4, 2);
+        order.verify(rollupRepository).increment(day, 2L, "REJECTED_EXPIRED", 1, 1,
+                new BigDecimal("0"), BigDecimal.ZERO);
+        order.verify(rollupRepository).increment(day, 5L, "VALID", 2, 5,
+                new BigDecimal("20.00"), new BigDecimal("12.50"));
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    void backfill_rebuildsArchivedDaysFromTheArchiveFile(@TempDir Path directory) {
+        YearMonth month = YearMonth.of(2025, 3);
+        LocalDate day = month.atDay(14);
+        SalesArchiveFile.Writer writer = new SalesArchiveFile.Writer(month);
+        writer.append(new SaleArchiveRow(1L, 5L, "Ibuprofen", day.minusDays(1).atTime(23, 59), 9,
+                new BigDecimal("36.00"), new BigDecimal("4.00"), new BigDecimal("2.50"), SaleStatus.VALID));
+        writer.append(new SaleArchiveRow(2L, 5L, "Ibuprofen", day.atTime(9, 0), 2,
+                new BigDecimal("8.00"), new BigDecimal("4.00"), new BigDecimal("2.50"), SaleStatus.VALID));
+        writer.append(new SaleArchiveRow(3L, 5L, "Ibuprofen", day.atTime(17, 30), 3,
+                new BigDecimal("12.00"), new BigDecimal("4.00"), new BigDecimal("2.50"), SaleStatus.VALID));
+        writer.append(new SaleArchiveRow(4L, 2L, "Aspirin", day.atTime(18, 0), 1,
+                new BigDecimal("0.00"), new BigDecimal("3.00"), new BigDecimal("1.00"), SaleStatus.REJECTED_EXPIRED));
+        SalesArchive archive = new SalesArchive(directory.toString(), 1);
+        writer.writeTo(archive.salesFile(month));
+        archive.register(month);
+
+        new SalesRollupService(rollupRepository, backfillRepository, saleRepository, archive, transactionManager, 1,
+                false, 0)
+                .backfill(day, day);
+
+        InOrder order = inOrder(rollupRepository);
+        order.verify(rollupRepository).deleteDay(day);
+        order.verify(rollupRepository).increment(day, 2L, "REJECTED_EXPIRED", 1, 1,
+                new BigDecimal("0.00"), BigDecimal.ZERO);
+        order.verify(rollupRepository).increment(day, 5L, "VALID", 2, 5,
+                new BigDecimal("20.00"), new BigDecimal("12.50"));
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    void resumeBackfill_rebuildsOnlyMonthsWithSalesAndRecordsProgress() {
+        // Undated sales that V13 moved to 1970-01-01, then nothing until March 2025
+        when(saleRepository.findFirstSaleDate()).thenReturn(LocalDateTime.of(1970, 1, 1, 0, 0));
+        when(saleRepository.findFirstSaleDateFrom(LocalDateTime.of(1970, 2, 1, 0, 0)))
+                .thenReturn(LocalDateTime.of(2025, 3, 14, 10, 0));
+
+        backfillingService().resumeBackfill();
+
+        verify(rollupRepository, times(62)).deleteDay(any());
+        verify(rollupRepository).deleteDay(LocalDate.of(1970, 1, 31));
+        verify(rollupRepository).deleteDay(LocalDate.of(2025, 3, 1));
+        verify(rollupRepository, never()).deleteDay(LocalDate.of(1970, 2, 1));
+        verify(saleRepository).findFirstSaleDateFrom(LocalDateTime.of(2025, 4, 1, 0, 0));
+        ArgumentCaptor<SalesRollupBackfill> progress = ArgumentCaptor.forClass(SalesRollupBackfill.class);
+        verify(backfillRepository, times(3)).save(progress.capture());
+        assertEquals(LocalDate.of(2025, 4, 1), progress.getValue().getNextDay());
+        assertTrue(progress.getValue().isDone());
+    }
+
+    @Test
+    void resumeBackfill_continuesAfterTheLastFinishedMonth() {
+        when(backfillRepository.findById(SalesRollupBackfill.SINGLETON_ID)).thenReturn(Optional.of(
+                new SalesRollupBackfill(SalesRollupBackfill.SINGLETON_ID, LocalDate.of(2025, 3, 1), false)));
+        when(saleRepository.findFirstSaleDate()).thenReturn(LocalDateTime.of(1970, 1, 1, 0, 0));
+        when(saleRepository.findFirstSaleDateFrom(LocalDateTime.of(1970, 2, 1, 0, 0)))
+                .thenReturn(LocalDateTime.of(2025, 3, 14, 10, 0));
+
+        backfillingService().resumeBackfill();
+
+        verify(rollupRepository, times(31)).deleteDay(any());
+        verify(rollupRepository, never()).deleteDay(LocalDate.of(1970, 1, 1));
+    }
+
+    @Test
+    void resumeBackfill_isASingleReadOnceDone() {
+        when(backfillRepository.findById(SalesRollupBackfill.SINGLETON_ID)).thenReturn(Optional.of(
+                new SalesRollupBackfill(SalesRollupBackfill.SINGLETON_ID, LocalDate.of(2025, 4, 1), true)));
+
+        backfillingService().resumeBackfill();
+
+        verifyNoInteractions(saleRepository, rollupRepository);
+    }
+
+    @Test
+    void resumeBackfill_retriesADayWhoseRebuildDeadlocked() {
+        LocalDateTime firstSale = LocalDateTime.of(2025, 3, 14, 10, 0);
+        when(saleRepository.findFirstSaleDate()).thenReturn(firstSale);
+        AtomicBoolean deadlocked = new AtomicBoolean();
+        when(rollupRepository.rebuildRange(any(), any())).thenAnswer(invocation -> {
+            LocalDateTime start = invocation.getArgument(0);
+            if (start.toLocalDate().equals(firstSale.toLocalDate()) && deadlocked.compareAndSet(false, true)) {
+                throw new DeadlockLoserDataAccessException("Deadlock found", null);
+            }
+            return 1;
+        });
+
+        backfillingService().resumeBackfill();
+
+        verify(rollupRepository, times(2)).deleteDay(firstSale.toLocalDate());
+        verify(rollupRepository, times(32)).deleteDay(any());
+    }
+
+    @Test
+    void startBackfill_runsInTheBackgroundAndRetriesAFailedRun() {
+        when(saleRepository.findFirstSaleDate())
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(null);
+        SalesRollupService backfilling = backfillingService();
+
+        try {
+            backfilling.startBackfill();
+
+            ArgumentCaptor<SalesRollupBackfill> progress = ArgumentCaptor.forClass(SalesRollupBackfill.class);
+            verify(backfillRepository, timeout(5000)).save(progress.capture());
+            assertTrue(progress.getValue().isDone());
+            verify(saleRepository, times(2)).findFirstSaleDate();
+        } finally {
+            backfilling.stopBackfill();
+        }
+    }
+
+    private SalesRollupService backfillingService() {
+        return new SalesRollupService(rollupRepository, backfillRepository, saleRepository, salesArchive,
+                transactionManager, 2, true, 0);
+    }
+
+    private Medicine medicine(Long id, String price, String costPrice) {
+        Medicine medicine = new Medicine();
+        medicine.setId(id);
+        medicine.setPrice(new BigDecimal(price));
+        medicine.setCostPrice(new BigDecimal(costPrice));
+        return medicine;
+    }
+
+    private Sale sale(Medicine medicine, int quantity, LocalDateTime at, SaleStatus status, String total) {
+        Sale sale = new Sale();
+        sale.setMedicine(medicine);
+        sale.setUnitPrice(medicine.getPrice());
+        sale.setUnitCost(medicine.getCostPrice());
+        sale.setQuantitySold(quantity);
+        sale.setSaleDate(at);
+        sale.setStatus(status);
+        sale.setTotalPrice(new BigDecimal(total));
+        return sale;
+    }
+}
@@ -0,0 +1,115 @@
+package com.pharmacy.service;
+
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SalesDailyRollupRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.StatusTotals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SalesSummaryEngineTest {
+
+    @Mock
+    private SalesDailyRollupRepository rollupRepository;
+
+    private SalesSummaryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new SalesSummaryEngine(rollupRepository, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void forRange_answersAllStatusesFromOneQuery() {
+        LocalDate day = LocalDate.of(2026, 5, 4);
+        when(rollupRepository.totalsByStatus(day, day)).thenReturn(List.of(
+                row(SaleStatus.VALID, 7, "70.00"),
+                row(SaleStatus.REJECTED_OUT_OF_STOCK, 2, "0")
+        ));
+
+        SalesSummaryEngine.Totals totals = engine.forRange(day, day);
+
+        assertEquals(7, totals.count(SaleStatus.VALID));
+        assertEquals(0, totals.count(SaleStatus.REJECTED_EXPIRED));
+        assertEquals(2, totals.count(SaleStatus.REJECTED_OUT_OF_STOCK));
+        assertEquals(9, totals.totalCount());
+        assertEquals(new BigDecimal("70.00"), totals.revenue(SaleStatus.VALID));
+        assertEquals(BigDecimal.ZERO, totals.revenue(SaleStatus.REJECTED_EXPIRED));
+        verify(rollupRepository).totalsByStatus(day, day);
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    @Test
+    void forMonths_issuesOneQueryPerMonthAndKeepsOrder() {
+        when(rollupRepository.totalsByStatus(any(LocalDate.class), any(LocalDate.class))).thenAnswer(invocation -> {
+            LocalDate start = invocation.getArgument(0);
+            LocalDate end = invocation.getArgument(1);
+            assertEquals(YearMonth.from(start).atEndOfMonth(), end);
+            return List.of(row(SaleStatus.VALID, start.getMonthValue(), "1.00"));
+        });
+        List<YearMonth> months = new ArrayList<>();
+        for (int i = 23; i >= 0; i--) {
+            months.add(YearMonth.of(2026, 6).minusMonths(i));
+        }
+
+        List<SalesSummaryEngine.Totals> totals = engine.forMonths(months);
+
+        assertEquals(24, totals.size());
+        for (int i = 0; i < months.size(); i++) {
+            assertEquals(months.get(i).getMonthValue(), totals.get(i).count(SaleStatus.VALID));
+        }
+        verify(rollupRepository, times(24)).totalsByStatus(any(LocalDate.class), any(LocalDate.class));
+        verifyNoMoreInteractions(rollupRepository);
+    }
+
+    static StatusTotals row(SaleStatus status, long saleCount, String revenue) {
+        return new StatusTotals() {
+            @Override
+            public SaleStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public long getSaleCount() {
+                return saleCount;
+            }
+
+            @Override
+            public long getQuantity() {
+                return saleCount;
+            }
+
+            @Override
+            public BigDecimal getRevenue() {
+                return new BigDecimal(revenue);
+            }
+
+            @Override
+            public BigDecimal getCost() {
+                return BigDecimal.ZERO;
+            }
+        };
+    }
+}
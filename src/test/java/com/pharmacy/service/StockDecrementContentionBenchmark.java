@@ -0,0 +1,167 @@
+package com.pharmacy.service;
+
+import com.pharmacy.ScratchData;
+import com.pharmacy.ScratchDatabaseTest;
+import com.pharmacy.dto.SaleRequest;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.MedicineRepository;
+import com.pharmacy.repository.SaleRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hammers a single hot medicine from many threads with each stock decrement strategy and prints
+ * throughput, rejections and oversell per strategy. Runs against the scratch database and deletes each
+ * strategy's medicine, sales, rollup rows and audit entries when done:
+ * {@code SCRATCH_DB_URL=jdbc:mysql://localhost:3306/pharmacy_scratch mvn test -Dtest=StockDecrementContentionBenchmark}
+ */
+@ScratchDatabaseTest
+class StockDecrementContentionBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int SALES_PER_THREAD = 50;
+    private static final int INITIAL_STOCK = 500;
+
+    @Autowired
+    private MedicineRepository medicineRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private IntradaySalesCounters intradaySalesCounters;
+
+    @Autowired
+    private SalesSummaryCache salesSummaryCache;
+
+    @Autowired
+    private SalesEventBroadcaster salesEventBroadcaster;
+
+    @Autowired
+    private SalesAnalytics salesAnalytics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private InventoryFlushService inventoryFlushService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compareStrategiesOnHotSku() throws Exception {
+        Map<String, StockDecrementStrategy> strategies = new LinkedHashMap<>();
+        strategies.put("atomic", new AtomicStockDecrementStrategy(medicineRepository, entityManager));
+        strategies.put("optimistic", new OptimisticStockDecrementStrategy(medicineRepository, 10));
+        strategies.put("pessimistic", new PessimisticStockDecrementStrategy(medicineRepository));
+        strategies.put("in-memory",
+                new InMemoryStockDecrementStrategy(medicineRepository, entityManager, inventoryFlushService));
+
+        System.out.printf("%-12s %10s %8s %10s %10s %9s %10s%n",
+                "strategy", "sales/s", "valid", "rejected", "conflicts", "oversell", "lostUpdate");
+        for (Map.Entry<String, StockDecrementStrategy> entry : strategies.entrySet()) {
+            Result result = run(entry.getKey(), entry.getValue());
+            System.out.printf("%-12s %10.1f %8d %10d %10d %9d %10d%n",
+                    entry.getKey(),
+                    result.throughput(),
+                    result.valid(),
+                    result.rejected(),
+                    result.conflicts(),
+                    result.oversell(),
+                    result.lostUpdates());
+            assertEquals(0, result.oversell(), entry.getKey() + " oversold");
+            assertEquals(0, result.lostUpdates(), entry.getKey() + " lost updates");
+        }
+    }
+
+    private Result run(String name, StockDecrementStrategy strategy) throws Exception {
+        SaleService saleService = new SaleService(saleRepository, auditLogService, strategy, salesRollupService,
+                intradaySalesCounters, salesSummaryCache, salesEventBroadcaster, salesAnalytics,
+                transactionManager);
+        Medicine medicine = medicineRepository.save(
+                ScratchData.medicine("Benchmark " + name, "BENCH-" + name + "-", INITIAL_STOCK));
+
+        AtomicLong valid = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < SALES_PER_THREAD; i++) {
+                    SaleRequest request = new SaleRequest();
+                    request.setMedicineId(medicine.getId());
+                    request.setQuantity(1);
+                    try {
+                        Sale sale = saleService.createSale(request);
+                        if (sale.getStatus() == SaleStatus.VALID) {
+                            valid.incrementAndGet();
+                        } else {
+                            rejected.incrementAndGet();
+                        }
+                    } catch (RuntimeException ex) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        inventoryFlushService.flushAll();
+
+        Medicine after = medicineRepository.findById(medicine.getId()).orElseThrow();
+        ScratchData.deleteMedicine(jdbcTemplate, medicine.getId());
+
+        int remaining = after.getQuantity();
+        long oversell = Math.max(0, valid.get() - INITIAL_STOCK) + Math.max(0, -remaining);
+        long lostUpdates = Math.abs((INITIAL_STOCK - remaining) - valid.get());
+        double throughput = (THREADS * SALES_PER_THREAD) / (elapsedNanos / 1_000_000_000.0);
+        return new Result(throughput, valid.get(), rejected.get(), conflicts.get(), oversell, lostUpdates);
+    }
+
+
+    private record Result(double throughput,
+                          long valid,
+                          long rejected,
+                          long conflicts,
+                          long oversell,
+                          long lostUpdates) {}
+}
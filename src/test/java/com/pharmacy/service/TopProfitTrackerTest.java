@@ -0,0 +1,150 @@
+package com.pharmacy.service;
+
+import com.pharmacy.dto.ProfitByMedicineDto;
+import com.pharmacy.model.Medicine;
+import com.pharmacy.model.Sale;
+import com.pharmacy.model.SaleStatus;
+import com.pharmacy.repository.SaleRepository;
+import com.pharmacy.repository.SalesDailyRollupRepository.DayMedicineTotals;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TopProfitTrackerTest {
+
+    private final SalesRollupService salesRollupService = mock(SalesRollupService.class);
+    private final SaleRepository saleRepository = mock(SaleRepository.class);
+    private final AtomicReference<LocalDate> today = new AtomicReference<>(LocalDate.of(2026, 6, 30));
+    private final TopProfitTracker tracker = new TopProfitTracker(salesRollupService, saleRepository,
+            mock(PlatformTransactionManager.class), 3, today::get);
+
+    @Test
+    void top_ranksWholeWindowTotalsNotEachDaysLeaders() {
+        LocalDate day1 = LocalDate.of(2026, 6, 28);
+        LocalDate day2 = LocalDate.of(2026, 6, 29);
+        when(salesRollupService.profitByDayAndMedicine(day1, today.get())).thenReturn(List.of(
+                // Medicine 3 never leads a day but leads the window
+                row(day1, 1L, "Panadol", 1, "10.00", "0"),
+                row(day1, 3L, "Ibuprofen", 1, "8.00", "0"),
+                row(day2, 2L, "Amoxil", 1, "10.00", "0"),
+                row(day2, 3L, "Ibuprofen", 1, "8.00", "0")
+        ));
+        tracker.rebuild();
+        assertEquals(List.of(3L), ids(tracker.top(day1, today.get(), 1).orElseThrow()));
+
+        tracker.record(List.of(sale(2L, "Amoxil", today.get(), 3, "9.00", "1.00")));
+
+        List<ProfitByMedicineDto> top = tracker.top(day1, today.get(), 2).orElseThrow();
+        assertEquals(List.of(2L, 3L), ids(top));
+        assertEquals(new BigDecimal("16.00"), top.get(0).getProfit());
+        assertEquals(4L, top.get(0).getQuantitySold());
+        // Inside the window but not the whole of it: merged from its days, without today's sale
+        assertEquals(List.of(3L, 1L, 2L), ids(tracker.top(day1, day2, 5).orElseThrow()));
+    }
+
+    @Test
+    void top_dropsExpiredDaysAndLeavesOlderRangesToTheDatabase() {
+        LocalDate day1 = LocalDate.of(2026, 6, 28);
+        when(salesRollupService.profitByDayAndMedicine(day1, today.get())).thenReturn(List.of(
+                row(day1, 1L, "Panadol", 2, "20.00", "4.00"),
+                row(today.get(), 2L, "Amoxil", 1, "5.00", "1.00")
+        ));
+        tracker.rebuild();
+
+        today.set(LocalDate.of(2026, 7, 1));
+        tracker.rollOver();
+
+        assertEquals(List.of(2L), ids(tracker.top(LocalDate.of(2026, 6, 29), today.get(), 5).orElseThrow()));
+        assertTrue(tracker.top(day1, today.get(), 5).isEmpty());
+    }
+
+    @Test
+    void rebuild_countsSalesCommittedDuringTheLoadOnce() {
+        LocalDate day1 = LocalDate.of(2026, 6, 28);
+        Sale inSnapshot = sale(1L, "Panadol", today.get(), 1, "10.00", "2.00");
+        inSnapshot.setId(11L);
+        Sale afterSnapshot = sale(1L, "Panadol", today.get(), 1, "10.00", "2.00");
+        afterSnapshot.setId(12L);
+        when(salesRollupService.profitByDayAndMedicine(day1, today.get())).thenAnswer(invocation -> {
+            // Both commit while the window is read; only the first made it into the snapshot
+            tracker.record(List.of(inSnapshot));
+            tracker.record(List.of(afterSnapshot));
+            return List.of(row(today.get(), 1L, "Panadol", 1, "10.00", "2.00"));
+        });
+        when(saleRepository.findIdsIn(Set.of(11L, 12L))).thenReturn(List.of(11L));
+
+        tracker.rebuild();
+
+        ProfitByMedicineDto top = tracker.top(day1, today.get(), 1).orElseThrow().get(0);
+        assertEquals(2L, top.getQuantitySold());
+        assertEquals(new BigDecimal("16.00"), top.getProfit());
+    }
+
+    @Test
+    void top_isEmptyUntilLoaded() {
+        assertTrue(tracker.top(LocalDate.of(2026, 6, 28), today.get(), 5).isEmpty());
+    }
+
+    private static List<Long> ids(List<ProfitByMedicineDto> rows) {
+        return rows.stream().map(ProfitByMedicineDto::getMedicineId).toList();
+    }
+
+    private static Sale sale(Long medicineId, String name, LocalDate day, int quantity, String total, String unitCost) {
+        Medicine medicine = new Medicine();
+        medicine.setId(medicineId);
+        medicine.setName(name);
+        Sale sale = new Sale();
+        sale.setMedicine(medicine);
+        sale.setQuantitySold(quantity);
+        sale.setSaleDate(day.atTime(12, 0));
+        sale.setStatus(SaleStatus.VALID);
+        sale.setTotalPrice(new BigDecimal(total));
+        sale.setUnitCost(new BigDecimal(unitCost));
+        return sale;
+    }
+
+    private static DayMedicineTotals row(LocalDate day, Long medicineId, String name, long quantity,
+                                         String revenue, String cost) {
+        return new DayMedicineTotals() {
+            @Override
+            public LocalDate getDay() {
+                return day;
+            }
+
+            @Override
+            public Long getMedicineId() {
+                return medicineId;
+            }
+
+            @Override
+            public String getMedicineName() {
+                return name;
+            }
+
+            @Override
+            public long getQuantity() {
+                return quantity;
+            }
+
+            @Override
+            public BigDecimal getRevenue() {
+                return new BigDecimal(revenue);
+            }
+
+            @Override
+            public BigDecimal getCost() {
+                return new BigDecimal(cost);
+            }
+        };
+    }
+}